@@ -124,23 +124,7 @@ public class DistributedTracingAPI {
                 if ("{}".equals(jsonEncodedTags)) {
                     traceIds.add(traceId);
                 } else if (!traceIds.contains(traceId)) {   // To consider a traceId a single matching span is enough
-                    boolean isMatch = false;
-                    JsonElement parsedJsonElement = new JsonParser().parse((String) traceIdResult[1]);
-                    if (parsedJsonElement.isJsonObject()) {
-                        JsonObject traceTags = parsedJsonElement.getAsJsonObject();
-                        for (Map.Entry<String, String> queryTagEntry : queryTags.entrySet()) {
-                            String tagKey = queryTagEntry.getKey();
-                            String tagValue = queryTagEntry.getValue();
-
-                            JsonElement traceTagValueJsonElement = traceTags.get(tagKey);
-                            if (traceTagValueJsonElement != null && traceTagValueJsonElement.isJsonPrimitive()
-                                    && tagValue.equals(traceTagValueJsonElement.getAsString())) {
-                                isMatch = true;
-                                break;
-                            }
-                        }
-                    }
-                    if (isMatch) {
+                    if (TagsReader.containsAnyTag((String) traceIdResult[1], queryTags)) {
                         traceIds.add(traceId);
                     }
                 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.api;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.Map;
+
+/**
+ * Reader for the tags stored with the spans.
+ * The tags are stored as a flat JSON object with string values (eg:- {"http.method":"GET"}). This scans the stored
+ * tags directly without building a JSON tree. If the stored tags are not in the flat form, the generic JSON parser
+ * is used instead.
+ */
+public class TagsReader {
+
+    /**
+     * Check whether the stored tags of a span contains at least one of a set of tags.
+     *
+     * @param encodedTags The JSON encoded tags of the span
+     * @param tags        The tags of which at least one should be present in the span
+     * @return True if at least one tag is present with the same value
+     */
+    public static boolean containsAnyTag(String encodedTags, Map<String, String> tags) {
+        Boolean isMatch = new FlatTagsScanner(encodedTags, tags).scan();
+        if (isMatch == null) {
+            isMatch = containsAnyTagInJsonTree(encodedTags, tags);
+        }
+        return isMatch;
+    }
+
+    /**
+     * Check whether the stored tags of a span contains at least one of a set of tags by parsing the stored tags into
+     * a JSON tree.
+     *
+     * @param encodedTags The JSON encoded tags of the span
+     * @param tags        The tags of which at least one should be present in the span
+     * @return True if at least one tag is present with the same value
+     */
+    private static boolean containsAnyTagInJsonTree(String encodedTags, Map<String, String> tags) {
+        JsonElement parsedJsonElement = new JsonParser().parse(encodedTags);
+        if (parsedJsonElement.isJsonObject()) {
+            JsonObject spanTags = parsedJsonElement.getAsJsonObject();
+            for (Map.Entry<String, String> tagEntry : tags.entrySet()) {
+                JsonElement spanTagValueJsonElement = spanTags.get(tagEntry.getKey());
+                if (spanTagValueJsonElement != null && spanTagValueJsonElement.isJsonPrimitive()
+                        && tagEntry.getValue().equals(spanTagValueJsonElement.getAsString())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scanner for a flat JSON object of tags.
+     */
+    private static class FlatTagsScanner {
+
+        private final String encodedTags;
+        private final Map<String, String> tags;
+        private int index;
+
+        FlatTagsScanner(String encodedTags, Map<String, String> tags) {
+            this.encodedTags = encodedTags;
+            this.tags = tags;
+        }
+
+        /**
+         * Scan the tags until a matching tag is found.
+         *
+         * @return True if a matching tag was found, false if not, or null if the tags are not a flat JSON object
+         */
+        Boolean scan() {
+            skipWhitespace();
+            if (!consume('{')) {
+                return null;
+            }
+            skipWhitespace();
+            if (consume('}')) {
+                return isAtEnd() ? Boolean.FALSE : null;
+            }
+            while (true) {
+                String key = readString();
+                skipWhitespace();
+                if (key == null || !consume(':')) {
+                    return null;
+                }
+                skipWhitespace();
+                String value;
+                if (peek() == '"') {
+                    value = readString();
+                } else {
+                    value = readLiteral();
+                }
+                if (value == null) {
+                    return null;
+                }
+                String expectedValue = tags.get(key);
+                if (expectedValue != null && expectedValue.equals(value)) {
+                    return Boolean.TRUE;
+                }
+                skipWhitespace();
+                if (consume('}')) {
+                    return isAtEnd() ? Boolean.FALSE : null;
+                } else if (!consume(',')) {
+                    return null;
+                }
+                skipWhitespace();
+            }
+        }
+
+        /**
+         * Read a quoted JSON string.
+         *
+         * @return The unescaped string or null if a valid string is not present
+         */
+        private String readString() {
+            if (!consume('"')) {
+                return null;
+            }
+            int startIndex = index;
+            StringBuilder stringBuilder = null;
+            while (index < encodedTags.length()) {
+                char character = encodedTags.charAt(index);
+                if (character == '"') {
+                    String value = stringBuilder == null
+                            ? encodedTags.substring(startIndex, index)
+                            : stringBuilder.append(encodedTags, startIndex, index).toString();
+                    index++;
+                    return value;
+                } else if (character == '\\') {
+                    if (stringBuilder == null) {
+                        stringBuilder = new StringBuilder();
+                    }
+                    stringBuilder.append(encodedTags, startIndex, index);
+                    if (index + 1 >= encodedTags.length()) {
+                        return null;
+                    }
+                    char escapedCharacter = encodedTags.charAt(index + 1);
+                    index += 2;
+                    switch (escapedCharacter) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                            stringBuilder.append(escapedCharacter);
+                            break;
+                        case 'n':
+                            stringBuilder.append('\n');
+                            break;
+                        case 'r':
+                            stringBuilder.append('\r');
+                            break;
+                        case 't':
+                            stringBuilder.append('\t');
+                            break;
+                        case 'b':
+                            stringBuilder.append('\b');
+                            break;
+                        case 'f':
+                            stringBuilder.append('\f');
+                            break;
+                        case 'u':
+                            if (index + 4 > encodedTags.length()) {
+                                return null;
+                            }
+                            try {
+                                stringBuilder.append((char) Integer.parseInt(
+                                        encodedTags.substring(index, index + 4), 16));
+                            } catch (NumberFormatException e) {
+                                return null;
+                            }
+                            index += 4;
+                            break;
+                        default:
+                            return null;
+                    }
+                    startIndex = index;
+                } else {
+                    index++;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Read a JSON number or boolean literal.
+         *
+         * @return The literal or null if a number or boolean literal is not present
+         */
+        private String readLiteral() {
+            int startIndex = index;
+            while (index < encodedTags.length()) {
+                char character = encodedTags.charAt(index);
+                if (character == ',' || character == '}' || Character.isWhitespace(character)) {
+                    break;
+                }
+                if (character == '{' || character == '[' || character == '"') {
+                    return null;
+                }
+                index++;
+            }
+            String literal = encodedTags.substring(startIndex, index);
+            if (literal.isEmpty() || "null".equals(literal)) {
+                return null;
+            } else if ("true".equals(literal) || "false".equals(literal)) {
+                return literal;
+            }
+            char firstCharacter = literal.charAt(0);
+            return (firstCharacter == '-' || Character.isDigit(firstCharacter)) ? literal : null;
+        }
+
+        private void skipWhitespace() {
+            while (index < encodedTags.length() && Character.isWhitespace(encodedTags.charAt(index))) {
+                index++;
+            }
+        }
+
+        private boolean consume(char character) {
+            if (peek() == character) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private char peek() {
+            return index < encodedTags.length() ? encodedTags.charAt(index) : 0;
+        }
+
+        private boolean isAtEnd() {
+            skipWhitespace();
+            return index == encodedTags.length();
+        }
+    }
+
+    private TagsReader() {   // Prevent initialization
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.api;
+
+import com.google.gson.JsonSyntaxException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test Cases for Tags Reader.
+ */
+public class TagsReaderTestCase {
+
+    @Test
+    public void testContainsAnyTagInFlatTags() {
+        String encodedTags = "{\"component\":\"proxy\",\"http.method\":\"GET\",\"http.status_code\":\"200\"}";
+        Assert.assertTrue(TagsReader.containsAnyTag(encodedTags, createTags("http.method", "GET")));
+        Assert.assertTrue(TagsReader.containsAnyTag(encodedTags, createTags("http.method", "POST",
+                "http.status_code", "200")));
+        Assert.assertFalse(TagsReader.containsAnyTag(encodedTags, createTags("http.method", "POST")));
+        Assert.assertFalse(TagsReader.containsAnyTag(encodedTags, createTags("unknown", "GET")));
+        Assert.assertFalse(TagsReader.containsAnyTag("{}", createTags("http.method", "GET")));
+    }
+
+    @Test
+    public void testContainsAnyTagWithEscapedCharacters() {
+        String encodedTags = "{ \"quoted \\\"key\\\"\" : \"back\\\\slash\\/\\n\\u00e9\" , \"key\":\"value\" }";
+        Assert.assertTrue(TagsReader.containsAnyTag(encodedTags, createTags("quoted \"key\"", "back\\slash/\n\u00e9")));
+        Assert.assertFalse(TagsReader.containsAnyTag(encodedTags, createTags("quoted \"key\"", "back\\slash")));
+        Assert.assertTrue(TagsReader.containsAnyTag(encodedTags, createTags("key", "value")));
+    }
+
+    @Test
+    public void testContainsAnyTagWithNonStringValues() {
+        String encodedTags = "{\"error\":true,\"retries\":3,\"ratio\":-1.5e3,\"missing\":null}";
+        Assert.assertTrue(TagsReader.containsAnyTag(encodedTags, createTags("error", "true")));
+        Assert.assertTrue(TagsReader.containsAnyTag(encodedTags, createTags("retries", "3")));
+        Assert.assertTrue(TagsReader.containsAnyTag(encodedTags, createTags("ratio", "-1.5e3")));
+        Assert.assertFalse(TagsReader.containsAnyTag(encodedTags, createTags("missing", "null")));
+    }
+
+    @Test
+    public void testContainsAnyTagInNestedTags() {
+        String encodedTags = "{\"nested\":{\"key\":\"value\"},\"list\":[\"value\"],\"key\":\"value\"}";
+        Assert.assertTrue(TagsReader.containsAnyTag(encodedTags, createTags("key", "value")));
+        Assert.assertFalse(TagsReader.containsAnyTag(encodedTags, createTags("nested", "value")));
+        Assert.assertFalse(TagsReader.containsAnyTag("[\"key\"]", createTags("key", "value")));
+    }
+
+    @Test(expectedExceptions = JsonSyntaxException.class)
+    public void testContainsAnyTagInInvalidTags() {
+        TagsReader.containsAnyTag("{\"key\":\"value\"", createTags("unknown", "value"));
+    }
+
+    /**
+     * Create a tags map.
+     *
+     * @param keyValuePairs Alternating keys and values of the tags
+     * @return The tags map
+     */
+    private Map<String, String> createTags(String... keyValuePairs) {
+        Map<String, String> tags = new HashMap<>();
+        for (int i = 0; i < keyValuePairs.length; i += 2) {
+            tags.put(keyValuePairs[i], keyValuePairs[i + 1]);
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Gauge which reads its current value from a supplier whenever the metrics are collected (eg:- queue depth).
+ */
+public class Gauge implements Metric {
+
+    private final String name;
+    private final String help;
+    private final DoubleSupplier valueSupplier;
+
+    Gauge(String name, String help, DoubleSupplier valueSupplier) {
+        this.name = name;
+        this.help = help;
+        this.valueSupplier = valueSupplier;
+    }
+
+    public double getValue() {
+        return valueSupplier.getAsDouble();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void writePrometheusText(StringBuilder stringBuilder) {
+        PrometheusTextWriter.writeHeader(stringBuilder, name, help, "gauge");
+        stringBuilder.append(name).append(' ');
+        PrometheusTextWriter.writeValue(stringBuilder, valueSupplier.getAsDouble());
+        stringBuilder.append('\n');
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram which counts the observed values in buckets with fixed upper bounds.
+ * Observing a value is lock free and only increments the counter of the matching bucket, so that this can be used
+ * on hot paths. The buckets are exposed as cumulative Prometheus histogram buckets.
+ */
+public class Histogram implements Metric {
+
+    private final String name;
+    private final String help;
+    private final double[] bucketUpperBounds;
+    private final String[] bucketLabels;
+    private final LongAdder[] bucketCounts;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(String name, String help, double[] bucketUpperBounds) {
+        if (bucketUpperBounds.length == 0) {
+            throw new IllegalArgumentException("At least one bucket is required for histogram " + name);
+        }
+        for (int i = 1; i < bucketUpperBounds.length; i++) {
+            if (bucketUpperBounds[i] <= bucketUpperBounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket upper bounds of histogram " + name
+                        + " should be in increasing order");
+            }
+        }
+        this.name = name;
+        this.help = help;
+        this.bucketUpperBounds = Arrays.copyOf(bucketUpperBounds, bucketUpperBounds.length);
+        this.bucketLabels = new String[bucketUpperBounds.length + 1];
+        for (int i = 0; i < bucketUpperBounds.length; i++) {
+            bucketLabels[i] = PrometheusTextWriter.formatLabelValue(bucketUpperBounds[i]);
+        }
+        bucketLabels[bucketUpperBounds.length] = "+Inf";
+        this.bucketCounts = new LongAdder[bucketUpperBounds.length + 1];     // Additional bucket for +Inf
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Observe a value.
+     *
+     * @param value The value to observe
+     */
+    public void observe(double value) {
+        int bucketIndex = Arrays.binarySearch(bucketUpperBounds, value);
+        if (bucketIndex < 0) {
+            bucketIndex = -bucketIndex - 1;     // The first bucket with an upper bound larger than the value
+        }
+        bucketCounts[bucketIndex].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Generate exponentially increasing bucket upper bounds.
+     *
+     * @param start  The upper bound of the first bucket
+     * @param factor The factor by which the upper bound of each bucket increases
+     * @param count  The number of buckets
+     * @return The bucket upper bounds
+     */
+    public static double[] exponentialBuckets(double start, double factor, int count) {
+        double[] bucketUpperBounds = new double[count];
+        for (int i = 0; i < count; i++) {
+            bucketUpperBounds[i] = start * Math.pow(factor, i);
+        }
+        return bucketUpperBounds;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void writePrometheusText(StringBuilder stringBuilder) {
+        PrometheusTextWriter.writeHeader(stringBuilder, name, help, "histogram");
+        long cumulativeCount = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            cumulativeCount += bucketCounts[i].sum();
+            stringBuilder.append(name).append("_bucket{le=\"").append(bucketLabels[i]).append("\"} ")
+                    .append(cumulativeCount).append('\n');
+        }
+        stringBuilder.append(name).append("_count ").append(cumulativeCount).append('\n');
+        stringBuilder.append(name).append("_sum ");
+        PrometheusTextWriter.writeValue(stringBuilder, sum.sum());
+        stringBuilder.append('\n');
+    }
+}
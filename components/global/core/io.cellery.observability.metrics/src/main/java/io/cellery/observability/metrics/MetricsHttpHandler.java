@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP Handler which serves the metrics in a registry in the Prometheus text exposition format.
+ * Requests other than GET requests are passed to the fallback handler if one is provided. This allows the metrics
+ * context to be added to servers which already accept data on all paths. Since the HTTP server matches contexts by
+ * prefix, GET requests to paths other than the exact path of the context are responded with 404 (Not Found).
+ */
+public class MetricsHttpHandler implements HttpHandler {
+
+    public static final String METRICS_CONTEXT = "/metrics";
+
+    private final MetricsRegistry metricsRegistry;
+    private final HttpHandler fallbackHandler;
+
+    public MetricsHttpHandler(MetricsRegistry metricsRegistry) {
+        this(metricsRegistry, null);
+    }
+
+    public MetricsHttpHandler(MetricsRegistry metricsRegistry, HttpHandler fallbackHandler) {
+        this.metricsRegistry = metricsRegistry;
+        this.fallbackHandler = fallbackHandler;
+    }
+
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+        boolean isGetRequest = "GET".equalsIgnoreCase(httpExchange.getRequestMethod());
+        if (!isGetRequest && fallbackHandler != null) {
+            fallbackHandler.handle(httpExchange);
+            return;
+        }
+        try {
+            if (!httpExchange.getHttpContext().getPath().equals(httpExchange.getRequestURI().getPath())) {
+                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+            } else if (isGetRequest) {
+                byte[] response = metricsRegistry.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+                httpExchange.getResponseHeaders().set("Content-Type", getContentType());
+                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.length);
+                try (OutputStream outputStream = httpExchange.getResponseBody()) {
+                    outputStream.write(response);
+                }
+            } else {
+                httpExchange.getResponseHeaders().set("Allow", "GET");
+                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+            }
+        } finally {
+            httpExchange.close();
+        }
+    }
+
+    /**
+     * Get the content type of the Prometheus text exposition format.
+     *
+     * @return The content type
+     */
+    public static String getContentType() {
+        return PrometheusTextWriter.CONTENT_TYPE;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of the metrics of the observability components.
+ * The metrics are kept in memory and are exposed in the Prometheus text exposition format.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT_REGISTRY = new MetricsRegistry();
+    private static final Pattern METRIC_NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    /**
+     * Get the registry shared by all the components in the runtime.
+     *
+     * @return The default metrics registry
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT_REGISTRY;
+    }
+
+    /**
+     * Get a counter registered under the name or register a new counter if it is not already registered.
+     *
+     * @param name The name of the counter
+     * @param help The help text of the counter
+     * @return The counter registered under the name
+     */
+    public Counter counter(String name, String help) {
+        return getOrRegister(name, Counter.class, () -> new Counter(name, help));
+    }
+
+    /**
+     * Get a histogram registered under the name or register a new histogram if it is not already registered.
+     *
+     * @param name              The name of the histogram
+     * @param help              The help text of the histogram
+     * @param bucketUpperBounds The upper bounds of the buckets of the histogram in increasing order
+     * @return The histogram registered under the name
+     */
+    public Histogram histogram(String name, String help, double[] bucketUpperBounds) {
+        return getOrRegister(name, Histogram.class, () -> new Histogram(name, help, bucketUpperBounds));
+    }
+
+    /**
+     * Register a gauge.
+     * Only one live gauge is supported per name. A gauge already registered under the same name is replaced since
+     * the gauge reads from the state of the component which registered it (eg:- when a Siddhi app is redeployed).
+     * Components which can run multiple instances at once should register a single gauge which reads from the state
+     * of all the instances instead.
+     *
+     * @param name          The name of the gauge
+     * @param help          The help text of the gauge
+     * @param valueSupplier The supplier of the current value of the gauge
+     * @return The registered gauge
+     */
+    public Gauge gauge(String name, String help, DoubleSupplier valueSupplier) {
+        validateName(name);
+        Gauge gauge = new Gauge(name, help, valueSupplier);
+        metrics.compute(name, (key, existingMetric) -> {
+            if (existingMetric != null && !(existingMetric instanceof Gauge)) {
+                throw new IllegalArgumentException("Metric " + name + " is already registered as a "
+                        + existingMetric.getClass().getSimpleName());
+            }
+            return gauge;
+        });
+        return gauge;
+    }
+
+    /**
+     * Unregister a metric.
+     *
+     * @param metric The metric to unregister
+     */
+    public void unregister(Metric metric) {
+        metrics.remove(metric.getName(), metric);
+    }
+
+    /**
+     * Get all the registered metrics in the Prometheus text exposition format.
+     *
+     * @return The metrics in the Prometheus text exposition format
+     */
+    public String toPrometheusText() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Metric metric : metrics.values()) {
+            metric.writePrometheusText(stringBuilder);
+        }
+        return stringBuilder.toString();
+    }
+
+    private <T extends Metric> T getOrRegister(String name, Class<T> metricClass, MetricFactory<T> factory) {
+        validateName(name);
+        Metric metric = metrics.computeIfAbsent(name, key -> factory.create());
+        if (!metricClass.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a "
+                    + metric.getClass().getSimpleName());
+        }
+        return metricClass.cast(metric);
+    }
+
+    private static void validateName(String name) {
+        if (name == null || !METRIC_NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name " + name);
+        }
+    }
+
+    /**
+     * Factory for creating a metric when it is not already registered.
+     *
+     * @param <T> The type of the metric
+     */
+    private interface MetricFactory<T extends Metric> {
+        T create();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.metrics;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Utilities for writing metrics in the Prometheus text exposition format.
+ */
+class PrometheusTextWriter {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final MathContext LABEL_VALUE_PRECISION = new MathContext(15);
+
+    /**
+     * Write the HELP and TYPE lines of a metric.
+     *
+     * @param stringBuilder The string builder to write to
+     * @param name          The name of the metric
+     * @param help          The help text of the metric
+     * @param type          The Prometheus type of the metric
+     */
+    static void writeHeader(StringBuilder stringBuilder, String name, String help, String type) {
+        stringBuilder.append("# HELP ").append(name).append(' ');
+        for (int i = 0; i < help.length(); i++) {
+            char c = help.charAt(i);
+            if (c == '\\') {
+                stringBuilder.append("\\\\");
+            } else if (c == '\n') {
+                stringBuilder.append("\\n");
+            } else {
+                stringBuilder.append(c);
+            }
+        }
+        stringBuilder.append('\n');
+        stringBuilder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Write a sample value.
+     *
+     * @param stringBuilder The string builder to write to
+     * @param value         The value to write
+     */
+    static void writeValue(StringBuilder stringBuilder, double value) {
+        if (Double.isNaN(value)) {
+            stringBuilder.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            stringBuilder.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            stringBuilder.append((long) value);
+        } else {
+            stringBuilder.append(value);
+        }
+    }
+
+    /**
+     * Format a numeric label value in plain decimal notation.
+     * The value is rounded to 15 significant digits, so that the noise of floating point arithmetic does not leak
+     * into the label values (eg:- 1.6000000000000001E-4 is formatted as 0.00016).
+     *
+     * @param value The value to format
+     * @return The formatted value
+     */
+    static String formatLabelValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        } else if (value == 0) {
+            return "0";
+        }
+        return new BigDecimal(value).round(LABEL_VALUE_PRECISION).stripTrailingZeros().toPlainString();
+    }
+
+    private PrometheusTextWriter() {   // Prevent initialization
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test Cases for Metrics HTTP Handler.
+ */
+public class MetricsHttpHandlerTestCase {
+
+    private HttpServer httpServer;
+    private String metricsUrl;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        metricsRegistry.counter("test_requests_total", "Total requests").increment();
+
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext(MetricsHttpHandler.METRICS_CONTEXT, new MetricsHttpHandler(metricsRegistry,
+                httpExchange -> {
+                    httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_ACCEPTED, -1);
+                    httpExchange.close();
+                }));
+        httpServer.start();
+        metricsUrl = "http://localhost:" + httpServer.getAddress().getPort() + MetricsHttpHandler.METRICS_CONTEXT;
+    }
+
+    @AfterClass
+    public void stopServer() {
+        httpServer.stop(0);
+    }
+
+    @Test
+    public void testScrape() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(metricsUrl).openConnection();
+        Assert.assertEquals(connection.getResponseCode(), HttpURLConnection.HTTP_OK);
+        Assert.assertEquals(connection.getContentType(), MetricsHttpHandler.getContentType());
+        try (InputStream inputStream = connection.getInputStream()) {
+            Assert.assertTrue(IOUtils.toString(inputStream, StandardCharsets.UTF_8)
+                    .contains("test_requests_total 1\n"));
+        }
+    }
+
+    @Test
+    public void testOtherPathsNotFound() throws IOException {
+        for (String path : new String[]{"X", "/", "/anything"}) {
+            HttpURLConnection connection = (HttpURLConnection) new URL(metricsUrl + path).openConnection();
+            Assert.assertEquals(connection.getResponseCode(), HttpURLConnection.HTTP_NOT_FOUND);
+        }
+    }
+
+    @Test
+    public void testFallbackForOtherMethods() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(metricsUrl).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(connection.getResponseCode(), HttpURLConnection.HTTP_ACCEPTED);
+    }
+}
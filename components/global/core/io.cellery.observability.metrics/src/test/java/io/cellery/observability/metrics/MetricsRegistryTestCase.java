@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test Cases for Metrics Registry.
+ */
+public class MetricsRegistryTestCase {
+
+    @Test
+    public void testCounter() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        Counter counter = metricsRegistry.counter("test_requests_total", "Total requests");
+        counter.increment();
+        counter.increment(4);
+
+        Assert.assertSame(metricsRegistry.counter("test_requests_total", "Total requests"), counter);
+        Assert.assertEquals(counter.getValue(), 5);
+        Assert.assertEquals(metricsRegistry.toPrometheusText(), "# HELP test_requests_total Total requests\n"
+                + "# TYPE test_requests_total counter\n"
+                + "test_requests_total 5\n");
+    }
+
+    @Test
+    public void testGauge() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        Gauge firstGauge = metricsRegistry.gauge("test_queue_depth", "Queue depth", () -> 3);
+        Gauge secondGauge = metricsRegistry.gauge("test_queue_depth", "Queue depth", () -> 0.25);
+        Assert.assertEquals(secondGauge.getValue(), 0.25);
+        Assert.assertEquals(metricsRegistry.toPrometheusText(), "# HELP test_queue_depth Queue depth\n"
+                + "# TYPE test_queue_depth gauge\n"
+                + "test_queue_depth 0.25\n");
+
+        metricsRegistry.unregister(firstGauge);     // Already replaced and therefore ignored
+        Assert.assertFalse(metricsRegistry.toPrometheusText().isEmpty());
+        metricsRegistry.unregister(secondGauge);
+        Assert.assertEquals(metricsRegistry.toPrometheusText(), "");
+    }
+
+    @Test
+    public void testHistogram() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        Histogram histogram = metricsRegistry.histogram("test_size_bytes", "Size",
+                Histogram.exponentialBuckets(10, 10, 2));
+        histogram.observe(5);
+        histogram.observe(10);
+        histogram.observe(50);
+        histogram.observe(5000);
+
+        Assert.assertEquals(histogram.getCount(), 4);
+        Assert.assertEquals(histogram.getSum(), 5065.0);
+        Assert.assertEquals(metricsRegistry.toPrometheusText(), "# HELP test_size_bytes Size\n"
+                + "# TYPE test_size_bytes histogram\n"
+                + "test_size_bytes_bucket{le=\"10\"} 2\n"
+                + "test_size_bytes_bucket{le=\"100\"} 3\n"
+                + "test_size_bytes_bucket{le=\"+Inf\"} 4\n"
+                + "test_size_bytes_count 4\n"
+                + "test_size_bytes_sum 5065\n");
+    }
+
+    @Test
+    public void testHistogramBucketLabels() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        metricsRegistry.histogram("test_duration_seconds", "Duration", Histogram.exponentialBuckets(0.00001, 4, 3));
+
+        Assert.assertEquals(metricsRegistry.toPrometheusText(), "# HELP test_duration_seconds Duration\n"
+                + "# TYPE test_duration_seconds histogram\n"
+                + "test_duration_seconds_bucket{le=\"0.00001\"} 0\n"
+                + "test_duration_seconds_bucket{le=\"0.00004\"} 0\n"
+                + "test_duration_seconds_bucket{le=\"0.00016\"} 0\n"
+                + "test_duration_seconds_bucket{le=\"+Inf\"} 0\n"
+                + "test_duration_seconds_count 0\n"
+                + "test_duration_seconds_sum 0\n");
+    }
+
+    @Test
+    public void testMetricsOrderedByName() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        metricsRegistry.counter("test_b_total", "B");
+        metricsRegistry.counter("test_a_total", "A");
+        String text = metricsRegistry.toPrometheusText();
+        Assert.assertTrue(text.indexOf("test_a_total") < text.indexOf("test_b_total"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRegisteringDifferentMetricTypeWithSameName() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        metricsRegistry.counter("test_metric", "Counter");
+        metricsRegistry.gauge("test_metric", "Gauge", () -> 1);
+    }
+
+    @Test
+    public void testGaugeNotReplacingDifferentMetricType() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        Counter counter = metricsRegistry.counter("test_metric", "Counter");
+        Assert.expectThrows(IllegalArgumentException.class,
+                () -> metricsRegistry.gauge("test_metric", "Gauge", () -> 1));
+        Assert.assertSame(metricsRegistry.counter("test_metric", "Counter"), counter);
+        Assert.assertTrue(metricsRegistry.toPrometheusText().contains("# TYPE test_metric counter\n"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidMetricName() {
+        new MetricsRegistry().counter("test-metric", "Invalid");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnorderedHistogramBuckets() {
+        new MetricsRegistry().histogram("test_histogram", "Histogram", new double[]{10, 1});
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import org.wso2.siddhi.core.event.ComplexEvent;
+import org.wso2.siddhi.core.event.ComplexEventChunk;
+import org.wso2.siddhi.core.event.stream.StreamEvent;
+import org.wso2.siddhi.query.api.definition.Attribute;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar storage of the retained attributes of the spans of a trace group.
+ * Each retained attribute is stored in an array of its primitive type, and string attributes are stored as indexes
+ * into a dictionary of the distinct strings of the trace. Spans are rebuilt as expired events when the trace
+ * group is released. This is not thread safe and should be guarded by the owner.
+ */
+class CompactSpanBuffer implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int DICTIONARY_INDEX_THRESHOLD = 8;
+    private static final int NULL_STRING = -1;
+    private static final int STRING_OVERHEAD_SIZE = 40;
+    private static final int DICTIONARY_INDEX_ENTRY_SIZE = 48;
+
+    private final int beforeWindowDataSize;
+    private final int onAfterWindowDataSize;
+    private final int outputDataSize;
+    private final Object[] columns;
+    private final BitSet[] nullValues;
+    private long[] timestamps;
+    private int size = 0;
+    private String[] dictionary;
+    private int dictionarySize = 0;
+    private transient Map<String, Integer> dictionaryIndex;
+
+    /**
+     * Create a compact span buffer for spans of the same shape as a span.
+     *
+     * @param layout      The retained attributes of the spans
+     * @param streamEvent A span of the trace
+     */
+    CompactSpanBuffer(CompactSpanLayout layout, StreamEvent streamEvent) {
+        beforeWindowDataSize = lengthOf(streamEvent.getBeforeWindowData());
+        onAfterWindowDataSize = lengthOf(streamEvent.getOnAfterWindowData());
+        outputDataSize = lengthOf(streamEvent.getOutputData());
+        timestamps = new long[INITIAL_CAPACITY];
+        columns = new Object[layout.getAttributeCount()];
+        nullValues = new BitSet[layout.getAttributeCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = createColumn(layout.getAttributeType(i), INITIAL_CAPACITY);
+        }
+        dictionary = new String[INITIAL_CAPACITY];
+    }
+
+    private CompactSpanBuffer(int beforeWindowDataSize, int onAfterWindowDataSize, int outputDataSize,
+                              int attributeCount) {
+        this.beforeWindowDataSize = beforeWindowDataSize;
+        this.onAfterWindowDataSize = onAfterWindowDataSize;
+        this.outputDataSize = outputDataSize;
+        columns = new Object[attributeCount];
+        nullValues = new BitSet[attributeCount];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Append the retained attributes of a span.
+     *
+     * @param layout      The retained attributes of the spans
+     * @param streamEvent The span to be appended
+     * @return The estimated number of bytes added to the buffer
+     */
+    long append(CompactSpanLayout layout, StreamEvent streamEvent) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = growColumn(columns[i], capacity);
+            }
+        }
+        long estimatedSize = Long.BYTES;
+        timestamps[size] = streamEvent.getTimestamp();
+        for (int i = 0; i < columns.length; i++) {
+            Object value = layout.read(i, streamEvent);
+            Object column = columns[i];
+            if (layout.getAttributeType(i) == Attribute.Type.STRING) {
+                int dictionarySizeBefore = dictionarySize;
+                ((int[]) column)[size] = value == null ? NULL_STRING : indexOf((String) value);
+                if (dictionarySize > dictionarySizeBefore) {
+                    estimatedSize += STRING_OVERHEAD_SIZE + 2L * ((String) value).length()
+                            + (dictionaryIndex == null ? Integer.BYTES : DICTIONARY_INDEX_ENTRY_SIZE);
+                }
+                estimatedSize += Integer.BYTES;
+            } else if (value == null) {
+                if (nullValues[i] == null) {
+                    nullValues[i] = new BitSet();
+                }
+                nullValues[i].set(size);
+                estimatedSize += Long.BYTES;
+            } else {
+                estimatedSize += setValue(column, size, value);
+            }
+        }
+        size++;
+        return estimatedSize;
+    }
+
+    /**
+     * Rebuild the spans as expired events.
+     *
+     * @param layout     The retained attributes of the spans
+     * @param eventChunk The chunk to which the rebuilt spans are added
+     */
+    void rebuild(CompactSpanLayout layout, ComplexEventChunk<StreamEvent> eventChunk) {
+        for (int i = 0; i < size; i++) {
+            StreamEvent streamEvent = new StreamEvent(beforeWindowDataSize, onAfterWindowDataSize, outputDataSize);
+            streamEvent.setTimestamp(timestamps[i]);
+            streamEvent.setType(ComplexEvent.Type.EXPIRED);
+            for (int j = 0; j < columns.length; j++) {
+                layout.write(j, streamEvent, getValue(j, layout.getAttributeType(j), i));
+            }
+            eventChunk.add(streamEvent);
+        }
+    }
+
+    /**
+     * Estimate the number of bytes held by the buffer, in the same way as they are estimated when appending spans.
+     *
+     * @param layout The retained attributes of the spans
+     * @return The estimated number of bytes
+     */
+    long estimateSize(CompactSpanLayout layout) {
+        long estimatedSize = (long) size * Long.BYTES;
+        for (int i = 0; i < dictionarySize; i++) {
+            estimatedSize += STRING_OVERHEAD_SIZE + 2L * dictionary[i].length()
+                    + (i < DICTIONARY_INDEX_THRESHOLD ? Integer.BYTES : DICTIONARY_INDEX_ENTRY_SIZE);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (layout.getAttributeType(i) == Attribute.Type.STRING) {
+                estimatedSize += (long) size * Integer.BYTES;
+            } else {
+                int nullCount = nullValues[i] == null ? 0 : nullValues[i].cardinality();
+                estimatedSize += (long) nullCount * Long.BYTES + (long) (size - nullCount) * valueSize(columns[i]);
+            }
+        }
+        return estimatedSize;
+    }
+
+    /**
+     * Write the columns and the dictionary of the buffer.
+     *
+     * @param layout The retained attributes of the spans
+     * @param out    The output to which the buffer is written
+     * @throws IOException If writing to the output failed
+     */
+    void writeTo(CompactSpanLayout layout, DataOutputStream out) throws IOException {
+        out.writeInt(beforeWindowDataSize);
+        out.writeInt(onAfterWindowDataSize);
+        out.writeInt(outputDataSize);
+        out.writeInt(columns.length);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(timestamps[i]);
+        }
+        out.writeInt(dictionarySize);
+        for (int i = 0; i < dictionarySize; i++) {
+            TraceGroupSerializer.writeString(dictionary[i], out);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            long[] nullWords = nullValues[i] == null ? new long[0] : nullValues[i].toLongArray();
+            out.writeInt(nullWords.length);
+            for (long nullWord : nullWords) {
+                out.writeLong(nullWord);
+            }
+            writeColumn(columns[i], layout.getAttributeType(i), nullValues[i], out);
+        }
+    }
+
+    /**
+     * Read a buffer written by {@link #writeTo(CompactSpanLayout, DataOutputStream)}.
+     *
+     * @param layout The retained attributes of the spans
+     * @param in     The input from which the buffer is read
+     * @return The compact span buffer
+     * @throws IOException If reading from the input failed or the buffer was written with a different layout
+     */
+    static CompactSpanBuffer readFrom(CompactSpanLayout layout, DataInputStream in) throws IOException {
+        int beforeWindowDataSize = in.readInt();
+        int onAfterWindowDataSize = in.readInt();
+        int outputDataSize = in.readInt();
+        int attributeCount = in.readInt();
+        if (attributeCount != layout.getAttributeCount()) {
+            throw new IOException("Compact spans with " + attributeCount + " retained attributes cannot be read "
+                    + "with " + layout.getAttributeCount() + " retained attributes");
+        }
+        CompactSpanBuffer buffer = new CompactSpanBuffer(beforeWindowDataSize, onAfterWindowDataSize,
+                outputDataSize, attributeCount);
+        buffer.size = in.readInt();
+        int capacity = Math.max(buffer.size, INITIAL_CAPACITY);
+        buffer.timestamps = new long[capacity];
+        for (int i = 0; i < buffer.size; i++) {
+            buffer.timestamps[i] = in.readLong();
+        }
+        buffer.dictionarySize = in.readInt();
+        buffer.dictionary = new String[Math.max(buffer.dictionarySize, INITIAL_CAPACITY)];
+        for (int i = 0; i < buffer.dictionarySize; i++) {
+            buffer.dictionary[i] = TraceGroupSerializer.readString(in);
+        }
+        if (buffer.dictionarySize > DICTIONARY_INDEX_THRESHOLD) {
+            buffer.dictionaryIndex = new HashMap<>();
+            for (int i = 0; i < buffer.dictionarySize; i++) {
+                buffer.dictionaryIndex.put(buffer.dictionary[i], i);
+            }
+        }
+        for (int i = 0; i < attributeCount; i++) {
+            long[] nullWords = new long[in.readInt()];
+            for (int j = 0; j < nullWords.length; j++) {
+                nullWords[j] = in.readLong();
+            }
+            if (nullWords.length > 0) {
+                buffer.nullValues[i] = BitSet.valueOf(nullWords);
+            }
+            buffer.columns[i] = createColumn(layout.getAttributeType(i), capacity);
+            readColumn(buffer.columns[i], buffer.size, buffer.nullValues[i], in);
+        }
+        return buffer;
+    }
+
+    private void writeColumn(Object column, Attribute.Type type, BitSet columnNullValues, DataOutputStream out)
+            throws IOException {
+        for (int i = 0; i < size; i++) {
+            if (type != Attribute.Type.STRING && columnNullValues != null && columnNullValues.get(i)) {
+                continue;
+            }
+            if (column instanceof int[]) {
+                out.writeInt(((int[]) column)[i]);
+            } else if (column instanceof long[]) {
+                out.writeLong(((long[]) column)[i]);
+            } else if (column instanceof double[]) {
+                out.writeDouble(((double[]) column)[i]);
+            } else if (column instanceof float[]) {
+                out.writeFloat(((float[]) column)[i]);
+            } else if (column instanceof boolean[]) {
+                out.writeBoolean(((boolean[]) column)[i]);
+            } else {
+                TraceGroupSerializer.writeObject(((Object[]) column)[i], out);
+            }
+        }
+    }
+
+    private static void readColumn(Object column, int size, BitSet columnNullValues, DataInputStream in)
+            throws IOException {
+        for (int i = 0; i < size; i++) {
+            if (columnNullValues != null && columnNullValues.get(i)) {
+                continue;
+            }
+            if (column instanceof int[]) {
+                ((int[]) column)[i] = in.readInt();
+            } else if (column instanceof long[]) {
+                ((long[]) column)[i] = in.readLong();
+            } else if (column instanceof double[]) {
+                ((double[]) column)[i] = in.readDouble();
+            } else if (column instanceof float[]) {
+                ((float[]) column)[i] = in.readFloat();
+            } else if (column instanceof boolean[]) {
+                ((boolean[]) column)[i] = in.readBoolean();
+            } else {
+                ((Object[]) column)[i] = TraceGroupSerializer.readObject(in);
+            }
+        }
+    }
+
+    private Object getValue(int columnIndex, Attribute.Type type, int index) {
+        Object column = columns[columnIndex];
+        if (type == Attribute.Type.STRING) {
+            int dictionaryIndex = ((int[]) column)[index];
+            return dictionaryIndex == NULL_STRING ? null : dictionary[dictionaryIndex];
+        } else if (nullValues[columnIndex] != null && nullValues[columnIndex].get(index)) {
+            return null;
+        } else if (column instanceof long[]) {
+            return ((long[]) column)[index];
+        } else if (column instanceof int[]) {
+            return ((int[]) column)[index];
+        } else if (column instanceof double[]) {
+            return ((double[]) column)[index];
+        } else if (column instanceof float[]) {
+            return ((float[]) column)[index];
+        } else if (column instanceof boolean[]) {
+            return ((boolean[]) column)[index];
+        } else {
+            return ((Object[]) column)[index];
+        }
+    }
+
+    /**
+     * Get the index of a string in the dictionary, adding it to the dictionary if it is not present.
+     * The dictionary is searched linearly until it grows large enough to be worth a hash index.
+     *
+     * @param value The string
+     * @return The index of the string in the dictionary
+     */
+    private int indexOf(String value) {
+        if (dictionaryIndex == null) {
+            for (int i = 0; i < dictionarySize; i++) {
+                if (dictionary[i].equals(value)) {
+                    return i;
+                }
+            }
+            if (dictionarySize >= DICTIONARY_INDEX_THRESHOLD) {
+                dictionaryIndex = new HashMap<>();
+                for (int i = 0; i < dictionarySize; i++) {
+                    dictionaryIndex.put(dictionary[i], i);
+                }
+            }
+        } else {
+            Integer index = dictionaryIndex.get(value);
+            if (index != null) {
+                return index;
+            }
+        }
+        if (dictionarySize == dictionary.length) {
+            dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+        }
+        dictionary[dictionarySize] = value;
+        if (dictionaryIndex != null) {
+            dictionaryIndex.put(value, dictionarySize);
+        }
+        return dictionarySize++;
+    }
+
+    private static Object createColumn(Attribute.Type type, int capacity) {
+        switch (type) {
+            case STRING:
+            case INT:
+                return new int[capacity];
+            case LONG:
+                return new long[capacity];
+            case DOUBLE:
+                return new double[capacity];
+            case FLOAT:
+                return new float[capacity];
+            case BOOL:
+                return new boolean[capacity];
+            default:
+                return new Object[capacity];
+        }
+    }
+
+    private static Object growColumn(Object column, int capacity) {
+        if (column instanceof int[]) {
+            return Arrays.copyOf((int[]) column, capacity);
+        } else if (column instanceof long[]) {
+            return Arrays.copyOf((long[]) column, capacity);
+        } else if (column instanceof double[]) {
+            return Arrays.copyOf((double[]) column, capacity);
+        } else if (column instanceof float[]) {
+            return Arrays.copyOf((float[]) column, capacity);
+        } else if (column instanceof boolean[]) {
+            return Arrays.copyOf((boolean[]) column, capacity);
+        } else {
+            return Arrays.copyOf((Object[]) column, capacity);
+        }
+    }
+
+    /**
+     * Set a non null value in a column.
+     *
+     * @return The estimated number of bytes used by the value
+     */
+    private static int setValue(Object column, int index, Object value) {
+        if (column instanceof int[]) {
+            ((int[]) column)[index] = (Integer) value;
+            return Integer.BYTES;
+        } else if (column instanceof long[]) {
+            ((long[]) column)[index] = (Long) value;
+            return Long.BYTES;
+        } else if (column instanceof double[]) {
+            ((double[]) column)[index] = (Double) value;
+            return Double.BYTES;
+        } else if (column instanceof float[]) {
+            ((float[]) column)[index] = (Float) value;
+            return Float.BYTES;
+        } else if (column instanceof boolean[]) {
+            ((boolean[]) column)[index] = (Boolean) value;
+            return 1;
+        } else {
+            ((Object[]) column)[index] = value;
+            return Long.BYTES;
+        }
+    }
+
+    /**
+     * Get the estimated number of bytes used by a non null value in a column.
+     */
+    private static int valueSize(Object column) {
+        if (column instanceof int[] || column instanceof float[]) {
+            return Integer.BYTES;
+        } else if (column instanceof boolean[]) {
+            return 1;
+        } else {
+            return Long.BYTES;
+        }
+    }
+
+    private static int lengthOf(Object[] data) {
+        return data == null ? 0 : data.length;
+    }
+}
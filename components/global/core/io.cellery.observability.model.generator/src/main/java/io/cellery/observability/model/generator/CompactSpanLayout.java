@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import org.wso2.siddhi.core.event.stream.StreamEvent;
+import org.wso2.siddhi.core.executor.VariableExpressionExecutor;
+import org.wso2.siddhi.query.api.definition.Attribute;
+
+import java.util.List;
+
+/**
+ * The attributes of the spans retained by the trace group window when spans are stored compactly.
+ * Attributes which are not retained are not available in the expired events released by the window.
+ */
+class CompactSpanLayout {
+
+    private final VariableExpressionExecutor[] attributeExecutors;
+
+    CompactSpanLayout(List<VariableExpressionExecutor> attributeExecutors) {
+        this.attributeExecutors = attributeExecutors.toArray(new VariableExpressionExecutor[0]);
+    }
+
+    int getAttributeCount() {
+        return attributeExecutors.length;
+    }
+
+    Attribute.Type getAttributeType(int attributeIndex) {
+        return attributeExecutors[attributeIndex].getReturnType();
+    }
+
+    /**
+     * Read a retained attribute of a span.
+     *
+     * @param attributeIndex The index of the retained attribute
+     * @param streamEvent    The span
+     * @return The value of the attribute
+     */
+    Object read(int attributeIndex, StreamEvent streamEvent) {
+        return attributeExecutors[attributeIndex].execute(streamEvent);
+    }
+
+    /**
+     * Write a retained attribute to a span rebuilt from the compact storage.
+     *
+     * @param attributeIndex The index of the retained attribute
+     * @param streamEvent    The span
+     * @param value          The value of the attribute
+     */
+    void write(int attributeIndex, StreamEvent streamEvent, Object value) {
+        streamEvent.setAttribute(value, attributeExecutors[attributeIndex].getPosition());
+    }
+}
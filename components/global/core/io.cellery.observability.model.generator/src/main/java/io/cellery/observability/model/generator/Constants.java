@@ -25,4 +25,25 @@ public class Constants {
     public static final String LINK_SEPARATOR = "##";
     public static final String CELL_COMPONENT_NAME_SEPARATOR = ":";
     public static final String IGNORE_OPERATION_NAME = "async ";
+
+    public static final String TRACE_GROUP_WINDOW_SHARDS_KEY = "shards";
+    public static final String TRACE_GROUP_WINDOW_EXPIRY_TICK_KEY = "expiry.tick";
+    public static final String TRACE_GROUP_WINDOW_MAX_TRACES_KEY = "max.traces";
+    public static final String TRACE_GROUP_WINDOW_MAX_SPANS_PER_TRACE_KEY = "max.spans.per.trace";
+    public static final String TRACE_GROUP_WINDOW_MAX_BYTES_KEY = "max.bytes";
+    public static final String DEFAULT_TRACE_GROUP_WINDOW_SHARDS = "16";
+    public static final String DEFAULT_TRACE_GROUP_WINDOW_EXPIRY_TICK = "100";
+    public static final String DEFAULT_TRACE_GROUP_WINDOW_MAX_TRACES = "100000";
+    public static final String DEFAULT_TRACE_GROUP_WINDOW_MAX_SPANS_PER_TRACE = "10000";
+    public static final String DEFAULT_TRACE_GROUP_WINDOW_MAX_BYTES = "0";
+
+    public static final String MODEL_GENERATOR_EXTRACTION_THREADS_KEY = "extraction.threads";
+    public static final String MODEL_GENERATOR_EXTRACTION_QUEUE_SIZE_KEY = "extraction.queue.size";
+    public static final String DEFAULT_MODEL_GENERATOR_EXTRACTION_THREADS = "4";
+    public static final String DEFAULT_MODEL_GENERATOR_EXTRACTION_QUEUE_SIZE = "1000";
+    public static final String MODEL_GENERATOR_PERSIST_INTERVAL_KEY = "persist.interval";
+    public static final String MODEL_GENERATOR_PERSIST_MAX_DELAY_KEY = "persist.max.delay";
+    public static final String DEFAULT_MODEL_GENERATOR_PERSIST_INTERVAL = "1000";
+    public static final String DEFAULT_MODEL_GENERATOR_PERSIST_MAX_DELAY = "10000";
+    public static final long MODEL_GENERATOR_SHUTDOWN_TIMEOUT_SECONDS = 5;
 }
@@ -17,11 +17,16 @@
  */
 package io.cellery.observability.model.generator;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cellery.observability.metrics.Counter;
+import io.cellery.observability.metrics.Gauge;
+import io.cellery.observability.metrics.MetricsRegistry;
 import io.cellery.observability.model.generator.internal.ServiceHolder;
 import io.cellery.observability.model.generator.model.SpanInfo;
 import org.apache.log4j.Logger;
 import org.wso2.siddhi.annotation.Example;
 import org.wso2.siddhi.annotation.Extension;
+import org.wso2.siddhi.annotation.SystemParameter;
 import org.wso2.siddhi.core.config.SiddhiAppContext;
 import org.wso2.siddhi.core.event.ComplexEvent;
 import org.wso2.siddhi.core.event.ComplexEventChunk;
@@ -40,12 +45,20 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is the Siddhi extension which generates the dependency graph for the spans created.
+ * The expired trace groups are walked by a pool of extraction threads, so that the Siddhi thread releasing the
+ * trace groups is not held up by building the dependency graph.
+ * The dependency model is persisted periodically once the traces stop changing it, instead of after every trace.
  */
 @Extension(
         name = "modelGenerator",
@@ -56,11 +69,38 @@ import java.util.Set;
                 , syntax = "observe:modelGenerator(cell, serviceName, operationName, spanId, parentId, kind, traceId, "
                 + "startTime)\n"
                 + "select * \n"
-                + "insert into outputStream;")
+                + "insert into outputStream;"),
+        systemParameter = {
+                @SystemParameter(name = "extraction.threads",
+                        description = "The number of threads which extract the dependencies from the expired "
+                                + "traces in parallel. If this is zero the dependencies are extracted in the Siddhi "
+                                + "thread which expired the traces.",
+                        defaultValue = Constants.DEFAULT_MODEL_GENERATOR_EXTRACTION_THREADS,
+                        possibleParameters = "Any non negative integer"),
+                @SystemParameter(name = "extraction.queue.size",
+                        description = "The maximum number of expired traces waiting to be extracted. The Siddhi "
+                                + "thread expiring the traces extracts the dependencies itself when this is full.",
+                        defaultValue = Constants.DEFAULT_MODEL_GENERATOR_EXTRACTION_QUEUE_SIZE,
+                        possibleParameters = "Any positive integer"),
+                @SystemParameter(name = "persist.interval",
+                        description = "The interval in milliseconds at which the changes to the dependency model "
+                                + "are persisted. The model is persisted once an interval passes without any "
+                                + "changes. If this is zero the model is persisted after every trace.",
+                        defaultValue = Constants.DEFAULT_MODEL_GENERATOR_PERSIST_INTERVAL,
+                        possibleParameters = "Any non negative integer"),
+                @SystemParameter(name = "persist.max.delay",
+                        description = "The maximum time in milliseconds a change to the dependency model waits to "
+                                + "be persisted while the model keeps changing.",
+                        defaultValue = Constants.DEFAULT_MODEL_GENERATOR_PERSIST_MAX_DELAY,
+                        possibleParameters = "Any non negative integer")
+        }
 )
 public class ModelGenerationExtension extends StreamProcessor {
 
     private static final Logger log = Logger.getLogger(ModelGenerationExtension.class);
+    private static final Counter ROOTLESS_TRACES_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_model_generator_rootless_traces_total",
+            "Total number of expired trace groups without a root span, whose dependencies were not extracted");
 
     private ExpressionExecutor cellNameExecutor;
     private ExpressionExecutor serviceNameExecutor;
@@ -70,6 +110,13 @@ public class ModelGenerationExtension extends StreamProcessor {
     private ExpressionExecutor parentIdExecutor;
     private ExpressionExecutor spanKindExecutor;
     private ExpressionExecutor startTimeExecutor;
+    private int extractionThreads;
+    private int extractionQueueSize;
+    private volatile ThreadPoolExecutor extractionExecutor;
+    private Gauge extractionQueueDepthGauge;
+    private long persistInterval;
+    private long persistMaxDelay;
+    private volatile ModelPersister modelPersister;
 
     @Override
     protected void process(ComplexEventChunk<StreamEvent> complexEventChunk, Processor processor,
@@ -77,10 +124,8 @@ public class ModelGenerationExtension extends StreamProcessor {
         try {
             if (complexEventChunk.getFirst() != null && complexEventChunk.getFirst().getType().
                     equals(ComplexEvent.Type.EXPIRED)) {
-                Map<String, List<SpanInfo>> spanCache = new HashMap<>();
-                String traceId = null;
-                List<SpanInfo> rootSpans = new ArrayList<>();
-                int totalSpans = 0;
+                // The expired events could contain the spans of multiple traces released together
+                Map<String, TraceSpans> traces = new LinkedHashMap<>();
                 while (complexEventChunk.hasNext()) {
                     StreamEvent streamEvent = complexEventChunk.next();
                     String cellName = (String) cellNameExecutor.execute(streamEvent);
@@ -90,40 +135,65 @@ public class ModelGenerationExtension extends StreamProcessor {
                     String parentId = (String) parentIdExecutor.execute(streamEvent);
                     String kind = (String) spanKindExecutor.execute(streamEvent);
                     Long startTime = (Long) startTimeExecutor.execute(streamEvent);
-                    if (traceId == null) {
-                        traceId = (String) traceIdExecutor.execute(streamEvent);
-                    }
+                    String traceId = (String) traceIdExecutor.execute(streamEvent);
                     if (kind == null || kind.isEmpty()) {
                         kind = SpanInfo.Kind.NONE.name();
                     }
                     SpanInfo spanInfo = new SpanInfo(cellName, serviceName, operationName, spanId, parentId,
                             SpanInfo.Kind.valueOf(kind), startTime);
-                    List<SpanInfo> childNodes = spanCache.computeIfAbsent(parentId, k -> new ArrayList<>());
-                    childNodes.add(spanInfo);
-                    spanCache.putIfAbsent(parentId, childNodes);
-                    if (spanId.equalsIgnoreCase(traceId)) {
-                        rootSpans.add(spanInfo);
+                    traces.computeIfAbsent(traceId, TraceSpans::new).add(spanInfo);
+                }
+                for (TraceSpans trace : traces.values()) {
+                    if (extractionExecutor == null) {
+                        extractDependencies(trace);
+                    } else {
+                        extractionExecutor.execute(() -> extractDependencies(trace));
                     }
-                    totalSpans++;
                 }
-                if (!rootSpans.isEmpty()) {
-                    addPossibleLinkForRootSpans(rootSpans);
-                    Set<SpanInfo> rootCellSpans = findRootCellSpan(rootSpans, spanCache);
-                    traceWalk(rootCellSpans, spanCache);
+            } else {
+                processor.process(complexEventChunk);
+            }
+        } catch (Throwable throwable) {
+            log.error("Unexpected error occured while processing the event in the model processor.", throwable);
+        }
+    }
+
+    /**
+     * Walk the spans of a trace and merge the extracted dependencies into the dependency model.
+     * This can be called concurrently for different traces.
+     *
+     * @param trace The spans of the trace
+     */
+    private void extractDependencies(TraceSpans trace) {
+        try {
+            if (!trace.rootSpans.isEmpty()) {
+                TraceDependencies traceDependencies = new TraceDependencies();
+                addPossibleLinkForRootSpans(trace.rootSpans, traceDependencies);
+                Set<SpanInfo> rootCellSpans = findRootCellSpan(trace.rootSpans, trace.spanCache);
+                traceWalk(rootCellSpans, trace.spanCache, traceDependencies);
+                ServiceHolder.getModelManager().merge(traceDependencies);
+                ModelPersister persister = modelPersister;
+                if (persister == null) {
                     ServiceHolder.getModelStoreManager().storeCurrentModel();
                 } else {
-                    log.warn("Root span was not detected for the trace: " + traceId +
-                            ", total parents spans cache: " + spanCache.size() + " , totalSpans: " + totalSpans);
+                    persister.markChanged();
                 }
             } else {
-                processor.process(complexEventChunk);
+                // Expected for the spans received after their trace was released by the trace group window
+                ROOTLESS_TRACES_COUNTER.increment();
+                if (log.isDebugEnabled()) {
+                    log.debug("Root span was not detected for the trace: " + trace.traceId +
+                            ", total parents spans cache: " + trace.spanCache.size() + " , totalSpans: "
+                            + trace.totalSpans);
+                }
             }
         } catch (Throwable throwable) {
-            log.error("Unexpected error occured while processing the event in the model processor.", throwable);
+            log.error("Unexpected error occured while extracting the dependencies of the trace: "
+                    + trace.traceId, throwable);
         }
     }
 
-    private void addPossibleLinkForRootSpans(List<SpanInfo> spans) {
+    private void addPossibleLinkForRootSpans(List<SpanInfo> spans, TraceDependencies traceDependencies) {
         Collections.sort(spans);
         for (int i = 0; i < spans.size(); i++) {
             SpanInfo spanInfo = spans.get(i);
@@ -134,13 +204,10 @@ public class ModelGenerationExtension extends StreamProcessor {
                         !spanInfo.getOperationName().startsWith(Constants.IGNORE_OPERATION_NAME))
                         && (childSpanInfo.getCellName() != null && !childSpanInfo.getCellName().isEmpty() &&
                         !childSpanInfo.getOperationName().startsWith(Constants.IGNORE_OPERATION_NAME))) {
-                    Node cellParentNode = ServiceHolder.getModelManager().getOrGenerateNode(spanInfo.getCellName());
-                    Node cellChildNode = ServiceHolder.getModelManager().getOrGenerateNode(childSpanInfo.getCellName());
-                    if (!cellParentNode.equals(cellChildNode) || !spanInfo.getComponentName().
-                            equalsIgnoreCase(childSpanInfo.getComponentName())) {
-                        cellChildNode.addComponent(childSpanInfo.getComponentName());
-                        ServiceHolder.getModelManager().addNode(cellChildNode);
-                        ServiceHolder.getModelManager().addLink(cellParentNode, cellChildNode,
+                    if (!spanInfo.getCellName().equalsIgnoreCase(childSpanInfo.getCellName()) || !spanInfo.
+                            getComponentName().equalsIgnoreCase(childSpanInfo.getComponentName())) {
+                        traceDependencies.addNode(childSpanInfo.getCellName(), childSpanInfo.getComponentName());
+                        traceDependencies.addLink(spanInfo.getCellName(), childSpanInfo.getCellName(),
                                 Utils.generateServiceName(spanInfo.getComponentName(),
                                         childSpanInfo.getComponentName()));
                     }
@@ -183,22 +250,22 @@ public class ModelGenerationExtension extends StreamProcessor {
         return parents;
     }
 
-    private void traceWalk(Set<SpanInfo> rootSpans, Map<String, List<SpanInfo>> spanInfoMap) {
+    private void traceWalk(Set<SpanInfo> rootSpans, Map<String, List<SpanInfo>> spanInfoMap,
+                           TraceDependencies traceDependencies) {
         for (SpanInfo rootSpan : rootSpans) {
-            Node parentNode = ServiceHolder.getModelManager().getOrGenerateNode(rootSpan.getCellName());
-            parentNode.addComponent(rootSpan.getComponentName());
-            ServiceHolder.getModelManager().addNode(parentNode);
+            traceDependencies.addNode(rootSpan.getCellName(), rootSpan.getComponentName());
             if (spanInfoMap.get(rootSpan.getSpanId()) != null) {
-                Set<SpanInfo> linkedChildren = goDepth(parentNode, rootSpan, spanInfoMap);
+                Set<SpanInfo> linkedChildren = goDepth(rootSpan.getCellName(), rootSpan, spanInfoMap,
+                        traceDependencies);
                 if (!linkedChildren.isEmpty()) {
-                    traceWalk(linkedChildren, spanInfoMap);
+                    traceWalk(linkedChildren, spanInfoMap, traceDependencies);
                 }
             }
         }
     }
 
-    private Set<SpanInfo> goDepth(Node cellParentNode, SpanInfo parentSpanInfo, Map<String,
-            List<SpanInfo>> spanInfoMap) {
+    private Set<SpanInfo> goDepth(String parentCellName, SpanInfo parentSpanInfo, Map<String,
+            List<SpanInfo>> spanInfoMap, TraceDependencies traceDependencies) {
         List<SpanInfo> childSpanInfoList = spanInfoMap.get(parentSpanInfo.getSpanId());
         Set<SpanInfo> linkedChildren = new HashSet<>();
         if (childSpanInfoList != null) {
@@ -211,17 +278,16 @@ public class ModelGenerationExtension extends StreamProcessor {
                 }
                 if (childSpanInfo.getCellName() != null && !childSpanInfo.getCellName().isEmpty() &&
                         !childSpanInfo.getOperationName().startsWith(Constants.IGNORE_OPERATION_NAME)) {
-                    Node childNode = ServiceHolder.getModelManager().getOrGenerateNode(childSpanInfo.getCellName());
-                    if (!childNode.equals(cellParentNode) || !parentSpanInfo.getComponentName().
-                            equalsIgnoreCase(childSpanInfo.getComponentName())) {
-                        childNode.addComponent(childSpanInfo.getComponentName());
-                        ServiceHolder.getModelManager().addNode(childNode);
-                        ServiceHolder.getModelManager().addLink(cellParentNode, childNode, Utils.generateServiceName(
-                                parentSpanInfo.getComponentName(), childSpanInfo.getComponentName()));
+                    if (!childSpanInfo.getCellName().equalsIgnoreCase(parentCellName) || !parentSpanInfo.
+                            getComponentName().equalsIgnoreCase(childSpanInfo.getComponentName())) {
+                        traceDependencies.addNode(childSpanInfo.getCellName(), childSpanInfo.getComponentName());
+                        traceDependencies.addLink(parentCellName, childSpanInfo.getCellName(),
+                                Utils.generateServiceName(parentSpanInfo.getComponentName(),
+                                        childSpanInfo.getComponentName()));
                         linkedChildren.add(childSpanInfo);
                     }
                 } else {
-                    goDepth(cellParentNode, childSpanInfo, spanInfoMap);
+                    goDepth(parentCellName, childSpanInfo, spanInfoMap, traceDependencies);
                 }
             }
         }
@@ -294,17 +360,85 @@ public class ModelGenerationExtension extends StreamProcessor {
                         + expressionExecutors[7].getReturnType());
             }
         }
+        extractionThreads = readConfig(configReader, Constants.MODEL_GENERATOR_EXTRACTION_THREADS_KEY,
+                Constants.DEFAULT_MODEL_GENERATOR_EXTRACTION_THREADS, 0);
+        extractionQueueSize = readConfig(configReader, Constants.MODEL_GENERATOR_EXTRACTION_QUEUE_SIZE_KEY,
+                Constants.DEFAULT_MODEL_GENERATOR_EXTRACTION_QUEUE_SIZE, 1);
+        persistInterval = readConfig(configReader, Constants.MODEL_GENERATOR_PERSIST_INTERVAL_KEY,
+                Constants.DEFAULT_MODEL_GENERATOR_PERSIST_INTERVAL, 0);
+        persistMaxDelay = readConfig(configReader, Constants.MODEL_GENERATOR_PERSIST_MAX_DELAY_KEY,
+                Constants.DEFAULT_MODEL_GENERATOR_PERSIST_MAX_DELAY, 0);
         return new ArrayList<>();
     }
 
+    private int readConfig(ConfigReader configReader, String key, String defaultValue, int minValue) {
+        String valueString = configReader.readConfig(key, defaultValue);
+        int value;
+        try {
+            value = Integer.parseInt(valueString);
+        } catch (NumberFormatException e) {
+            throw new SiddhiAppCreationException("Expected an integer for the " + key + " configuration, but found "
+                    + valueString, e);
+        }
+        if (value < minValue) {
+            throw new SiddhiAppCreationException("Expected a value not less than " + minValue + " for the " + key
+                    + " configuration, but found " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Start the extraction threads and the periodic persistence of the dependency model.
+     * Traces are extracted by the Siddhi thread itself when the extraction queue is full, which slows down the
+     * expiry of the traces instead of dropping them. This also applies to the traces expiring while the extension
+     * is being stopped, since the caller runs policy would have discarded them after the shutdown.
+     */
     @Override
     public void start() {
-
+        if (extractionThreads > 0) {
+            BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(extractionQueueSize);
+            extractionExecutor = new ThreadPoolExecutor(extractionThreads, extractionThreads, 0L,
+                    TimeUnit.MILLISECONDS, queue, new ThreadFactoryBuilder()
+                    .setNameFormat("model-generator-extractor-%d")
+                    .setDaemon(true)
+                    .build(), (task, executor) -> task.run());
+            extractionQueueDepthGauge = MetricsRegistry.getDefault().gauge(
+                    "cellery_model_generator_extraction_queue_depth",
+                    "Number of expired traces waiting for their dependencies to be extracted", queue::size);
+        }
+        if (persistInterval > 0) {
+            modelPersister = new ModelPersister(persistInterval, persistMaxDelay);
+            modelPersister.start();
+        }
     }
 
+    /**
+     * Stop the extraction threads and the periodic persistence of the dependency model.
+     * The traces already queued are extracted, and the changes not yet persisted are persisted before stopping.
+     */
     @Override
     public void stop() {
-
+        if (extractionExecutor != null) {
+            extractionExecutor.shutdown();
+            try {
+                if (!extractionExecutor.awaitTermination(
+                        Constants.MODEL_GENERATOR_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    extractionExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                extractionExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            extractionExecutor = null;
+        }
+        if (modelPersister != null) {
+            modelPersister.stop();
+            modelPersister = null;
+        }
+        if (extractionQueueDepthGauge != null) {
+            MetricsRegistry.getDefault().unregister(extractionQueueDepthGauge);
+            extractionQueueDepthGauge = null;
+        }
     }
 
     @Override
@@ -316,4 +450,26 @@ public class ModelGenerationExtension extends StreamProcessor {
     public void restoreState(Map<String, Object> map) {
 
     }
+
+    /**
+     * The spans of a trace indexed by their parent span ids.
+     */
+    private static class TraceSpans {
+        private final String traceId;
+        private final Map<String, List<SpanInfo>> spanCache = new HashMap<>();
+        private final List<SpanInfo> rootSpans = new ArrayList<>();
+        private int totalSpans = 0;
+
+        private TraceSpans(String traceId) {
+            this.traceId = traceId;
+        }
+
+        private void add(SpanInfo spanInfo) {
+            spanCache.computeIfAbsent(spanInfo.getParentId(), k -> new ArrayList<>()).add(spanInfo);
+            if (spanInfo.getSpanId().equalsIgnoreCase(traceId)) {
+                rootSpans.add(spanInfo);
+            }
+            totalSpans++;
+        }
+    }
 }
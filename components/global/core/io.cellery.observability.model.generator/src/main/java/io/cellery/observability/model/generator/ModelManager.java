@@ -34,6 +34,7 @@ import java.util.Set;
 
 /**
  * This is the Manager, singleton class which performs the operations in the in memory dependency tree.
+ * The dependency tree is guarded by this manager, since the dependencies of traces are merged into it in parallel.
  */
 public class ModelManager {
     private MutableNetwork<Node, String> dependencyGraph;
@@ -85,7 +86,7 @@ public class ModelManager {
         }
     }
 
-    public Node getNode(String nodeName) {
+    public synchronized Node getNode(String nodeName) {
         Node cachedNode = nodeCache.get(nodeName);
         if (cachedNode == null) {
             Set<Node> nodes = this.dependencyGraph.nodes();
@@ -100,7 +101,7 @@ public class ModelManager {
         return cachedNode;
     }
 
-    public Node getOrGenerateNode(String nodeName) {
+    public synchronized Node getOrGenerateNode(String nodeName) {
         Node cachedNode = nodeCache.get(nodeName);
         if (cachedNode == null) {
             Set<Node> nodes = this.dependencyGraph.nodes();
@@ -117,12 +118,31 @@ public class ModelManager {
     }
 
 
-    public void addNode(Node node) {
+    public synchronized void addNode(Node node) {
         this.dependencyGraph.addNode(node);
         this.nodeCache.put(node.getId(), node);
     }
 
-    public void addLink(Node parent, Node child, String serviceName) {
+    /**
+     * Merge the nodes and links extracted from a trace into the dependency tree.
+     *
+     * @param traceDependencies The nodes and links extracted from the trace
+     */
+    synchronized void merge(TraceDependencies traceDependencies) {
+        for (Map.Entry<String, Set<String>> nodeComponents : traceDependencies.getNodeComponents().entrySet()) {
+            Node node = getOrGenerateNode(nodeComponents.getKey());
+            for (String component : nodeComponents.getValue()) {
+                node.addComponent(component);
+            }
+            addNode(node);
+        }
+        for (TraceDependencies.Link link : traceDependencies.getLinks()) {
+            addLink(getOrGenerateNode(link.getParentNodeName()), getOrGenerateNode(link.getChildNodeName()),
+                    link.getServiceName());
+        }
+    }
+
+    public synchronized void addLink(Node parent, Node child, String serviceName) {
         try {
             if (!parent.equals(child)) {
                 this.dependencyGraph.addEdge(parent, child, Utils.generateEdgeName(parent.getId(), child.getId(),
@@ -138,9 +158,38 @@ public class ModelManager {
         return dependencyGraph;
     }
 
+    /**
+     * Copy the nodes of the dependency tree.
+     * The copies can be read without holding this manager while the dependencies of traces are merged.
+     *
+     * @return The copies of the nodes
+     */
+    public synchronized Set<Node> copyNodes() {
+        Set<Node> nodes = new HashSet<>(this.dependencyGraph.nodes().size());
+        for (Node node : this.dependencyGraph.nodes()) {
+            Node nodeCopy = new Node(node.getId());
+            nodeCopy.getComponents().addAll(node.getComponents());
+            nodeCopy.getEdges().addAll(node.getEdges());
+            nodes.add(nodeCopy);
+        }
+        return nodes;
+    }
+
+    /**
+     * Copy the edges of the dependency tree.
+     *
+     * @return The copies of the edge names
+     */
+    public synchronized Set<String> copyEdges() {
+        return new HashSet<>(this.dependencyGraph.edges());
+    }
+
     public Model getGraph(long fromTime, long toTime) throws GraphStoreException {
         if (fromTime == 0 && toTime == 0) {
-            return new Model(this.dependencyGraph.nodes(), Utils.getEdges(this.dependencyGraph.edges()));
+            synchronized (this) {
+                return new Model(new HashSet<>(this.dependencyGraph.nodes()),
+                        Utils.getEdges(new HashSet<>(this.dependencyGraph.edges())));
+            }
         } else {
             if (toTime == 0) {
                 toTime = System.currentTimeMillis();
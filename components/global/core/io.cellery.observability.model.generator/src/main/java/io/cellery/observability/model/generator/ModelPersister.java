@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cellery.observability.model.generator.internal.ServiceHolder;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Periodic persistence of the dependency model once it is changed by the traces.
+ * The model is persisted when it did not change during the last interval, or when the oldest change not yet
+ * persisted had waited for the maximum delay, so that at most one model is persisted per interval.
+ */
+class ModelPersister {
+
+    private static final Logger log = Logger.getLogger(ModelPersister.class);
+    private static final long NO_UNPERSISTED_CHANGE = -1;
+
+    private final long interval;
+    private final long maxDelay;
+    private final LongSupplier currentTimeSupplier;
+    private final AtomicBoolean modelChanged = new AtomicBoolean(false);
+    private long firstUnpersistedChangeTime = NO_UNPERSISTED_CHANGE;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean stopped = false;
+
+    /**
+     * Create a model persister.
+     *
+     * @param interval The interval in milliseconds at which the changes are checked
+     * @param maxDelay The maximum time in milliseconds a change waits to be persisted while the model keeps changing
+     */
+    ModelPersister(long interval, long maxDelay) {
+        this(interval, maxDelay, System::currentTimeMillis);
+    }
+
+    ModelPersister(long interval, long maxDelay, LongSupplier currentTimeSupplier) {
+        this.interval = interval;
+        this.maxDelay = maxDelay;
+        this.currentTimeSupplier = currentTimeSupplier;
+    }
+
+    /**
+     * Record that the dependency model had been changed.
+     * The change is persisted immediately once this is stopped.
+     */
+    void markChanged() {
+        modelChanged.set(true);
+        if (stopped) {
+            persistIfChanged(true);
+        }
+    }
+
+    /**
+     * Persist the dependency model if it had been changed and the changes are due to be persisted.
+     * Changes which failed to be persisted are persisted again in the next interval.
+     *
+     * @param force True if the changes should be persisted without waiting
+     */
+    synchronized void persistIfChanged(boolean force) {
+        try {
+            long currentTime = currentTimeSupplier.getAsLong();
+            boolean changedInInterval = modelChanged.getAndSet(false);
+            if (changedInInterval && firstUnpersistedChangeTime == NO_UNPERSISTED_CHANGE) {
+                firstUnpersistedChangeTime = currentTime;
+            }
+            if (firstUnpersistedChangeTime != NO_UNPERSISTED_CHANGE && (force || !changedInInterval
+                    || currentTime - firstUnpersistedChangeTime >= maxDelay)) {
+                ServiceHolder.getModelStoreManager().storeCurrentModel();
+                firstUnpersistedChangeTime = NO_UNPERSISTED_CHANGE;
+            }
+        } catch (Throwable throwable) {
+            log.error("Unexpected error occured while persisting the dependency model. The model will be "
+                    + "persisted again in the next interval.", throwable);
+        }
+    }
+
+    /**
+     * Start checking the changes periodically.
+     */
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("model-generator-persister-%d")
+                .setDaemon(true)
+                .build());
+        scheduler.scheduleWithFixedDelay(() -> persistIfChanged(false), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop checking the changes periodically, and persist the changes not yet persisted.
+     */
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                if (!scheduler.awaitTermination(Constants.MODEL_GENERATOR_SHUTDOWN_TIMEOUT_SECONDS,
+                        TimeUnit.SECONDS)) {
+                    scheduler.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                scheduler.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        stopped = true;
+        persistIfChanged(true);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import org.wso2.siddhi.core.event.stream.StreamEvent;
+import org.wso2.siddhi.core.executor.VariableExpressionExecutor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Heuristic for detecting traces which had received all their spans.
+ * A trace is considered complete when its root span had been received and the parents of all its spans had been
+ * received. Complete traces are released after a grace period without new spans instead of the idle time gap.
+ */
+class TraceCompletion {
+
+    private final VariableExpressionExecutor spanIdExecutor;
+    private final VariableExpressionExecutor parentIdExecutor;
+    private final long gracePeriod;
+
+    TraceCompletion(VariableExpressionExecutor spanIdExecutor, VariableExpressionExecutor parentIdExecutor,
+                    long gracePeriod) {
+        this.spanIdExecutor = spanIdExecutor;
+        this.parentIdExecutor = parentIdExecutor;
+        this.gracePeriod = gracePeriod;
+    }
+
+    /**
+     * Record a span of a trace and calculate the time at which the trace can be released.
+     *
+     * @param traceGroup     The trace group to which the span was added
+     * @param streamEvent    The span
+     * @param eventTimestamp The timestamp of the span
+     * @param idleTimeGap    The idle time gap after which incomplete traces are released
+     * @return The end timestamp of the trace group
+     */
+    long update(TraceGroup traceGroup, StreamEvent streamEvent, long eventTimestamp, long idleTimeGap) {
+        State state = traceGroup.getCompletionState();
+        if (state == null) {
+            state = new State();
+            traceGroup.setCompletionState(state);
+        }
+        String spanId = (String) spanIdExecutor.execute(streamEvent);
+        String parentId = (String) parentIdExecutor.execute(streamEvent);
+        state.add(traceGroup.getKey(), spanId, parentId, eventTimestamp);
+        return state.latestTimestamp + (state.isComplete() ? gracePeriod : idleTimeGap);
+    }
+
+    /**
+     * The spans received for a trace.
+     */
+    static class State implements Serializable {
+        private final Set<String> spanIds = new HashSet<>();
+        private final Set<String> unresolvedParentIds = new HashSet<>();
+        private boolean rootReceived = false;
+        private long latestTimestamp = Long.MIN_VALUE;
+
+        private void add(String traceId, String spanId, String parentId, long eventTimestamp) {
+            latestTimestamp = Math.max(latestTimestamp, eventTimestamp);
+            if (spanId != null) {
+                spanIds.add(spanId);
+                unresolvedParentIds.remove(spanId);
+            }
+            if (parentId == null || parentId.isEmpty() || (spanId != null && spanId.equalsIgnoreCase(traceId))) {
+                rootReceived = true;
+            } else if (!spanIds.contains(parentId)) {
+                unresolvedParentIds.add(parentId);
+            }
+        }
+
+        boolean isComplete() {
+            return rootReceived && unresolvedParentIds.isEmpty();
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeBoolean(rootReceived);
+            out.writeLong(latestTimestamp);
+            writeIds(spanIds, out);
+            writeIds(unresolvedParentIds, out);
+        }
+
+        static State readFrom(DataInputStream in) throws IOException {
+            State state = new State();
+            state.rootReceived = in.readBoolean();
+            state.latestTimestamp = in.readLong();
+            readIds(state.spanIds, in);
+            readIds(state.unresolvedParentIds, in);
+            return state;
+        }
+
+        private static void writeIds(Set<String> ids, DataOutputStream out) throws IOException {
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                TraceGroupSerializer.writeString(id, out);
+            }
+        }
+
+        private static void readIds(Set<String> ids, DataInputStream in) throws IOException {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                ids.add(TraceGroupSerializer.readString(in));
+            }
+        }
+    }
+}
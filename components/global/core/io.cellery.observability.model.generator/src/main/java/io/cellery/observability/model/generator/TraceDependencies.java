@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The nodes and links extracted from a single trace.
+ * These are collected without touching the dependency model, so that traces can be walked in parallel, and are
+ * merged into the dependency model at once.
+ */
+class TraceDependencies {
+
+    private final Map<String, Set<String>> nodeComponents = new LinkedHashMap<>();
+    private final List<Link> links = new ArrayList<>();
+
+    /**
+     * Add a component of a node.
+     *
+     * @param nodeName  The name of the node
+     * @param component The component of the node
+     */
+    void addNode(String nodeName, String component) {
+        nodeComponents.computeIfAbsent(nodeName, k -> new HashSet<>()).add(component);
+    }
+
+    /**
+     * Add a link between two nodes.
+     *
+     * @param parentNodeName The name of the parent node
+     * @param childNodeName  The name of the child node
+     * @param serviceName    The name of the link between the components of the nodes
+     */
+    void addLink(String parentNodeName, String childNodeName, String serviceName) {
+        links.add(new Link(parentNodeName, childNodeName, serviceName));
+    }
+
+    Map<String, Set<String>> getNodeComponents() {
+        return nodeComponents;
+    }
+
+    List<Link> getLinks() {
+        return links;
+    }
+
+    boolean isEmpty() {
+        return nodeComponents.isEmpty() && links.isEmpty();
+    }
+
+    /**
+     * A link between two nodes.
+     */
+    static class Link {
+        private final String parentNodeName;
+        private final String childNodeName;
+        private final String serviceName;
+
+        Link(String parentNodeName, String childNodeName, String serviceName) {
+            this.parentNodeName = parentNodeName;
+            this.childNodeName = childNodeName;
+            this.serviceName = serviceName;
+        }
+
+        String getParentNodeName() {
+            return parentNodeName;
+        }
+
+        String getChildNodeName() {
+            return childNodeName;
+        }
+
+        String getServiceName() {
+            return serviceName;
+        }
+    }
+}
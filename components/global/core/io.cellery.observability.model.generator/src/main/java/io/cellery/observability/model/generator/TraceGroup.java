@@ -25,11 +25,16 @@ import java.io.Serializable;
 /**
  * This keeps the information of a trace key.
  */
-public class TraceGroup implements Serializable, Comparable {
+public class TraceGroup implements Serializable, Comparable<TraceGroup> {
     private String key;
     private long startTimestamp;
     private long endTimestamp;
     private ComplexEventChunk<StreamEvent> currentTraceGroup;
+    private CompactSpanBuffer compactSpans;
+    private TraceCompletion.State completionState;
+    private int spanCount;
+    private long estimatedSize;
+    private transient int expiryQueueIndex = -1;
 
     public TraceGroup(String key, long startTimestamp) {
         currentTraceGroup = new ComplexEventChunk<>(false);
@@ -45,8 +50,8 @@ public class TraceGroup implements Serializable, Comparable {
         this.endTimestamp = endTimestamp;
     }
 
-    public void setStartTimestamp(long endTimestamp) {
-        this.endTimestamp = endTimestamp;
+    public void setStartTimestamp(long startTimestamp) {
+        this.startTimestamp = startTimestamp;
     }
 
     public long getStartTimestamp() {
@@ -57,12 +62,79 @@ public class TraceGroup implements Serializable, Comparable {
         return endTimestamp;
     }
 
-    public void add(StreamEvent event) {
+    public void add(StreamEvent event, long estimatedEventSize) {
         this.currentTraceGroup.add(event);
+        this.spanCount++;
+        this.estimatedSize += estimatedEventSize;
+    }
+
+    /**
+     * Add the retained attributes of a span to the compact storage of the trace group.
+     *
+     * @param event  The span
+     * @param layout The retained attributes of the spans
+     * @return The estimated number of bytes added to the trace group
+     */
+    long add(StreamEvent event, CompactSpanLayout layout) {
+        if (compactSpans == null) {
+            compactSpans = new CompactSpanBuffer(layout, event);
+        }
+        long estimatedEventSize = compactSpans.append(layout, event);
+        this.spanCount++;
+        this.estimatedSize += estimatedEventSize;
+        return estimatedEventSize;
+    }
+
+    /**
+     * Add a compact span buffer restored from a snapshot to the trace group.
+     *
+     * @param restoredSpans The restored compact span buffer
+     * @param layout        The retained attributes of the spans
+     */
+    void addCompactSpans(CompactSpanBuffer restoredSpans, CompactSpanLayout layout) {
+        compactSpans = restoredSpans;
+        this.spanCount += restoredSpans.size();
+        this.estimatedSize += restoredSpans.estimateSize(layout);
+    }
+
+    /**
+     * Move the spans of the trace group to a chunk.
+     *
+     * @param eventChunk The chunk to which the spans are added
+     * @param layout     The retained attributes of the spans, used for rebuilding compactly stored spans
+     */
+    void drainTo(ComplexEventChunk<StreamEvent> eventChunk, CompactSpanLayout layout) {
+        if (currentTraceGroup.getFirst() != null) {
+            eventChunk.add(currentTraceGroup.getFirst());
+        }
+        if (compactSpans != null && layout != null) {
+            compactSpans.rebuild(layout, eventChunk);
+        }
+        clear();
+    }
+
+    CompactSpanBuffer getCompactSpans() {
+        return compactSpans;
+    }
+
+    TraceCompletion.State getCompletionState() {
+        return completionState;
+    }
+
+    void setCompletionState(TraceCompletion.State completionState) {
+        this.completionState = completionState;
+    }
+
+    public int getSpanCount() {
+        return spanCount;
+    }
+
+    public long getEstimatedSize() {
+        return estimatedSize;
     }
 
     public boolean isEmpty() {
-        return this.currentTraceGroup.getFirst() == null;
+        return this.currentTraceGroup.getFirst() == null && (compactSpans == null || compactSpans.size() == 0);
     }
 
     public ComplexEventChunk<StreamEvent> getCurrentTraceGroup() {
@@ -71,14 +143,23 @@ public class TraceGroup implements Serializable, Comparable {
 
     public void clear() {
         this.currentTraceGroup.clear();
+        this.compactSpans = null;
+        this.completionState = null;
+        this.spanCount = 0;
+        this.estimatedSize = 0;
+    }
+
+    int getExpiryQueueIndex() {
+        return expiryQueueIndex;
+    }
+
+    void setExpiryQueueIndex(int expiryQueueIndex) {
+        this.expiryQueueIndex = expiryQueueIndex;
     }
 
     @Override
-    public int compareTo(Object o) {
-        if (o instanceof TraceGroup) {
-            return new Long(endTimestamp - ((TraceGroup) o).endTimestamp).intValue();
-        } else {
-            return 1;
-        }
+    public int compareTo(TraceGroup traceGroup) {
+        int comparison = Long.compare(endTimestamp, traceGroup.endTimestamp);
+        return comparison == 0 ? key.compareTo(traceGroup.key) : comparison;
     }
 }
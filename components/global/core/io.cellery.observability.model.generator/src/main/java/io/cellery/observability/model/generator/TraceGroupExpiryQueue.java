@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import java.util.Arrays;
+
+/**
+ * Indexed min heap of trace groups ordered by their end timestamps.
+ * Each trace group keeps its position in the heap, so that a trace group can be moved when its end timestamp
+ * changes without searching the heap. This is not thread safe and should be guarded by the owner.
+ */
+class TraceGroupExpiryQueue {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private TraceGroup[] heap = new TraceGroup[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Add a trace group to the queue or move it to the position matching its current end timestamp
+     * if it is already in the queue.
+     *
+     * @param traceGroup The trace group to be added or moved
+     */
+    void offer(TraceGroup traceGroup) {
+        int index = traceGroup.getExpiryQueueIndex();
+        if (!contains(traceGroup, index)) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, heap.length * 2);
+            }
+            place(traceGroup, size);
+            size++;
+            siftUp(size - 1);
+        } else if (!siftUp(index)) {
+            siftDown(index);
+        }
+    }
+
+    /**
+     * Get the trace group with the earliest end timestamp without removing it.
+     *
+     * @return The trace group with the earliest end timestamp or null if the queue is empty
+     */
+    TraceGroup peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Remove the trace group with the earliest end timestamp.
+     *
+     * @return The removed trace group or null if the queue is empty
+     */
+    TraceGroup poll() {
+        if (size == 0) {
+            return null;
+        }
+        TraceGroup traceGroup = heap[0];
+        removeAt(0);
+        return traceGroup;
+    }
+
+    /**
+     * Remove a trace group from the queue.
+     *
+     * @param traceGroup The trace group to be removed
+     */
+    void remove(TraceGroup traceGroup) {
+        int index = traceGroup.getExpiryQueueIndex();
+        if (contains(traceGroup, index)) {
+            removeAt(index);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            heap[i].setExpiryQueueIndex(-1);
+            heap[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Check whether a trace group is in the queue.
+     * The index is validated against the heap since the index of a deserialized trace group is not meaningful.
+     */
+    private boolean contains(TraceGroup traceGroup, int index) {
+        return index >= 0 && index < size && heap[index] == traceGroup;
+    }
+
+    private void removeAt(int index) {
+        TraceGroup removedTraceGroup = heap[index];
+        size--;
+        if (index != size) {
+            place(heap[size], index);
+            heap[size] = null;
+            if (!siftUp(index)) {
+                siftDown(index);
+            }
+        } else {
+            heap[size] = null;
+        }
+        removedTraceGroup.setExpiryQueueIndex(-1);
+    }
+
+    private boolean siftUp(int index) {
+        int startIndex = index;
+        TraceGroup traceGroup = heap[index];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            TraceGroup parent = heap[parentIndex];
+            if (traceGroup.compareTo(parent) >= 0) {
+                break;
+            }
+            place(parent, index);
+            index = parentIndex;
+        }
+        place(traceGroup, index);
+        return index != startIndex;
+    }
+
+    private void siftDown(int index) {
+        TraceGroup traceGroup = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int childIndex = (index << 1) + 1;
+            int rightIndex = childIndex + 1;
+            if (rightIndex < size && heap[rightIndex].compareTo(heap[childIndex]) < 0) {
+                childIndex = rightIndex;
+            }
+            if (traceGroup.compareTo(heap[childIndex]) <= 0) {
+                break;
+            }
+            place(heap[childIndex], index);
+            index = childIndex;
+        }
+        place(traceGroup, index);
+    }
+
+    private void place(TraceGroup traceGroup, int index) {
+        heap[index] = traceGroup;
+        traceGroup.setExpiryQueueIndex(index);
+    }
+}
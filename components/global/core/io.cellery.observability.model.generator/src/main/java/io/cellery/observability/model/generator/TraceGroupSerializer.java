@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import org.wso2.siddhi.core.event.ComplexEvent;
+import org.wso2.siddhi.core.event.stream.StreamEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary serializer of the trace groups held in the snapshots of the trace group window.
+ * Trace groups are written field by field without the class descriptors of Java serialization, and each distinct
+ * string in the spans of a trace group is written once and referred to by its index afterwards. Compactly stored
+ * spans are written as the columns and the dictionary of their compact span buffer.
+ */
+final class TraceGroupSerializer {
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte NEW_STRING_VALUE = 1;
+    private static final byte STRING_REFERENCE_VALUE = 2;
+    private static final byte INT_VALUE = 3;
+    private static final byte LONG_VALUE = 4;
+    private static final byte DOUBLE_VALUE = 5;
+    private static final byte FLOAT_VALUE = 6;
+    private static final byte BOOL_VALUE = 7;
+    private static final byte OBJECT_VALUE = 8;
+
+    private TraceGroupSerializer() {   // Prevent initialization
+    }
+
+    /**
+     * Write a trace group.
+     *
+     * @param traceGroup        The trace group to be written
+     * @param compactSpanLayout The retained attributes of the spans if spans are stored compactly, or null otherwise
+     * @param out               The output to which the trace group is written
+     * @throws IOException If writing to the output failed
+     */
+    static void write(TraceGroup traceGroup, CompactSpanLayout compactSpanLayout, DataOutputStream out)
+            throws IOException {
+        writeString(traceGroup.getKey(), out);
+        out.writeLong(traceGroup.getStartTimestamp());
+        out.writeLong(traceGroup.getEndTimestamp());
+        TraceCompletion.State completionState = traceGroup.getCompletionState();
+        out.writeBoolean(completionState != null);
+        if (completionState != null) {
+            completionState.writeTo(out);
+        }
+
+        CompactSpanBuffer compactSpans = traceGroup.getCompactSpans();
+        boolean hasCompactSpans = compactSpans != null && compactSpanLayout != null;
+        out.writeBoolean(hasCompactSpans);
+        if (hasCompactSpans) {
+            compactSpans.writeTo(compactSpanLayout, out);
+        }
+
+        int spanCount = 0;
+        for (StreamEvent span = traceGroup.getCurrentTraceGroup().getFirst(); span != null;
+             span = (StreamEvent) span.getNext()) {
+            spanCount++;
+        }
+        out.writeInt(spanCount);
+        Map<String, Integer> strings = new HashMap<>();
+        for (StreamEvent span = traceGroup.getCurrentTraceGroup().getFirst(); span != null;
+             span = (StreamEvent) span.getNext()) {
+            writeSpan(span, strings, out);
+        }
+    }
+
+    /**
+     * Read a trace group written by {@link #write(TraceGroup, CompactSpanLayout, DataOutputStream)}.
+     * The spans are added to the trace group in the same way as they were added by the window, and compactly
+     * stored spans are read back into a compact span buffer, which also recalculates the span count and the
+     * estimated size of the trace group.
+     *
+     * @param compactSpanLayout The retained attributes of the spans if spans are stored compactly, or null otherwise
+     * @param in                The input from which the trace group is read
+     * @return The trace group
+     * @throws IOException If reading from the input failed
+     */
+    static TraceGroup read(CompactSpanLayout compactSpanLayout, DataInputStream in) throws IOException {
+        String key = readString(in);
+        long startTimestamp = in.readLong();
+        long endTimestamp = in.readLong();
+        TraceGroup traceGroup = new TraceGroup(key, startTimestamp);
+        traceGroup.setEndTimestamp(endTimestamp);
+        if (in.readBoolean()) {
+            traceGroup.setCompletionState(TraceCompletion.State.readFrom(in));
+        }
+
+        if (in.readBoolean()) {
+            if (compactSpanLayout == null) {
+                throw new IOException("Compact spans of trace " + key + " cannot be read without retained "
+                        + "attributes");
+            }
+            traceGroup.addCompactSpans(CompactSpanBuffer.readFrom(compactSpanLayout, in), compactSpanLayout);
+        }
+
+        int spanCount = in.readInt();
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < spanCount; i++) {
+            StreamEvent span = readSpan(strings, in);
+            if (compactSpanLayout == null) {
+                traceGroup.add(span, TraceGroupShard.estimateSize(span));
+            } else {
+                traceGroup.add(span, compactSpanLayout);
+            }
+        }
+        return traceGroup;
+    }
+
+    private static void writeSpan(StreamEvent span, Map<String, Integer> strings, DataOutputStream out)
+            throws IOException {
+        out.writeLong(span.getTimestamp());
+        writeData(span.getBeforeWindowData(), strings, out);
+        writeData(span.getOnAfterWindowData(), strings, out);
+        writeData(span.getOutputData(), strings, out);
+    }
+
+    private static StreamEvent readSpan(List<String> strings, DataInputStream in) throws IOException {
+        long timestamp = in.readLong();
+        Object[] beforeWindowData = readData(strings, in);
+        Object[] onAfterWindowData = readData(strings, in);
+        Object[] outputData = readData(strings, in);
+        StreamEvent span = new StreamEvent(lengthOf(beforeWindowData), lengthOf(onAfterWindowData),
+                lengthOf(outputData));
+        span.setTimestamp(timestamp);
+        span.setType(ComplexEvent.Type.EXPIRED);
+        copy(beforeWindowData, span.getBeforeWindowData());
+        copy(onAfterWindowData, span.getOnAfterWindowData());
+        copy(outputData, span.getOutputData());
+        return span;
+    }
+
+    private static void writeData(Object[] data, Map<String, Integer> strings, DataOutputStream out)
+            throws IOException {
+        if (data == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(data.length);
+        for (Object value : data) {
+            if (value == null) {
+                out.writeByte(NULL_VALUE);
+            } else if (value instanceof String) {
+                Integer index = strings.get(value);
+                if (index == null) {
+                    strings.put((String) value, strings.size());
+                    out.writeByte(NEW_STRING_VALUE);
+                    writeString((String) value, out);
+                } else {
+                    out.writeByte(STRING_REFERENCE_VALUE);
+                    out.writeInt(index);
+                }
+            } else if (value instanceof Integer) {
+                out.writeByte(INT_VALUE);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG_VALUE);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE_VALUE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Float) {
+                out.writeByte(FLOAT_VALUE);
+                out.writeFloat((Float) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOL_VALUE);
+                out.writeBoolean((Boolean) value);
+            } else {
+                out.writeByte(OBJECT_VALUE);
+                writeObject(value, out);
+            }
+        }
+    }
+
+    private static Object[] readData(List<String> strings, DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        Object[] data = new Object[length];
+        for (int i = 0; i < length; i++) {
+            byte valueType = in.readByte();
+            switch (valueType) {
+                case NULL_VALUE:
+                    break;
+                case NEW_STRING_VALUE:
+                    data[i] = readString(in);
+                    strings.add((String) data[i]);
+                    break;
+                case STRING_REFERENCE_VALUE:
+                    data[i] = strings.get(in.readInt());
+                    break;
+                case INT_VALUE:
+                    data[i] = in.readInt();
+                    break;
+                case LONG_VALUE:
+                    data[i] = in.readLong();
+                    break;
+                case DOUBLE_VALUE:
+                    data[i] = in.readDouble();
+                    break;
+                case FLOAT_VALUE:
+                    data[i] = in.readFloat();
+                    break;
+                case BOOL_VALUE:
+                    data[i] = in.readBoolean();
+                    break;
+                case OBJECT_VALUE:
+                    data[i] = readObject(in);
+                    break;
+                default:
+                    throw new IOException("Unknown span attribute type " + valueType);
+            }
+        }
+        return data;
+    }
+
+    static void writeString(String value, DataOutputStream out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeObject(Object value, DataOutputStream out) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(value);
+        }
+        out.writeInt(byteArrayOutputStream.size());
+        byteArrayOutputStream.writeTo(out);
+    }
+
+    static Object readObject(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read a span attribute of an unknown class", e);
+        }
+    }
+
+    private static int lengthOf(Object[] data) {
+        return data == null ? 0 : data.length;
+    }
+
+    private static void copy(Object[] source, Object[] destination) {
+        if (source != null && destination != null) {
+            System.arraycopy(source, 0, destination, 0, source.length);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import io.cellery.observability.metrics.Counter;
+import io.cellery.observability.metrics.MetricsRegistry;
+import org.wso2.siddhi.core.event.ComplexEventChunk;
+import org.wso2.siddhi.core.event.stream.StreamEvent;
+import org.wso2.siddhi.core.exception.SiddhiAppRuntimeException;
+import org.wso2.siddhi.core.util.snapshot.state.SnapshotState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A shard of the trace groups held by the trace group window.
+ * Each shard guards its own trace groups, so that spans of traces in different shards can be grouped in parallel.
+ *
+ * The trace groups held by a shard are bounded by the number of traces, the number of spans per trace and the
+ * estimated size of the spans. Trace groups are released before their idle time gap elapses when these limits
+ * are reached.
+ *
+ * Once a snapshot of a shard is taken, the trace keys of the trace groups changed or removed since the last snapshot
+ * are tracked, so that the next snapshot only contains those trace groups.
+ */
+class TraceGroupShard {
+
+    private static final Counter SPANS_LIMIT_FLUSHES_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_trace_group_window_spans_limit_flushes_total",
+            "Total number of trace groups released early since they reached the maximum spans per trace");
+    private static final Counter TRACES_LIMIT_FLUSHES_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_trace_group_window_traces_limit_flushes_total",
+            "Total number of trace groups released early since the maximum in-flight traces was reached");
+    private static final Counter SIZE_LIMIT_FLUSHES_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_trace_group_window_size_limit_flushes_total",
+            "Total number of trace groups released early since the maximum estimated size was reached");
+
+    private static final Counter EARLY_COMPLETIONS_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_trace_group_window_early_completions_total",
+            "Total number of trace groups released early since they were detected to be complete");
+
+    static final long LATE_SPAN = Long.MIN_VALUE;
+
+    private static final int EVENT_OVERHEAD_SIZE = 64;
+    private static final int ATTRIBUTE_OVERHEAD_SIZE = 16;
+    private static final int STRING_OVERHEAD_SIZE = 40;
+    private static final int MIN_DIRTY_KEYS_LIMIT = 1024;
+
+    private final long idleTimeGap;
+    private final int maxTraces;
+    private final int maxSpansPerTrace;
+    private final long maxSize;
+    private final CompactSpanLayout compactSpanLayout;
+    private final TraceCompletion traceCompletion;
+    private final Map<String, TraceGroup> traceGroupMap = new HashMap<>();
+    private final TraceGroupExpiryQueue expiryQueue = new TraceGroupExpiryQueue();
+    private long estimatedSize = 0;
+    private final Set<String> dirtyKeys = new HashSet<>();
+    private boolean dirtyTracking = false;
+
+    /**
+     * Create a trace group shard.
+     *
+     * @param idleTimeGap       The time after the last span of a trace at which the trace group is expired
+     * @param maxTraces         The maximum number of trace groups held by the shard, or zero for no limit
+     * @param maxSpansPerTrace  The maximum number of spans held by a trace group, or zero for no limit
+     * @param maxSize           The maximum estimated size in bytes of the spans held by the shard, or zero for no
+     *                          limit
+     * @param compactSpanLayout The retained attributes of the spans stored compactly, or null for storing the spans
+     *                          as they are
+     * @param traceCompletion   The heuristic for releasing complete traces early, or null for releasing all traces
+     *                          after the idle time gap
+     */
+    TraceGroupShard(long idleTimeGap, int maxTraces, int maxSpansPerTrace, long maxSize,
+                    CompactSpanLayout compactSpanLayout, TraceCompletion traceCompletion) {
+        this.idleTimeGap = idleTimeGap;
+        this.maxTraces = maxTraces;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+        this.maxSize = maxSize;
+        this.compactSpanLayout = compactSpanLayout;
+        this.traceCompletion = traceCompletion;
+    }
+
+    /**
+     * Add a span to the trace group of its trace key.
+     *
+     * @param key               The trace key of the span
+     * @param streamEvent       The span to be added to the trace group, which is only read if spans are stored
+     *                          compactly and is held by the shard otherwise
+     * @param eventTimestamp    The timestamp of the span
+     * @param flushedEventChunk The chunk to which the spans of the trace groups released early are added
+     * @return The end timestamp of the trace group of the span, or {@link #LATE_SPAN} if the span was too late for
+     * its trace group
+     */
+    synchronized long add(String key, StreamEvent streamEvent, long eventTimestamp,
+                          ComplexEventChunk<StreamEvent> flushedEventChunk) {
+        TraceGroup traceGroup = traceGroupMap.get(key);
+        if (traceGroup == null) {
+            traceGroup = new TraceGroup(key, eventTimestamp);
+            traceGroupMap.put(key, traceGroup);
+        }
+        if (traceGroup.isEmpty() || eventTimestamp >= traceGroup.getStartTimestamp()) {
+            addSpan(traceGroup, streamEvent);
+            traceGroup.setEndTimestamp(eventTimestamp + idleTimeGap);
+        } else if (eventTimestamp >= (traceGroup.getStartTimestamp() - idleTimeGap)) {
+            // The late event belongs to the same trace
+            addSpan(traceGroup, streamEvent);
+            traceGroup.setStartTimestamp(eventTimestamp);
+        } else {
+            return LATE_SPAN;
+        }
+        if (traceCompletion != null) {
+            traceGroup.setEndTimestamp(traceCompletion.update(traceGroup, streamEvent, eventTimestamp, idleTimeGap));
+        }
+        expiryQueue.offer(traceGroup);
+        markDirty(key);
+        long endTimestamp = traceGroup.getEndTimestamp();
+        enforceLimits(traceGroup, flushedEventChunk);
+        return endTimestamp;
+    }
+
+    /**
+     * Remove the trace groups which had been idle until the provided timestamp.
+     *
+     * @param currentTimestamp  The current timestamp
+     * @param expiredEventChunk The chunk to which the spans of the expired trace groups are added
+     */
+    synchronized void expire(long currentTimestamp, ComplexEventChunk<StreamEvent> expiredEventChunk) {
+        TraceGroup traceGroup;
+        while ((traceGroup = expiryQueue.peek()) != null && currentTimestamp >= traceGroup.getEndTimestamp()) {
+            if (traceGroup.getCompletionState() != null && traceGroup.getCompletionState().isComplete()) {
+                EARLY_COMPLETIONS_COUNTER.increment();
+            }
+            release(traceGroup, expiredEventChunk);
+        }
+    }
+
+    /**
+     * Add a restored trace group to this shard.
+     *
+     * @param traceGroup The trace group to be added
+     */
+    synchronized void put(TraceGroup traceGroup) {
+        traceGroupMap.put(traceGroup.getKey(), traceGroup);
+        expiryQueue.offer(traceGroup);
+        estimatedSize += traceGroup.getEstimatedSize();
+    }
+
+    /**
+     * Check whether this shard holds any trace groups.
+     *
+     * @return True if this shard does not hold any trace groups
+     */
+    synchronized boolean isEmpty() {
+        return traceGroupMap.isEmpty();
+    }
+
+    /**
+     * Remove all the trace groups in this shard.
+     * The next snapshot of the shard will be a full snapshot.
+     */
+    synchronized void clear() {
+        traceGroupMap.clear();
+        expiryQueue.clear();
+        estimatedSize = 0;
+        dirtyKeys.clear();
+        dirtyTracking = false;
+    }
+
+    /**
+     * Take a snapshot of the trace groups in this shard.
+     * An incremental snapshot only contains the trace groups changed since the last snapshot and the trace keys of
+     * the trace groups removed since then. A full snapshot is taken if requested, if this is the first snapshot
+     * of the shard or if too many trace groups had changed for the changes to be tracked.
+     *
+     * @param fullSnapshotRequested True if a full snapshot is requested
+     * @return The snapshot of the trace groups
+     */
+    synchronized SnapshotState snapshot(boolean fullSnapshotRequested) {
+        boolean isIncrementalSnapshot = dirtyTracking && !fullSnapshotRequested;
+        Collection<TraceGroup> changedTraceGroups;
+        List<String> removedKeys = new ArrayList<>();
+        if (isIncrementalSnapshot) {
+            changedTraceGroups = new ArrayList<>();
+            for (String key : dirtyKeys) {
+                TraceGroup traceGroup = traceGroupMap.get(key);
+                if (traceGroup == null) {
+                    removedKeys.add(key);
+                } else {
+                    changedTraceGroups.add(traceGroup);
+                }
+            }
+        } else {
+            changedTraceGroups = traceGroupMap.values();
+        }
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(byteArrayOutputStream)) {
+            out.writeInt(changedTraceGroups.size());
+            for (TraceGroup traceGroup : changedTraceGroups) {
+                TraceGroupSerializer.write(traceGroup, compactSpanLayout, out);
+            }
+            out.writeInt(removedKeys.size());
+            for (String key : removedKeys) {
+                TraceGroupSerializer.writeString(key, out);
+            }
+        } catch (IOException e) {
+            throw new SiddhiAppRuntimeException("Unable to take a snapshot of the trace groups", e);
+        }
+        dirtyKeys.clear();
+        dirtyTracking = true;
+        return new SnapshotState(byteArrayOutputStream.toByteArray(), isIncrementalSnapshot);
+    }
+
+    /**
+     * Apply a snapshot taken by {@link #snapshot(boolean)} to a map of trace groups.
+     * The map should be cleared by the caller before applying a full snapshot.
+     *
+     * @param snapshot          The snapshot
+     * @param compactSpanLayout The retained attributes of the spans if spans are stored compactly, or null otherwise
+     * @param traceGroups       The map of trace groups to which the snapshot is applied
+     */
+    static void restore(byte[] snapshot, CompactSpanLayout compactSpanLayout, Map<String, TraceGroup> traceGroups) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            int changedTraceGroupCount = in.readInt();
+            for (int i = 0; i < changedTraceGroupCount; i++) {
+                TraceGroup traceGroup = TraceGroupSerializer.read(compactSpanLayout, in);
+                traceGroups.put(traceGroup.getKey(), traceGroup);
+            }
+            int removedKeyCount = in.readInt();
+            for (int i = 0; i < removedKeyCount; i++) {
+                traceGroups.remove(TraceGroupSerializer.readString(in));
+            }
+        } catch (IOException e) {
+            throw new SiddhiAppRuntimeException("Unable to restore the trace groups from the snapshot", e);
+        }
+    }
+
+    /**
+     * Record that the trace group of a trace key had changed since the last snapshot.
+     * Tracking is stopped until the next snapshot, which will then be a full snapshot, when the changed trace groups
+     * clearly outnumber the trace groups held by the shard.
+     *
+     * @param key The trace key
+     */
+    private void markDirty(String key) {
+        if (dirtyTracking) {
+            dirtyKeys.add(key);
+            if (dirtyKeys.size() > MIN_DIRTY_KEYS_LIMIT + 2 * traceGroupMap.size()) {
+                dirtyKeys.clear();
+                dirtyTracking = false;
+            }
+        }
+    }
+
+    private void addSpan(TraceGroup traceGroup, StreamEvent streamEvent) {
+        if (compactSpanLayout == null) {
+            long estimatedEventSize = estimateSize(streamEvent);
+            traceGroup.add(streamEvent, estimatedEventSize);
+            estimatedSize += estimatedEventSize;
+        } else {
+            estimatedSize += traceGroup.add(streamEvent, compactSpanLayout);
+        }
+    }
+
+    /**
+     * Release trace groups early if any of the limits of the shard are exceeded after adding a span.
+     * A trace group with too many spans is released itself while the least recently active trace groups are
+     * released when the shard holds too many traces or spans.
+     *
+     * @param traceGroup        The trace group to which the span was added
+     * @param flushedEventChunk The chunk to which the spans of the released trace groups are added
+     */
+    private void enforceLimits(TraceGroup traceGroup, ComplexEventChunk<StreamEvent> flushedEventChunk) {
+        if (maxSpansPerTrace > 0 && traceGroup.getSpanCount() >= maxSpansPerTrace) {
+            release(traceGroup, flushedEventChunk);
+            SPANS_LIMIT_FLUSHES_COUNTER.increment();
+        }
+        while (maxTraces > 0 && traceGroupMap.size() > maxTraces) {
+            release(expiryQueue.peek(), flushedEventChunk);
+            TRACES_LIMIT_FLUSHES_COUNTER.increment();
+        }
+        while (maxSize > 0 && estimatedSize > maxSize && expiryQueue.size() > 0) {
+            release(expiryQueue.peek(), flushedEventChunk);
+            SIZE_LIMIT_FLUSHES_COUNTER.increment();
+        }
+    }
+
+    /**
+     * Remove a trace group from this shard and add its spans to a chunk.
+     *
+     * @param traceGroup The trace group to be released
+     * @param eventChunk The chunk to which the spans of the trace group are added
+     */
+    private void release(TraceGroup traceGroup, ComplexEventChunk<StreamEvent> eventChunk) {
+        expiryQueue.remove(traceGroup);
+        traceGroupMap.remove(traceGroup.getKey());
+        markDirty(traceGroup.getKey());
+        estimatedSize -= traceGroup.getEstimatedSize();
+        traceGroup.drainTo(eventChunk, compactSpanLayout);
+    }
+
+    /**
+     * Estimate the heap size of a span held in a trace group.
+     * This is a rough estimate based on the lengths of the string attributes.
+     *
+     * @param streamEvent The span
+     * @return The estimated size of the span in bytes
+     */
+    static long estimateSize(StreamEvent streamEvent) {
+        return EVENT_OVERHEAD_SIZE + estimateSize(streamEvent.getBeforeWindowData())
+                + estimateSize(streamEvent.getOnAfterWindowData()) + estimateSize(streamEvent.getOutputData());
+    }
+
+    private static long estimateSize(Object[] data) {
+        long size = 0;
+        if (data != null) {
+            for (Object value : data) {
+                size += ATTRIBUTE_OVERHEAD_SIZE;
+                if (value instanceof String) {
+                    size += STRING_OVERHEAD_SIZE + 2L * ((String) value).length();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Select the shard which holds the trace group of a trace key.
+     *
+     * @param shards The shards to select from, the number of which should be a power of two
+     * @param key    The trace key
+     * @return The shard which holds the trace group of the trace key
+     */
+    static TraceGroupShard select(TraceGroupShard[] shards, String key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+}
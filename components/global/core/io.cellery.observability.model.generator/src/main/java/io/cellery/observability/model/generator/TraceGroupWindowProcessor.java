@@ -21,6 +21,7 @@ import org.apache.log4j.Logger;
 import org.wso2.siddhi.annotation.Example;
 import org.wso2.siddhi.annotation.Extension;
 import org.wso2.siddhi.annotation.Parameter;
+import org.wso2.siddhi.annotation.SystemParameter;
 import org.wso2.siddhi.annotation.util.DataType;
 import org.wso2.siddhi.core.config.SiddhiAppContext;
 import org.wso2.siddhi.core.event.ComplexEvent;
@@ -43,18 +44,21 @@ import org.wso2.siddhi.core.util.collection.operator.MatchingMetaInfoHolder;
 import org.wso2.siddhi.core.util.collection.operator.Operator;
 import org.wso2.siddhi.core.util.config.ConfigReader;
 import org.wso2.siddhi.core.util.parser.OperatorParser;
+import org.wso2.siddhi.core.util.snapshot.SnapshotRequest;
+import org.wso2.siddhi.core.util.snapshot.state.SnapshotState;
+import org.wso2.siddhi.core.util.snapshot.state.SnapshotStateList;
 import org.wso2.siddhi.query.api.definition.AbstractDefinition;
 import org.wso2.siddhi.query.api.definition.Attribute;
 import org.wso2.siddhi.query.api.exception.SiddhiAppValidationException;
 import org.wso2.siddhi.query.api.expression.Expression;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation of Stream Processor that groups the trace based on the trace key, and releases the trace
@@ -74,7 +78,69 @@ import java.util.concurrent.ConcurrentHashMap;
                         type = {DataType.INT, DataType.LONG, DataType.TIME}),
                 @Parameter(name = "window.key",
                         description = "The grouping attribute for events. ie, trace-key attribute",
-                        type = {DataType.STRING})
+                        type = {DataType.STRING}),
+                @Parameter(name = "completion.grace.period",
+                        description = "The time without new spans after which a complete trace is released "
+                                + "without waiting for the idle time gap. A trace is considered complete when its root "
+                                + "span, which has no parent or has the trace key as its span id, and the parents "
+                                + "of all its spans had been received. Spans received after a trace is released are "
+                                + "grouped separately without the root span, and hence the dependencies of such spans "
+                                + "are not extracted by the model generator. The span id and parent id attributes "
+                                + "should follow this.",
+                        type = {DataType.INT, DataType.LONG, DataType.TIME},
+                        optional = true,
+                        defaultValue = "Traces are released only after the idle time gap"),
+                @Parameter(name = "span.id",
+                        description = "The span id attribute used for detecting complete traces",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "-"),
+                @Parameter(name = "parent.id",
+                        description = "The parent span id attribute used for detecting complete traces",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "-"),
+                @Parameter(name = "retained.attribute",
+                        description = "The attributes of the spans required in the expired events. If any are "
+                                + "specified, only these attributes and the trace key are retained by the window in a "
+                                + "compact columnar form, and the other attributes are null in the expired events. "
+                                + "Otherwise, the spans are retained as they are.",
+                        type = {DataType.STRING, DataType.INT, DataType.LONG, DataType.DOUBLE, DataType.FLOAT,
+                                DataType.BOOL, DataType.OBJECT},
+                        optional = true,
+                        defaultValue = "All the attributes")
+        },
+        systemParameter = {
+                @SystemParameter(name = "shards",
+                        description = "The number of shards into which the trace groups are distributed based on "
+                                + "the trace key. Spans of traces in different shards are grouped in parallel. This "
+                                + "is rounded up to the next power of two.",
+                        defaultValue = Constants.DEFAULT_TRACE_GROUP_WINDOW_SHARDS,
+                        possibleParameters = "Any positive integer"),
+                @SystemParameter(name = "expiry.tick",
+                        description = "The granularity in milliseconds to which the expiry of the trace groups is "
+                                + "rounded up. At most one timer is scheduled for the trace groups expiring within "
+                                + "the same tick, which bounds the scheduling overhead regardless of the span rate.",
+                        defaultValue = Constants.DEFAULT_TRACE_GROUP_WINDOW_EXPIRY_TICK,
+                        possibleParameters = "Any positive integer"),
+                @SystemParameter(name = "max.traces",
+                        description = "The maximum number of in-flight traces held by the window, divided evenly "
+                                + "among the shards. The least recently active traces of a shard are released early "
+                                + "when this is exceeded. Zero disables the limit.",
+                        defaultValue = Constants.DEFAULT_TRACE_GROUP_WINDOW_MAX_TRACES,
+                        possibleParameters = "Any non negative integer"),
+                @SystemParameter(name = "max.spans.per.trace",
+                        description = "The maximum number of spans held for a trace. A trace reaching this is "
+                                + "released early and its subsequent spans are grouped separately. Zero disables "
+                                + "the limit.",
+                        defaultValue = Constants.DEFAULT_TRACE_GROUP_WINDOW_MAX_SPANS_PER_TRACE,
+                        possibleParameters = "Any non negative integer"),
+                @SystemParameter(name = "max.bytes",
+                        description = "The maximum estimated size in bytes of the spans held by the window, divided "
+                                + "evenly among the shards. The least recently active traces of a shard are released "
+                                + "early when this is exceeded. Zero disables the limit.",
+                        defaultValue = Constants.DEFAULT_TRACE_GROUP_WINDOW_MAX_BYTES,
+                        possibleParameters = "Any non negative integer")
         },
         examples = {
                 @Example(
@@ -84,17 +150,43 @@ import java.util.concurrent.ConcurrentHashMap;
                         description = "This will send all events to output stream immediately, and also collect the " +
                                 "events until the configured window.time, and group all events as a single event chunk "
                                 + "as expired events."
+                ),
+                @Example(
+                        syntax = "from ProcessedZipkinStream#observe:traceGroupWindow(60 sec, traceId, spanId, "
+                                + "parentId, startTime) \n"
+                                + "select * \n"
+                                + "insert all events into OutputStream;",
+                        description = "This will group the spans similar to the above, but only the traceId, spanId, "
+                                + "parentId and startTime attributes are retained for the expired events."
+                ),
+                @Example(
+                        syntax = "from ProcessedZipkinStream#observe:traceGroupWindow(60 sec, traceId, 5 sec, spanId, "
+                                + "parentId) \n"
+                                + "select * \n"
+                                + "insert all events into OutputStream;",
+                        description = "This will group the spans similar to the first example, but a trace is "
+                                + "released 5 seconds after its last span if its root span and the parents of all "
+                                + "its spans had been received."
                 )
         }
 )
 public class TraceGroupWindowProcessor extends StreamProcessor implements SchedulingProcessor, FindableProcessor {
 
     private static final Logger log = Logger.getLogger(TraceGroupWindowProcessor.class);
+    private static final int MAX_SHARDS = 1 << 16;
+    private static final String TRACE_GROUPS_STATE_KEY_PREFIX = "traceGroups.";
+    private static final String LEGACY_TRACE_GROUP_MAP_STATE_KEY = "traceGroupMap";
+    private static final long NO_PENDING_EXPIRY_TICK = -1;
 
     private long idleTimeGap = 0;
     private VariableExpressionExecutor tracekeyExecutor;
     private Scheduler scheduler;
-    private Map<String, TraceGroup> traceGroupMap;
+    private long expiryTick;
+    private CompactSpanLayout compactSpanLayout;
+    private TraceCompletion traceCompletion;
+    private TraceGroupShard[] shards;
+    private NavigableSet<Long> scheduledExpiryTimestamps;
+    private AtomicLong pendingExpiryTick;
     private ComplexEventChunk<StreamEvent> expiredEventChunk;
 
     @Override
@@ -110,10 +202,9 @@ public class TraceGroupWindowProcessor extends StreamProcessor implements Schedu
     @Override
     protected List<Attribute> init(AbstractDefinition abstractDefinition, ExpressionExecutor[] expressionExecutors,
                                    ConfigReader configReader, SiddhiAppContext siddhiAppContext) {
-        this.traceGroupMap = new ConcurrentHashMap<>();
         this.expiredEventChunk = new ComplexEventChunk<>(false);
 
-        if (attributeExpressionExecutors.length == 2) {
+        if (attributeExpressionExecutors.length >= 2) {
             if (attributeExpressionExecutors[0] instanceof ConstantExpressionExecutor) {
                 if (attributeExpressionExecutors[0].getReturnType() == Attribute.Type.INT ||
                         attributeExpressionExecutors[0].getReturnType() == Attribute.Type.LONG) {
@@ -141,100 +232,239 @@ public class TraceGroupWindowProcessor extends StreamProcessor implements Schedu
                         + "found a constant attribute "
                         + attributeExpressionExecutors[1].getClass().getCanonicalName());
             }
+
+            int retainedAttributesIndex = 2;
+            if (attributeExpressionExecutors.length > 2
+                    && attributeExpressionExecutors[2] instanceof ConstantExpressionExecutor) {
+                traceCompletion = initTraceCompletion();
+                retainedAttributesIndex = 5;
+            }
+
+            if (attributeExpressionExecutors.length > retainedAttributesIndex) {
+                List<VariableExpressionExecutor> retainedAttributeExecutors = new ArrayList<>();
+                retainedAttributeExecutors.add(tracekeyExecutor);
+                for (int i = retainedAttributesIndex; i < attributeExpressionExecutors.length; i++) {
+                    if (attributeExpressionExecutors[i] instanceof VariableExpressionExecutor) {
+                        retainedAttributeExecutors.add((VariableExpressionExecutor) attributeExpressionExecutors[i]);
+                    } else {
+                        throw new SiddhiAppValidationException("Tracegroup window's retained attribute parameters"
+                                + " should be dynamic parameter attributes but found a constant attribute "
+                                + attributeExpressionExecutors[i].getClass().getCanonicalName());
+                    }
+                }
+                compactSpanLayout = new CompactSpanLayout(retainedAttributeExecutors);
+            }
         } else {
-            throw new SiddhiAppValidationException("Tracegroup window should have two parameters "
+            throw new SiddhiAppValidationException("Tracegroup window should have at least two parameters "
                     + "(<int|long|time> idleTimeGap, <String> traceKey"
                     + "but found " + attributeExpressionExecutors.length + " input attributes");
 
         }
+
+        int shardCount = (int) readConfig(configReader, Constants.TRACE_GROUP_WINDOW_SHARDS_KEY,
+                Constants.DEFAULT_TRACE_GROUP_WINDOW_SHARDS, 1, MAX_SHARDS);
+        int maxTraces = (int) readConfig(configReader, Constants.TRACE_GROUP_WINDOW_MAX_TRACES_KEY,
+                Constants.DEFAULT_TRACE_GROUP_WINDOW_MAX_TRACES, 0, Integer.MAX_VALUE);
+        int maxSpansPerTrace = (int) readConfig(configReader, Constants.TRACE_GROUP_WINDOW_MAX_SPANS_PER_TRACE_KEY,
+                Constants.DEFAULT_TRACE_GROUP_WINDOW_MAX_SPANS_PER_TRACE, 0, Integer.MAX_VALUE);
+        long maxBytes = readConfig(configReader, Constants.TRACE_GROUP_WINDOW_MAX_BYTES_KEY,
+                Constants.DEFAULT_TRACE_GROUP_WINDOW_MAX_BYTES, 0, Long.MAX_VALUE);
+        shards = new TraceGroupShard[shardCount == 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new TraceGroupShard(idleTimeGap, divideAmongShards(maxTraces), maxSpansPerTrace,
+                    divideAmongShards(maxBytes), compactSpanLayout, traceCompletion);
+        }
+        expiryTick = readConfig(configReader, Constants.TRACE_GROUP_WINDOW_EXPIRY_TICK_KEY,
+                Constants.DEFAULT_TRACE_GROUP_WINDOW_EXPIRY_TICK, 1, Integer.MAX_VALUE);
+        scheduledExpiryTimestamps = new ConcurrentSkipListSet<>();
+        pendingExpiryTick = new AtomicLong(NO_PENDING_EXPIRY_TICK);
         return new ArrayList<>();
     }
 
+    /**
+     * Initialize the detection of complete traces from the completion grace period, span id and parent id
+     * parameters.
+     *
+     * @return The trace completion heuristic
+     */
+    private TraceCompletion initTraceCompletion() {
+        long gracePeriod;
+        if (attributeExpressionExecutors[2].getReturnType() == Attribute.Type.INT ||
+                attributeExpressionExecutors[2].getReturnType() == Attribute.Type.LONG) {
+            gracePeriod = ((Number) ((ConstantExpressionExecutor) attributeExpressionExecutors[2]).getValue())
+                    .longValue();
+        } else {
+            throw new SiddhiAppValidationException("Tracegroup window's completion grace period parameter should "
+                    + "be either int or long, but found " + attributeExpressionExecutors[2].getReturnType());
+        }
+        if (attributeExpressionExecutors.length < 5) {
+            throw new SiddhiAppValidationException("Tracegroup window's completion grace period parameter should "
+                    + "be followed by the span id and parent id parameters");
+        }
+        VariableExpressionExecutor[] idExecutors = new VariableExpressionExecutor[2];
+        for (int i = 0; i < idExecutors.length; i++) {
+            ExpressionExecutor executor = attributeExpressionExecutors[i + 3];
+            if (executor instanceof VariableExpressionExecutor && executor.getReturnType() == Attribute.Type.STRING) {
+                idExecutors[i] = (VariableExpressionExecutor) executor;
+            } else {
+                throw new SiddhiAppValidationException("Tracegroup window's span id and parent id parameters should "
+                        + "be dynamic string attributes, but found " + executor.getClass().getCanonicalName()
+                        + " of type " + executor.getReturnType());
+            }
+        }
+        return new TraceCompletion(idExecutors[0], idExecutors[1], gracePeriod);
+    }
+
+    /**
+     * Read an integer system parameter of the window.
+     *
+     * @param configReader The config reader of the window
+     * @param key          The key of the system parameter
+     * @param defaultValue The value used if the system parameter is not configured
+     * @param minValue     The minimum valid value of the system parameter
+     * @param maxValue     The maximum valid value of the system parameter
+     * @return The value of the system parameter
+     */
+    private long readConfig(ConfigReader configReader, String key, String defaultValue, long minValue,
+                            long maxValue) {
+        String valueString = configReader.readConfig(key, defaultValue);
+        long value;
+        try {
+            value = Long.parseLong(valueString);
+        } catch (NumberFormatException e) {
+            throw new SiddhiAppValidationException("Tracegroup window's " + key + " should be an integer, "
+                    + "but found " + valueString, e);
+        }
+        if (value < minValue || value > maxValue) {
+            throw new SiddhiAppValidationException("Tracegroup window's " + key + " should be between "
+                    + minValue + " and " + maxValue + ", but found " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Divide a limit of the window among the shards.
+     *
+     * @param limit The limit of the window, or zero for no limit
+     * @return The limit of a shard
+     */
+    private int divideAmongShards(int limit) {
+        return (int) divideAmongShards((long) limit);
+    }
+
+    private long divideAmongShards(long limit) {
+        return limit / shards.length + (limit % shards.length == 0 ? 0 : 1);
+    }
+
     protected void process(ComplexEventChunk<StreamEvent> streamEventChunk, Processor processor, StreamEventCloner
                            streamEventCloner, ComplexEventPopulater complexEventPopulater) {
         boolean isTimerEvent = false;
-        synchronized (this) {
-            while (streamEventChunk.hasNext()) {
-                StreamEvent streamEvent = streamEventChunk.next();
-                long eventTimestamp = streamEvent.getTimestamp();
-                long maxTimestamp = eventTimestamp + idleTimeGap;
-                TraceGroup traceGroup;
-
-                if (streamEvent.getType() == StreamEvent.Type.CURRENT) {
-                    String key = (String) tracekeyExecutor.execute(streamEvent);
-                    //get the trace configuration based on trace key
-                    //if the map doesn't contain key, then a new traceGroup
-                    //object needs to be created.
-                    if ((traceGroup = traceGroupMap.get(key)) == null) {
-                        traceGroup = new TraceGroup(key, eventTimestamp);
-                    }
-                    traceGroupMap.put(key, traceGroup);
-
-                    StreamEvent clonedStreamEvent = streamEventCloner.copyStreamEvent(streamEvent);
-                    clonedStreamEvent.setType(StreamEvent.Type.EXPIRED);
-
-                    //if current trace contains events
-                    synchronized (key.intern()) {
-                        if (traceGroup.isEmpty() || eventTimestamp >= traceGroup.getStartTimestamp()) {
-                            traceGroup.add(clonedStreamEvent);
-                            traceGroup.setEndTimestamp(maxTimestamp);
-                            scheduler.notifyAt(maxTimestamp);
-                        } else {
-                            addLateEvent(streamEventChunk, eventTimestamp, clonedStreamEvent, traceGroup);
-                        }
-                    }
-                } else if (streamEvent.getType() == ComplexEvent.Type.TIMER) {
-                    isTimerEvent = true;
-                    currentTraceTimeout(eventTimestamp);
+        ComplexEventChunk<StreamEvent> flushedEventChunk = new ComplexEventChunk<>(false);
+        while (streamEventChunk.hasNext()) {
+            StreamEvent streamEvent = streamEventChunk.next();
+            long eventTimestamp = streamEvent.getTimestamp();
+
+            if (streamEvent.getType() == StreamEvent.Type.CURRENT) {
+                String key = (String) tracekeyExecutor.execute(streamEvent);
+                StreamEvent span;
+                if (compactSpanLayout == null) {
+                    span = streamEventCloner.copyStreamEvent(streamEvent);
+                    span.setType(StreamEvent.Type.EXPIRED);
+                } else {
+                    // Only the retained attributes are copied by the shard
+                    span = streamEvent;
                 }
+
+                long endTimestamp = TraceGroupShard.select(shards, key).add(key, span, eventTimestamp,
+                        flushedEventChunk);
+                if (endTimestamp != TraceGroupShard.LATE_SPAN) {
+                    scheduleExpiry(eventTimestamp, endTimestamp);
+                } else {
+                    streamEventChunk.remove();
+                    log.info("The event, " + span + " is late and it's tracegroup window has been timeout");
+                }
+            } else if (streamEvent.getType() == ComplexEvent.Type.TIMER) {
+                isTimerEvent = true;
+                currentTraceTimeout(eventTimestamp);
             }
         }
         if (!isTimerEvent) {
             nextProcessor.process(streamEventChunk);
         }
-        if (expiredEventChunk != null && expiredEventChunk.getFirst() != null) {
-            nextProcessor.process(expiredEventChunk);
-            expiredEventChunk.clear();
+        if (flushedEventChunk.getFirst() != null) {
+            release(flushedEventChunk);
         }
     }
 
     /**
-     * Handles when the late event arrives to the system.
+     * Schedule a timer for the expiry of a trace group.
+     * The expiry is rounded up to the next tick and a timer is scheduled only if there is no pending timer
+     * for that tick.
+     *
+     * The scheduler notifies in the order the timers were scheduled, which only matches the expiry order when the
+     * end timestamps never move backwards. Since a trace detected to be complete can end before the traces added
+     * earlier, a single timer is kept pending at the next tick instead when complete traces are released early.
+     * The timestamp of that timer is remembered, so that any other timer, such as the timers restored by the
+     * scheduler from a snapshot, does not start another chain of timers.
+     *
+     * @param eventTimestamp The timestamp of the span added to the trace group
+     * @param endTimestamp   The end timestamp of the trace group
      */
-    private void addLateEvent(ComplexEventChunk<StreamEvent> streamEventChunk,
-                              long eventTimestamp, StreamEvent streamEvent, TraceGroup traceGroup) {
-        //check the late event belongs to the same trace
-        if (eventTimestamp >= (traceGroup.getStartTimestamp() - idleTimeGap)) {
-            traceGroup.add(streamEvent);
-            traceGroup.setStartTimestamp(eventTimestamp);
+    private void scheduleExpiry(long eventTimestamp, long endTimestamp) {
+        if (traceCompletion == null) {
+            long expiryTimestamp = (endTimestamp + expiryTick - 1) / expiryTick * expiryTick;
+            if (scheduledExpiryTimestamps.add(expiryTimestamp)) {
+                scheduler.notifyAt(expiryTimestamp);
+            }
         } else {
-            streamEventChunk.remove();
-            log.info("The event, " + streamEvent + " is late and it's tracegroup window has been timeout");
+            scheduleExpiryTick((eventTimestamp / expiryTick + 1) * expiryTick);
+        }
+    }
+
+    private void scheduleExpiryTick(long tickTimestamp) {
+        if (pendingExpiryTick.compareAndSet(NO_PENDING_EXPIRY_TICK, tickTimestamp)) {
+            scheduler.notifyAt(tickTimestamp);
         }
     }
 
     /**
-     * Checks all the traces and get the expired trace.
+     * Checks all the shards and releases the expired traces.
+     * Expired traces are released while holding the processor lock since the expired event chunk is shared.
      */
-    private void currentTraceTimeout(long eventTimestamp) {
-        Collection<TraceGroup> traceGroupList = traceGroupMap.values();
-        TreeSet<TraceGroup> currentEndTimestamps = new TreeSet<>(traceGroupList);
-        for (TraceGroup aTraceGroup : currentEndTimestamps) {
-            long traceEndTime = aTraceGroup.getEndTimestamp();
-            if (eventTimestamp >= traceEndTime) {
-                synchronized (aTraceGroup.getKey().intern()) {
-                    TraceGroup currentTraceGroup = traceGroupMap.get(aTraceGroup.getKey());
-                    ComplexEventChunk<StreamEvent> events = currentTraceGroup.getCurrentTraceGroup();
-                    if (events.getFirst() != null) {
-                        expiredEventChunk.add(events.getFirst());
-                        currentTraceGroup.clear();
-                    }
-                    traceGroupMap.remove(aTraceGroup.getKey());
-                }
-            } else {
-                break;
+    private synchronized void currentTraceTimeout(long eventTimestamp) {
+        scheduledExpiryTimestamps.headSet(eventTimestamp, true).clear();
+        for (TraceGroupShard shard : shards) {
+            shard.expire(eventTimestamp, expiredEventChunk);
+        }
+        if (expiredEventChunk.getFirst() != null) {
+            nextProcessor.process(expiredEventChunk);
+            expiredEventChunk.clear();
+        }
+        // Only the pending tick schedules the next tick, and timers before it are duplicates which are not re-armed
+        if (traceCompletion != null && eventTimestamp >= pendingExpiryTick.get()) {
+            pendingExpiryTick.set(NO_PENDING_EXPIRY_TICK);
+            if (!isEmpty()) {
+                scheduleExpiryTick(eventTimestamp + expiryTick);
+            }
+        }
+    }
+
+    private boolean isEmpty() {
+        for (TraceGroupShard shard : shards) {
+            if (!shard.isEmpty()) {
+                return false;
             }
         }
+        return true;
+    }
+
+    /**
+     * Releases the traces which were flushed from the shards before their idle time gap elapsed.
+     */
+    private synchronized void release(ComplexEventChunk<StreamEvent> flushedEventChunk) {
+        expiredEventChunk.add(flushedEventChunk.getFirst());
+        nextProcessor.process(expiredEventChunk);
+        expiredEventChunk.clear();
     }
 
     @Override
@@ -247,18 +477,68 @@ public class TraceGroupWindowProcessor extends StreamProcessor implements Schedu
         //Do nothing
     }
 
+    /**
+     * Take a snapshot of the trace groups, with one entry per shard.
+     * Each shard provides an incremental snapshot containing only the trace groups changed since its last snapshot
+     * unless a full snapshot is requested, so that the time spent and the size of incremental snapshots depend on
+     * the number of trace groups changed rather than the number of trace groups held by the window.
+     */
     @Override
     public synchronized Map<String, Object> currentState() {
+        boolean fullSnapshotRequested = SnapshotRequest.isRequestForFullSnapshot();
         Map<String, Object> state = new HashMap<>();
-        state.put("traceGroupMap", traceGroupMap);
-        state.put("expiredEventChunk", expiredEventChunk);
+        for (int i = 0; i < shards.length; i++) {
+            state.put(TRACE_GROUPS_STATE_KEY_PREFIX + i, shards[i].snapshot(fullSnapshotRequested));
+        }
         return state;
     }
 
+    /**
+     * Restore the trace groups from a full snapshot, or from a full snapshot followed by incremental snapshots.
+     * The shards of the snapshots are restored independently since the number of shards could have changed.
+     */
     @Override
     public synchronized void restoreState(Map<String, Object> state) {
-        traceGroupMap = (ConcurrentHashMap<String, TraceGroup>) state.get("traceGroupMap");
-        expiredEventChunk = (ComplexEventChunk<StreamEvent>) state.get("expiredEventChunk");
+        for (TraceGroupShard shard : shards) {
+            shard.clear();
+        }
+        Map<String, TraceGroup> traceGroupMap = new HashMap<>();
+        if (state.containsKey(LEGACY_TRACE_GROUP_MAP_STATE_KEY)) {
+            traceGroupMap.putAll((Map<String, TraceGroup>) state.get(LEGACY_TRACE_GROUP_MAP_STATE_KEY));
+        }
+        for (Map.Entry<String, Object> stateEntry : state.entrySet()) {
+            if (stateEntry.getKey().startsWith(TRACE_GROUPS_STATE_KEY_PREFIX)) {
+                Map<String, TraceGroup> shardTraceGroupMap = new HashMap<>();
+                if (stateEntry.getValue() instanceof SnapshotStateList) {
+                    for (SnapshotState snapshotState
+                            : ((SnapshotStateList) stateEntry.getValue()).getSnapshotStates().values()) {
+                        restoreSnapshot(snapshotState, shardTraceGroupMap);
+                    }
+                } else {
+                    restoreSnapshot((SnapshotState) stateEntry.getValue(), shardTraceGroupMap);
+                }
+                traceGroupMap.putAll(shardTraceGroupMap);
+            }
+        }
+        for (TraceGroup traceGroup : traceGroupMap.values()) {
+            TraceGroupShard.select(shards, traceGroup.getKey()).put(traceGroup);
+        }
+        scheduledExpiryTimestamps.clear();
+        if (traceCompletion != null) {
+            // The timers restored by the scheduler before the new pending tick are not re-armed
+            pendingExpiryTick.set(NO_PENDING_EXPIRY_TICK);
+            if (!isEmpty()) {
+                long currentTime = siddhiAppContext.getTimestampGenerator().currentTime();
+                scheduleExpiryTick((currentTime / expiryTick + 1) * expiryTick);
+            }
+        }
+    }
+
+    private void restoreSnapshot(SnapshotState snapshotState, Map<String, TraceGroup> traceGroupMap) {
+        if (!snapshotState.isIncrementalSnapshot()) {
+            traceGroupMap.clear();
+        }
+        TraceGroupShard.restore((byte[]) snapshotState.getState(), compactSpanLayout, traceGroupMap);
     }
 
     @Override
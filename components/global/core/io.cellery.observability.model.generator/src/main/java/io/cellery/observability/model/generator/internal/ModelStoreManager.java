@@ -20,6 +20,7 @@ package io.cellery.observability.model.generator.internal;
 import com.google.common.graph.MutableNetwork;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import io.cellery.observability.model.generator.ModelManager;
 import io.cellery.observability.model.generator.Node;
 import io.cellery.observability.model.generator.Utils;
 import io.cellery.observability.model.generator.exception.GraphStoreException;
@@ -36,8 +37,11 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import javax.sql.DataSource;
 
@@ -170,9 +174,13 @@ public class ModelStoreManager {
     }
 
     public Model persistModel(MutableNetwork<Node, String> graph) throws GraphStoreException {
+        return persistModel(graph.nodes(), graph.edges());
+    }
+
+    private Model persistModel(Set<Node> nodeSet, Set<String> edgeSet) throws GraphStoreException {
         try {
-            String nodes = gson.toJson(graph.nodes(), NODE_SET_TYPE);
-            String edges = gson.toJson(graph.edges(), STRING_SET_TYPE);
+            String nodes = gson.toJson(nodeSet, NODE_SET_TYPE);
+            String edges = gson.toJson(edgeSet, STRING_SET_TYPE);
             Connection connection = getConnection();
             PreparedStatement statement = connection.prepareStatement("INSERT INTO " + TABLE_NAME
                     + " VALUES (?, ?, ?)");
@@ -190,19 +198,34 @@ public class ModelStoreManager {
         }
     }
 
-    public void storeCurrentModel() throws GraphStoreException {
+    /**
+     * Persist the current dependency model if it had changed since the last persisted model.
+     * Only copying the dependency model holds the model manager, so that the dependencies of traces can be merged
+     * into the model while it is compared and persisted.
+     *
+     * @throws GraphStoreException If persisting the dependency model failed
+     */
+    public synchronized void storeCurrentModel() throws GraphStoreException {
+        ModelManager modelManager = ServiceHolder.getModelManager();
+        Set<Node> currentNodes;
+        Set<String> currentEdges;
+        synchronized (modelManager) {
+            currentNodes = modelManager.copyNodes();
+            currentEdges = modelManager.copyEdges();
+        }
+        storeModel(currentNodes, currentEdges);
+    }
+
+    private void storeModel(Set<Node> currentNodes, Set<String> currentEdges) throws GraphStoreException {
         try {
-            MutableNetwork<Node, String> currentModel = ServiceHolder.getModelManager().getDependencyGraph();
             if (lastModel == null) {
                 this.lastModel = loadLastModel();
             }
             if (this.lastModel == null) {
-                if (currentModel.nodes().size() != 0) {
-                    lastModel = ServiceHolder.getModelStoreManager().persistModel(currentModel);
+                if (currentNodes.size() != 0) {
+                    lastModel = persistModel(currentNodes, currentEdges);
                 }
             } else {
-                Set<Node> currentNodes = currentModel.nodes();
-                Set<String> currentEdges = currentModel.edges();
                 Set<Node> lastNodes = this.lastModel.getNodes();
                 Set<String> lastEdges = Utils.getEdgesString(this.lastModel.getEdges());
                 if (currentEdges.size() == lastEdges.size() && currentNodes.size() == lastNodes.size()) {
@@ -210,7 +233,7 @@ public class ModelStoreManager {
                         return;
                     }
                 }
-                lastModel = ServiceHolder.getModelStoreManager().persistModel(currentModel);
+                lastModel = persistModel(currentNodes, currentEdges);
             }
         } catch (GraphStoreException e) {
             log.error("Error occurred while handling the dependency graph persistence. ", e);
@@ -220,15 +243,13 @@ public class ModelStoreManager {
 
     private boolean isSameNodes(Set<Node> currentNodes, Set<Node> lastNodes) {
         boolean isSameModel = true;
+        // Index the nodes of the last persisted graph by the ids they are compared by
+        Map<String, Node> lastNodeMap = new HashMap<>(lastNodes.size());
+        for (Node node : lastNodes) {
+            lastNodeMap.putIfAbsent(node.getId().toLowerCase(Locale.ENGLISH), node);
+        }
         for (Node currentNode : currentNodes) {
-            Node lastNode = null;
-            //Find the node from the last persisted graph
-            for (Node node : lastNodes) {
-                if (node.equals(currentNode)) {
-                    lastNode = node;
-                    break;
-                }
-            }
+            Node lastNode = lastNodeMap.get(currentNode.getId().toLowerCase(Locale.ENGLISH));
             // Check the services within the node is also same.
             if (lastNode != null) {
                 if (lastNode.getComponents().size() == currentNode.getComponents().size()) {
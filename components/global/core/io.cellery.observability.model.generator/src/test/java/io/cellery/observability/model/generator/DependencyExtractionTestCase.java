@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import io.cellery.observability.metrics.MetricsRegistry;
+import io.cellery.observability.model.generator.datasource.FailureDatasourceServiceImpl;
+import io.cellery.observability.model.generator.internal.ModelStoreManager;
+import io.cellery.observability.model.generator.internal.ServiceHolder;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.datasource.core.api.DataSourceService;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+import org.wso2.siddhi.core.util.config.InMemoryConfigManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * This test case validates the dependencies extracted from the traces in parallel against the dependencies extracted
+ * sequentially.
+ */
+public class DependencyExtractionTestCase {
+
+    private static final int TRACE_COUNT = 500;
+    private static final int WAIT_TIME = 50;
+    private static final int TIMEOUT = 10000;
+    private static final String QUEUE_DEPTH_METRIC = "cellery_model_generator_extraction_queue_depth";
+
+    private DataSourceService originalDataSourceService;
+    private ModelStoreManager originalModelStoreManager;
+    private ModelManager originalModelManager;
+    private List<Object[]> spans;
+
+    @BeforeClass
+    public void init() {
+        originalDataSourceService = ServiceHolder.getDataSourceService();
+        originalModelStoreManager = ServiceHolder.getModelStoreManager();
+        originalModelManager = ServiceHolder.getModelManager();
+        ServiceHolder.setDataSourceService(new FailureDatasourceServiceImpl(true, null));
+        ServiceHolder.setModelStoreManager(new InMemoryModelStoreManager());
+        spans = generateSpans(TRACE_COUNT);
+    }
+
+    @AfterClass
+    public void cleanup() {
+        ServiceHolder.setDataSourceService(originalDataSourceService);
+        ServiceHolder.setModelStoreManager(originalModelStoreManager);
+        ServiceHolder.setModelManager(originalModelManager);
+    }
+
+    @Test
+    public void testParallelExtraction() throws Exception {
+        Map<String, String> sequentialModel = extractModel("0");
+        Map<String, String> parallelModel = extractModel("8");
+
+        Assert.assertTrue(sequentialModel.keySet().stream().filter(key -> key.startsWith("edge:")).count() > 10);
+        Assert.assertEquals(parallelModel, sequentialModel);
+    }
+
+    @Test
+    public void testTracesQueuedAtStop() throws Exception {
+        Map<String, String> sequentialModel = extractModel("0");
+
+        ModelManager modelManager = new ModelManager();
+        ServiceHolder.setModelManager(modelManager);
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime("1");
+        siddhiAppRuntime.start();
+        Thread stopThread;
+        // Merging the dependencies is blocked, and hence the extracted traces are queued
+        synchronized (modelManager) {
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler("SpanStream");
+            for (Object[] span : spans) {
+                inputHandler.send(span);
+            }
+            waitForQueueDepth(TRACE_COUNT - 1);
+
+            stopThread = new Thread(siddhiAppRuntime::shutdown);
+            stopThread.start();
+            Thread.sleep(200);
+            Assert.assertTrue(stopThread.isAlive());
+        }
+        stopThread.join(TIMEOUT);
+
+        Assert.assertFalse(stopThread.isAlive());
+        Assert.assertEquals(describeModel(modelManager), sequentialModel);
+    }
+
+    /**
+     * Extract the dependency model from the generated spans.
+     * A marker trace sent after all the other traces had expired is waited for, and stopping the extension extracts
+     * the traces still queued. The marker is not included in the returned model.
+     *
+     * @param extractionThreads The number of extraction threads
+     * @return The description of the extracted dependency model
+     */
+    private Map<String, String> extractModel(String extractionThreads) throws Exception {
+        ModelManager modelManager = new ModelManager();
+        ServiceHolder.setModelManager(modelManager);
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(extractionThreads);
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("SpanStream");
+        for (Object[] span : spans) {
+            inputHandler.send(span);
+        }
+        Thread.sleep(500);
+        inputHandler.send(new Object[]{"marker", "marker", "", "marker-cell", "marker", "get", "SERVER", 0L});
+        long waitedTime = 0;
+        while (modelManager.getNode("marker-cell") == null && waitedTime < TIMEOUT) {
+            Thread.sleep(WAIT_TIME);
+            waitedTime += WAIT_TIME;
+        }
+        siddhiAppRuntime.shutdown();
+        Assert.assertNotNull(modelManager.getNode("marker-cell"));
+        Map<String, String> model = describeModel(modelManager);
+        model.remove("node:marker-cell");
+        return model;
+    }
+
+    private SiddhiAppRuntime createSiddhiAppRuntime(String extractionThreads) {
+        Map<String, String> extensionConfigs = new HashMap<>();
+        extensionConfigs.put("observe.modelGenerator.extraction.threads", extractionThreads);
+        extensionConfigs.put("observe.modelGenerator.extraction.queue.size", String.valueOf(TRACE_COUNT * 2));
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setConfigManager(new InMemoryConfigManager(extensionConfigs, null));
+        siddhiManager.setExtension("observe:traceGroupWindow", TraceGroupWindowProcessor.class);
+        siddhiManager.setExtension("observe:modelGenerator", ModelGenerationExtension.class);
+        String query = "define stream SpanStream(traceId string, spanId string, parentId string, cell string, "
+                + "serviceName string, operationName string, kind string, startTime long);\n"
+                + "from SpanStream#observe:traceGroupWindow(100 millisec, traceId)#observe:modelGenerator(cell, "
+                + "serviceName, operationName, spanId, parentId, kind, traceId, startTime)\n"
+                + "select *\n"
+                + "insert into AfterModelGenStream;";
+        return siddhiManager.createSiddhiAppRuntime(query);
+    }
+
+    /**
+     * Generate random traces, each with a root span and a tree of spans in different cells and components.
+     *
+     * @param traceCount The number of traces
+     * @return The spans of the traces
+     */
+    private List<Object[]> generateSpans(int traceCount) {
+        Random random = new Random(42);
+        List<Object[]> generatedSpans = new ArrayList<>();
+        for (int i = 0; i < traceCount; i++) {
+            String traceId = "trace-" + i;
+            List<String> spanIds = new ArrayList<>();
+            spanIds.add(traceId);
+            generatedSpans.add(new Object[]{traceId, traceId, "", "cell-" + random.nextInt(4), "gateway", "get",
+                    "SERVER", 0L});
+            int spanCount = 1 + random.nextInt(6);
+            for (int j = 1; j <= spanCount; j++) {
+                String spanId = traceId + "-" + j;
+                String parentId = spanIds.get(random.nextInt(spanIds.size()));
+                generatedSpans.add(new Object[]{traceId, spanId, parentId, "cell-" + random.nextInt(8),
+                        "component-" + random.nextInt(3), "get", "SERVER", (long) j});
+                spanIds.add(spanId);
+            }
+        }
+        return generatedSpans;
+    }
+
+    private Map<String, String> describeModel(ModelManager modelManager) {
+        Map<String, String> description = new TreeMap<>();
+        for (Node node : modelManager.copyNodes()) {
+            description.put("node:" + node.getId(), new TreeSet<>(node.getComponents()) + " "
+                    + new TreeSet<>(node.getEdges()));
+        }
+        for (String edge : modelManager.copyEdges()) {
+            description.put("edge:" + edge, "");
+        }
+        return description;
+    }
+
+    private void waitForQueueDepth(int expectedQueueDepth) throws InterruptedException {
+        long waitedTime = 0;
+        while (getQueueDepth() < expectedQueueDepth && waitedTime < TIMEOUT) {
+            Thread.sleep(WAIT_TIME);
+            waitedTime += WAIT_TIME;
+        }
+        Assert.assertEquals(getQueueDepth(), expectedQueueDepth);
+    }
+
+    private int getQueueDepth() {
+        for (String line : MetricsRegistry.getDefault().toPrometheusText().split("\n")) {
+            if (line.startsWith(QUEUE_DEPTH_METRIC + " ")) {
+                return (int) Double.parseDouble(line.substring(QUEUE_DEPTH_METRIC.length() + 1));
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import io.cellery.observability.model.generator.exception.GraphStoreException;
+import io.cellery.observability.model.generator.internal.ModelStoreManager;
+import io.cellery.observability.model.generator.internal.ServiceHolder;
+import io.cellery.observability.model.generator.model.Model;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is the model store manager which keeps the stored models in memory, to use within the unit test cases.
+ * The datasource service in the service holder should be set before creating this.
+ */
+public class InMemoryModelStoreManager extends ModelStoreManager {
+    private final List<Model> storedModels = new CopyOnWriteArrayList<>();
+    private final AtomicInteger storeAttempts = new AtomicInteger(0);
+    private final AtomicInteger remainingFailures = new AtomicInteger(0);
+
+    @Override
+    public Model loadLastModel() {
+        return null;
+    }
+
+    @Override
+    public void storeCurrentModel() throws GraphStoreException {
+        storeAttempts.incrementAndGet();
+        if (remainingFailures.getAndUpdate(failures -> failures > 0 ? failures - 1 : 0) > 0) {
+            throw new GraphStoreException("Simulated failure in storing the model");
+        }
+        ModelManager modelManager = ServiceHolder.getModelManager();
+        synchronized (modelManager) {
+            storedModels.add(new Model(modelManager.copyNodes(), Utils.getEdges(modelManager.copyEdges())));
+        }
+    }
+
+    /**
+     * Fail the next attempts to store the model.
+     *
+     * @param failures The number of attempts to fail
+     */
+    public void failNextStores(int failures) {
+        remainingFailures.set(failures);
+    }
+
+    public List<Model> getStoredModels() {
+        return storedModels;
+    }
+
+    public int getStoreAttempts() {
+        return storeAttempts.get();
+    }
+}
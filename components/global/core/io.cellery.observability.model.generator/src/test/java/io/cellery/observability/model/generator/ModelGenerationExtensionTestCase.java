@@ -20,6 +20,10 @@ package io.cellery.observability.model.generator;
 import org.testng.annotations.Test;
 import org.wso2.siddhi.core.SiddhiManager;
 import org.wso2.siddhi.core.exception.SiddhiAppCreationException;
+import org.wso2.siddhi.core.util.config.InMemoryConfigManager;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This test case focuses on the model generation extension initialization
@@ -71,6 +75,16 @@ public class ModelGenerationExtensionTestCase {
         initSiddhi(getParam(7));
     }
 
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initWithNegativePersistInterval() {
+        initSiddhi(getParam(-1), createConfig("persist.interval", "-1"));
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initWithNonNumberPersistMaxDelay() {
+        initSiddhi(getParam(-1), createConfig("persist.max.delay", "10 sec"));
+    }
+
     private String getParam(int index) {
         String traceId = "traceId";
         String timestamp = "timestamp";
@@ -102,7 +116,17 @@ public class ModelGenerationExtensionTestCase {
         return param;
     }
 
+    private InMemoryConfigManager createConfig(String key, String value) {
+        Map<String, String> extensionConfigs = new HashMap<>();
+        extensionConfigs.put("observe.modelGenerator." + key, value);
+        return new InMemoryConfigManager(extensionConfigs, null);
+    }
+
     private void initSiddhi(String paramString) {
+        initSiddhi(paramString, new InMemoryConfigManager());
+    }
+
+    private void initSiddhi(String paramString, InMemoryConfigManager configManager) {
         String query = "define stream ZipkinStreamIn(traceId string, id string, parentId string, name string, " +
                 "serviceName string," +
                 "kind string, timestamp long, duration long, tags string);\n";
@@ -110,6 +134,7 @@ public class ModelGenerationExtensionTestCase {
                 "select *\n" +
                 "insert into AfterModelGenStream;";
         SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setConfigManager(configManager);
         siddhiManager.setExtension("observe:modelGenerator", ModelGenerationExtension.class);
         siddhiManager.createSiddhiAppRuntime(query);
     }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import io.cellery.observability.model.generator.datasource.FailureDatasourceServiceImpl;
+import io.cellery.observability.model.generator.internal.ModelStoreManager;
+import io.cellery.observability.model.generator.internal.ServiceHolder;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.datasource.core.api.DataSourceService;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This test case validates when the changes of the dependency model are persisted.
+ * The persister is driven by calling it at the end of each interval with a manual clock.
+ */
+public class ModelPersisterTestCase {
+
+    private static final long INTERVAL = 100;
+    private static final long MAX_DELAY = 1000;
+
+    private DataSourceService originalDataSourceService;
+    private ModelStoreManager originalModelStoreManager;
+    private ModelManager originalModelManager;
+    private InMemoryModelStoreManager modelStoreManager;
+    private AtomicLong currentTime;
+    private ModelPersister modelPersister;
+
+    @BeforeClass
+    public void init() {
+        originalDataSourceService = ServiceHolder.getDataSourceService();
+        originalModelStoreManager = ServiceHolder.getModelStoreManager();
+        originalModelManager = ServiceHolder.getModelManager();
+        ServiceHolder.setDataSourceService(new FailureDatasourceServiceImpl(true, null));
+    }
+
+    @AfterClass
+    public void cleanup() {
+        ServiceHolder.setDataSourceService(originalDataSourceService);
+        ServiceHolder.setModelStoreManager(originalModelStoreManager);
+        ServiceHolder.setModelManager(originalModelManager);
+    }
+
+    @BeforeMethod
+    public void initPersister() throws Exception {
+        modelStoreManager = new InMemoryModelStoreManager();
+        ServiceHolder.setModelStoreManager(modelStoreManager);
+        ServiceHolder.setModelManager(new ModelManager());
+        currentTime = new AtomicLong(0);
+        modelPersister = new ModelPersister(INTERVAL, MAX_DELAY, currentTime::get);
+    }
+
+    @Test
+    public void testNoPersistenceWhileChanging() {
+        // The maximum delay starts at the end of the interval in which the first change was made
+        for (int i = 0; i < MAX_DELAY / INTERVAL; i++) {
+            modelPersister.markChanged();
+            endInterval();
+            Assert.assertEquals(modelStoreManager.getStoreAttempts(), 0);
+        }
+
+        modelPersister.markChanged();
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 1);
+        modelPersister.markChanged();
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 1);
+    }
+
+    @Test
+    public void testPersistenceAfterIntervalWithoutChanges() {
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 0);
+
+        modelPersister.markChanged();
+        modelPersister.markChanged();
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 0);
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 1);
+        Assert.assertEquals(modelStoreManager.getStoredModels().size(), 1);
+
+        // Nothing is persisted again until the model is changed
+        endInterval();
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 1);
+    }
+
+    @Test
+    public void testRetryAfterFailure() {
+        modelStoreManager.failNextStores(1);
+        modelPersister.markChanged();
+        endInterval();
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 1);
+        Assert.assertEquals(modelStoreManager.getStoredModels().size(), 0);
+
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 2);
+        Assert.assertEquals(modelStoreManager.getStoredModels().size(), 1);
+        endInterval();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 2);
+    }
+
+    @Test
+    public void testPersistenceOnStop() {
+        modelPersister = new ModelPersister(60000, 60000);
+        modelPersister.start();
+        modelPersister.markChanged();
+        modelPersister.stop();
+        Assert.assertEquals(modelStoreManager.getStoredModels().size(), 1);
+
+        // Changes made after stopping are persisted immediately
+        modelPersister.markChanged();
+        Assert.assertEquals(modelStoreManager.getStoredModels().size(), 2);
+    }
+
+    @Test
+    public void testNoPersistenceOnStopWithoutChanges() {
+        modelPersister.start();
+        modelPersister.stop();
+        Assert.assertEquals(modelStoreManager.getStoreAttempts(), 0);
+    }
+
+    private void endInterval() {
+        currentTime.addAndGet(INTERVAL);
+        modelPersister.persistIfChanged(false);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This test case validates the ordering of the trace groups in the expiry queue.
+ */
+public class TraceGroupExpiryQueueTestCase {
+
+    @Test
+    public void testOrdering() {
+        TraceGroupExpiryQueue expiryQueue = new TraceGroupExpiryQueue();
+        List<Long> endTimestamps = new ArrayList<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            long endTimestamp = random.nextInt(100000);
+            endTimestamps.add(endTimestamp);
+            expiryQueue.offer(createTraceGroup("trace-" + i, endTimestamp));
+        }
+        Collections.sort(endTimestamps);
+
+        Assert.assertEquals(expiryQueue.size(), 1000);
+        for (Long endTimestamp : endTimestamps) {
+            Assert.assertEquals(expiryQueue.poll().getEndTimestamp(), endTimestamp.longValue());
+        }
+        Assert.assertNull(expiryQueue.poll());
+        Assert.assertNull(expiryQueue.peek());
+    }
+
+    @Test
+    public void testEqualEndTimestamps() {
+        TraceGroupExpiryQueue expiryQueue = new TraceGroupExpiryQueue();
+        expiryQueue.offer(createTraceGroup("trace-a", 1000));
+        expiryQueue.offer(createTraceGroup("trace-b", 1000));
+        expiryQueue.offer(createTraceGroup("trace-c", 1000));
+
+        Assert.assertEquals(expiryQueue.size(), 3);
+        Assert.assertEquals(expiryQueue.poll().getKey(), "trace-a");
+        Assert.assertEquals(expiryQueue.poll().getKey(), "trace-b");
+        Assert.assertEquals(expiryQueue.poll().getKey(), "trace-c");
+    }
+
+    @Test
+    public void testDistantEndTimestamps() {
+        TraceGroupExpiryQueue expiryQueue = new TraceGroupExpiryQueue();
+        expiryQueue.offer(createTraceGroup("trace-a", Long.MAX_VALUE / 2));
+        expiryQueue.offer(createTraceGroup("trace-b", 0));
+        expiryQueue.offer(createTraceGroup("trace-c", 1L << 40));
+
+        Assert.assertEquals(expiryQueue.poll().getKey(), "trace-b");
+        Assert.assertEquals(expiryQueue.poll().getKey(), "trace-c");
+        Assert.assertEquals(expiryQueue.poll().getKey(), "trace-a");
+    }
+
+    @Test
+    public void testUpdateEndTimestamp() {
+        TraceGroupExpiryQueue expiryQueue = new TraceGroupExpiryQueue();
+        TraceGroup traceGroupA = createTraceGroup("trace-a", 1000);
+        TraceGroup traceGroupB = createTraceGroup("trace-b", 2000);
+        TraceGroup traceGroupC = createTraceGroup("trace-c", 3000);
+        expiryQueue.offer(traceGroupA);
+        expiryQueue.offer(traceGroupB);
+        expiryQueue.offer(traceGroupC);
+
+        traceGroupA.setEndTimestamp(4000);
+        expiryQueue.offer(traceGroupA);
+        traceGroupC.setEndTimestamp(500);
+        expiryQueue.offer(traceGroupC);
+
+        Assert.assertEquals(expiryQueue.size(), 3);
+        Assert.assertSame(expiryQueue.poll(), traceGroupC);
+        Assert.assertSame(expiryQueue.poll(), traceGroupB);
+        Assert.assertSame(expiryQueue.poll(), traceGroupA);
+    }
+
+    @Test
+    public void testRemove() {
+        TraceGroupExpiryQueue expiryQueue = new TraceGroupExpiryQueue();
+        TraceGroup traceGroupA = createTraceGroup("trace-a", 1000);
+        TraceGroup traceGroupB = createTraceGroup("trace-b", 2000);
+        TraceGroup traceGroupC = createTraceGroup("trace-c", 3000);
+        expiryQueue.offer(traceGroupA);
+        expiryQueue.offer(traceGroupB);
+        expiryQueue.offer(traceGroupC);
+
+        expiryQueue.remove(traceGroupA);
+        expiryQueue.remove(traceGroupA);
+        expiryQueue.remove(createTraceGroup("trace-d", 4000));
+
+        Assert.assertEquals(expiryQueue.size(), 2);
+        Assert.assertSame(expiryQueue.poll(), traceGroupB);
+        Assert.assertSame(expiryQueue.poll(), traceGroupC);
+    }
+
+    @Test
+    public void testClear() {
+        TraceGroupExpiryQueue expiryQueue = new TraceGroupExpiryQueue();
+        TraceGroup traceGroup = createTraceGroup("trace-a", 1000);
+        expiryQueue.offer(traceGroup);
+        expiryQueue.clear();
+
+        Assert.assertEquals(expiryQueue.size(), 0);
+        Assert.assertNull(expiryQueue.peek());
+        expiryQueue.offer(traceGroup);
+        Assert.assertEquals(expiryQueue.size(), 1);
+    }
+
+    private TraceGroup createTraceGroup(String key, long endTimestamp) {
+        TraceGroup traceGroup = new TraceGroup(key, 0);
+        traceGroup.setEndTimestamp(endTimestamp);
+        return traceGroup;
+    }
+}
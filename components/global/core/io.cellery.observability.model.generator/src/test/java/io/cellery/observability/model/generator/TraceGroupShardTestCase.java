@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.cellery.observability.model.generator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.event.ComplexEventChunk;
+import org.wso2.siddhi.core.event.stream.StreamEvent;
+import org.wso2.siddhi.core.util.snapshot.state.SnapshotState;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This test case validates the full and incremental snapshots of the trace groups in a shard.
+ */
+public class TraceGroupShardTestCase {
+
+    private static final long IDLE_TIME_GAP = 100;
+
+    @Test
+    public void testIncrementalSnapshot() {
+        TraceGroupShard shard = new TraceGroupShard(IDLE_TIME_GAP, 0, 0, 0, null, null);
+        ComplexEventChunk<StreamEvent> eventChunk = new ComplexEventChunk<>(false);
+        for (int i = 0; i < 100; i++) {
+            shard.add("trace-" + i, createSpan("trace-" + i, "span-" + i, 1000 + i), 1000 + i, eventChunk);
+        }
+        SnapshotState fullSnapshot = shard.snapshot(false);
+
+        shard.add("trace-99", createSpan("trace-99", "span-100", 1100), 1100, eventChunk);
+        shard.expire(1101, eventChunk);     // Expires trace-0 and trace-1
+        SnapshotState incrementalSnapshot = shard.snapshot(false);
+
+        Assert.assertFalse(fullSnapshot.isIncrementalSnapshot());
+        Assert.assertTrue(incrementalSnapshot.isIncrementalSnapshot());
+        Assert.assertTrue(((byte[]) incrementalSnapshot.getState()).length
+                < ((byte[]) fullSnapshot.getState()).length / 10);
+
+        Map<String, TraceGroup> traceGroups = new HashMap<>();
+        TraceGroupShard.restore((byte[]) fullSnapshot.getState(), null, traceGroups);
+        Assert.assertEquals(traceGroups.size(), 100);
+        TraceGroupShard.restore((byte[]) incrementalSnapshot.getState(), null, traceGroups);
+        Assert.assertEquals(traceGroups.size(), 98);
+        Assert.assertFalse(traceGroups.containsKey("trace-0"));
+        Assert.assertFalse(traceGroups.containsKey("trace-1"));
+
+        TraceGroup traceGroup = traceGroups.get("trace-99");
+        Assert.assertEquals(traceGroup.getSpanCount(), 2);
+        Assert.assertEquals(traceGroup.getStartTimestamp(), 1099);
+        Assert.assertEquals(traceGroup.getEndTimestamp(), 1100 + IDLE_TIME_GAP);
+        StreamEvent span = traceGroup.getCurrentTraceGroup().getFirst();
+        Assert.assertEquals(span.getTimestamp(), 1099);
+        Assert.assertEquals(span.getOutputData(), new Object[]{"trace-99", "span-99", null, 1099L, 10, true});
+        span = (StreamEvent) span.getNext();
+        Assert.assertEquals(span.getOutputData(), new Object[]{"trace-99", "span-100", null, 1100L, 10, true});
+        Assert.assertNull(span.getNext());
+    }
+
+    @Test
+    public void testRequestedFullSnapshot() {
+        TraceGroupShard shard = new TraceGroupShard(IDLE_TIME_GAP, 0, 0, 0, null, null);
+        ComplexEventChunk<StreamEvent> eventChunk = new ComplexEventChunk<>(false);
+        shard.add("trace-a", createSpan("trace-a", "span-1", 1000), 1000, eventChunk);
+        shard.snapshot(false);
+        shard.add("trace-b", createSpan("trace-b", "span-2", 1000), 1000, eventChunk);
+
+        SnapshotState snapshot = shard.snapshot(true);
+        Assert.assertFalse(snapshot.isIncrementalSnapshot());
+        Map<String, TraceGroup> traceGroups = new HashMap<>();
+        TraceGroupShard.restore((byte[]) snapshot.getState(), null, traceGroups);
+        Assert.assertEquals(traceGroups.size(), 2);
+
+        shard.clear();
+        Assert.assertFalse(shard.snapshot(false).isIncrementalSnapshot());
+    }
+
+    private StreamEvent createSpan(String traceId, String spanId, long timestamp) {
+        StreamEvent streamEvent = new StreamEvent(0, 0, 6);
+        streamEvent.setTimestamp(timestamp);
+        streamEvent.setType(StreamEvent.Type.EXPIRED);
+        streamEvent.setOutputData(new Object[]{traceId, spanId, null, timestamp, 10, true});
+        return streamEvent;
+    }
+}
@@ -17,15 +17,49 @@
  */
 package io.cellery.observability.model.generator;
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
 import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.event.ComplexEvent;
+import org.wso2.siddhi.core.event.ComplexEventChunk;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.event.stream.StreamEvent;
+import org.wso2.siddhi.core.event.stream.StreamEventCloner;
+import org.wso2.siddhi.core.event.stream.populater.ComplexEventPopulater;
 import org.wso2.siddhi.core.exception.SiddhiAppCreationException;
+import org.wso2.siddhi.core.query.output.callback.QueryCallback;
+import org.wso2.siddhi.core.query.processor.Processor;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+import org.wso2.siddhi.core.util.SiddhiTestHelper;
+import org.wso2.siddhi.core.util.config.InMemoryConfigManager;
+import org.wso2.siddhi.core.util.persistence.InMemoryPersistenceStore;
+import org.wso2.siddhi.core.util.persistence.IncrementalFileSystemPersistenceStore;
+import org.wso2.siddhi.core.util.snapshot.PersistenceReference;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This test case validates test group window processor initialization.
+ * This test case validates test group window processor initialization and the grouping of the spans.
  */
 public class TraceGroupWindowProcessorTestCase {
 
+    private static final int WAIT_TIME = 50;
+    private static final int TIMEOUT = 5000;
+
     @Test(expectedExceptions = SiddhiAppCreationException.class)
     public void initializeWithNoAttribute() {
         initSiddhi("");
@@ -51,7 +85,520 @@ public class TraceGroupWindowProcessorTestCase {
         initSiddhi("5 sec, timestamp");
     }
 
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initializeWithNonIntegerShards() {
+        initSiddhi("5 sec, traceId", createConfig("shards", "many"));
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initializeWithZeroShards() {
+        initSiddhi("5 sec, traceId", createConfig("shards", "0"));
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initializeWithZeroExpiryTick() {
+        initSiddhi("5 sec, traceId", createConfig("expiry.tick", "0"));
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initializeWithNegativeMaxTraces() {
+        initSiddhi("5 sec, traceId", createConfig("max.traces", "-1"));
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initializeWithConstantRetainedAttribute() {
+        initSiddhi("5 sec, traceId, id, 'test'");
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initializeWithStringCompletionGracePeriod() {
+        initSiddhi("5 sec, traceId, 'test', id, parentId");
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initializeWithNoParentIdAttribute() {
+        initSiddhi("5 sec, traceId, 1 sec, id");
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void initializeWithNonStringSpanIdAttribute() {
+        initSiddhi("5 sec, traceId, 1 sec, timestamp, parentId");
+    }
+
+    @Test
+    public void testGroupingSpansInParallel() throws Exception {
+        int traceCount = 100;
+        int spansPerTrace = 5;
+        List<Event> expiredEvents = Collections.synchronizedList(new ArrayList<>());
+        Set<String> expiredTraceChunks = ConcurrentHashMap.newKeySet();
+        AtomicInteger expiredChunkCount = new AtomicInteger(0);
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(createConfig("shards", "3"));
+        siddhiAppRuntime.addCallback("query1", new QueryCallback() {
+            @Override
+            public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                if (removeEvents != null) {
+                    int expiredChunkIndex = expiredChunkCount.incrementAndGet();
+                    for (Event removeEvent : removeEvents) {
+                        expiredTraceChunks.add(removeEvent.getData(0) + ":" + expiredChunkIndex);
+                        expiredEvents.add(removeEvent);
+                    }
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < traceCount; i++) {
+                String traceId = "trace-" + i;
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < spansPerTrace; j++) {
+                        inputHandler.send(createSpan(traceId, "span-" + j, System.currentTimeMillis()));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, traceCount * spansPerTrace, expiredEvents, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(expiredEvents.size(), traceCount * spansPerTrace);
+        // All the spans of a trace are expected to be released together
+        Assert.assertEquals(expiredTraceChunks.size(), traceCount);
+    }
+
+    @Test
+    public void testCoalescedExpiry() throws Exception {
+        List<String> expiredTraceIds = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger expiredChunkCount = new AtomicInteger(0);
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(createConfig("expiry.tick", "1000"));
+        siddhiAppRuntime.addCallback("query1", new QueryCallback() {
+            @Override
+            public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                if (removeEvents != null) {
+                    expiredChunkCount.incrementAndGet();
+                    for (Event removeEvent : removeEvents) {
+                        expiredTraceIds.add((String) removeEvent.getData(0));
+                    }
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        // The traces ending within the same tick are expected to be expired together
+        long tickStartTimestamp = System.currentTimeMillis() / 1000 * 1000 + 1;
+        inputHandler.send(createSpan("trace-a", "span-1", tickStartTimestamp));
+        inputHandler.send(createSpan("trace-b", "span-2", tickStartTimestamp + 300));
+        inputHandler.send(createSpan("trace-c", "span-3", tickStartTimestamp + 600));
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 3, expiredTraceIds, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(expiredTraceIds.size(), 3);
+        Assert.assertEquals(expiredChunkCount.get(), 1);
+    }
+
+    @Test
+    public void testMaxSpansPerTrace() throws Exception {
+        List<String> expiredSpanIds = Collections.synchronizedList(new ArrayList<>());
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(createConfig("max.spans.per.trace", "3"));
+        addExpiredSpanIdsCallback(siddhiAppRuntime, expiredSpanIds);
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        long currentTimestamp = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            inputHandler.send(createSpan("trace-a", "span-" + i, currentTimestamp));
+        }
+        // The first three spans are released without waiting for the idle time gap
+        Assert.assertEquals(expiredSpanIds, Arrays.asList("span-0", "span-1", "span-2"));
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 5, expiredSpanIds, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(expiredSpanIds, Arrays.asList("span-0", "span-1", "span-2", "span-3", "span-4"));
+    }
+
+    @Test
+    public void testMaxTraces() throws Exception {
+        List<String> expiredSpanIds = Collections.synchronizedList(new ArrayList<>());
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(createConfig("shards", "1", "max.traces", "2"));
+        addExpiredSpanIdsCallback(siddhiAppRuntime, expiredSpanIds);
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        long currentTimestamp = System.currentTimeMillis();
+        inputHandler.send(createSpan("trace-a", "span-1", currentTimestamp));
+        inputHandler.send(createSpan("trace-b", "span-2", currentTimestamp + 1));
+        inputHandler.send(createSpan("trace-c", "span-3", currentTimestamp + 2));
+        // The least recently active trace is released without waiting for the idle time gap
+        Assert.assertEquals(expiredSpanIds, Collections.singletonList("span-1"));
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 3, expiredSpanIds, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(expiredSpanIds, Arrays.asList("span-1", "span-2", "span-3"));
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        List<String> expiredSpanIds = Collections.synchronizedList(new ArrayList<>());
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(createConfig("shards", "1", "max.bytes", "1500"));
+        addExpiredSpanIdsCallback(siddhiAppRuntime, expiredSpanIds);
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        long currentTimestamp = System.currentTimeMillis();
+        inputHandler.send(createSpan("trace-a", "span-1", currentTimestamp));
+        inputHandler.send(createSpan("trace-b", "span-2", currentTimestamp + 1));
+        Assert.assertEquals(expiredSpanIds.size(), 0);
+        inputHandler.send(new Event(currentTimestamp + 2, new Object[]{"trace-c", "span-3", "", "get", "service",
+                "SERVER", currentTimestamp + 2, 10L, new String(new char[300])}));
+        // The least recently active traces are released until the estimated size is within the limit
+        Assert.assertEquals(expiredSpanIds, Arrays.asList("span-1", "span-2"));
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 3, expiredSpanIds, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(expiredSpanIds, Arrays.asList("span-1", "span-2", "span-3"));
+    }
+
+    @Test
+    public void testCompactSpans() throws Exception {
+        int spanCount = 20;
+        List<Event> expiredEvents = Collections.synchronizedList(new ArrayList<>());
+        List<Event> currentEvents = Collections.synchronizedList(new ArrayList<>());
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(new InMemoryConfigManager(),
+                "traceId, id, parentId, timestamp, duration");
+        siddhiAppRuntime.addCallback("query1", new QueryCallback() {
+            @Override
+            public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    currentEvents.addAll(Arrays.asList(inEvents));
+                }
+                if (removeEvents != null) {
+                    expiredEvents.addAll(Arrays.asList(removeEvents));
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        long currentTimestamp = System.currentTimeMillis();
+        for (int i = 0; i < spanCount; i++) {
+            inputHandler.send(new Event(currentTimestamp + i, new Object[]{"trace-a", "span-" + i,
+                    i == 0 ? null : "span-0", "get", "service", "SERVER", currentTimestamp + i,
+                    i == 1 ? null : (long) i, "{\"key\": \"value\"}"}));
+        }
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, spanCount, expiredEvents, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(currentEvents.size(), spanCount);
+        Assert.assertEquals(currentEvents.get(0).getData(8), "{\"key\": \"value\"}");
+        Assert.assertEquals(expiredEvents.size(), spanCount);
+        for (int i = 0; i < spanCount; i++) {
+            Event expiredEvent = expiredEvents.get(i);
+            Assert.assertEquals(expiredEvent.getTimestamp(), currentTimestamp + i);
+            Assert.assertEquals(expiredEvent.getData(), new Object[]{"trace-a", "span-" + i,
+                    i == 0 ? null : "span-0", null, null, null, currentTimestamp + i, i == 1 ? null : (long) i, null});
+        }
+    }
+
+    @Test
+    public void testEarlyCompletion() throws Exception {
+        List<String> expiredSpanIds = Collections.synchronizedList(new ArrayList<>());
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(new InMemoryConfigManager(),
+                "traceId, 100, id, parentId");
+        addExpiredSpanIdsCallback(siddhiAppRuntime, expiredSpanIds);
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        long currentTimestamp = System.currentTimeMillis();
+        inputHandler.send(createSpan("trace-a", "span-2", "span-1", currentTimestamp));
+        inputHandler.send(createSpan("trace-b", "span-4", "span-3", currentTimestamp));
+        inputHandler.send(createSpan("trace-a", "span-1", "", currentTimestamp + 1));
+        inputHandler.send(createSpan("trace-b", "trace-b", "", currentTimestamp + 1));
+
+        // Only the first trace is complete since the parent of the second trace's span was not received
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 2, expiredSpanIds, 1000);
+        Assert.assertEquals(expiredSpanIds.size(), 2);
+        Assert.assertTrue(expiredSpanIds.contains("span-1"));
+        Assert.assertTrue(expiredSpanIds.contains("span-2"));
+
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 4, expiredSpanIds, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+        Assert.assertEquals(expiredSpanIds.size(), 4);
+        Assert.assertTrue(expiredSpanIds.contains("span-4"));
+        Assert.assertTrue(expiredSpanIds.contains("trace-b"));
+    }
+
+    @Test
+    public void testSnapshotRestore() throws Exception {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setPersistenceStore(new InMemoryPersistenceStore());
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(siddhiManager, "traceId");
+        siddhiAppRuntime.start();
+        long currentTimestamp = System.currentTimeMillis();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+        inputHandler.send(createSpan("trace-a", "span-1", currentTimestamp));
+        inputHandler.send(createSpan("trace-a", "span-2", currentTimestamp + 1));
+        siddhiAppRuntime.persist().getFuture().get();
+        siddhiAppRuntime.shutdown();
+
+        List<Event> expiredEvents = Collections.synchronizedList(new ArrayList<>());
+        siddhiAppRuntime = createSiddhiAppRuntime(siddhiManager, "traceId");
+        addExpiredEventsCallback(siddhiAppRuntime, expiredEvents);
+        siddhiAppRuntime.start();
+        siddhiAppRuntime.restoreLastRevision();
+        // The restored trace groups are released along with the trace groups expiring after the restoration
+        siddhiAppRuntime.getInputHandler("ZipkinStreamIn").send(createSpan("trace-b", "span-3", currentTimestamp));
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 3, expiredEvents, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(expiredEvents.size(), 3);
+        for (Event expiredEvent : expiredEvents) {
+            if ("span-2".equals(expiredEvent.getData(1))) {
+                Assert.assertEquals(expiredEvent.getTimestamp(), currentTimestamp + 1);
+                Assert.assertEquals(expiredEvent.getData(), new Object[]{"trace-a", "span-2", "", "get", "service",
+                        "SERVER", currentTimestamp + 1, 10L, "{}"});
+            }
+        }
+    }
+
+    @Test
+    public void testCompactSnapshotRestore() throws Exception {
+        int spanCount = 12;
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setPersistenceStore(new InMemoryPersistenceStore());
+        String attributes = "traceId, id, parentId, timestamp, duration";
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(siddhiManager, attributes);
+        siddhiAppRuntime.start();
+        long currentTimestamp = System.currentTimeMillis();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+        for (int i = 0; i < spanCount; i++) {
+            inputHandler.send(new Event(currentTimestamp + i, new Object[]{"trace-a", "span-" + i,
+                    i == 0 ? null : "span-0", "get", "service", "SERVER", currentTimestamp + i,
+                    i == 1 ? null : (long) i, "{}"}));
+        }
+        siddhiAppRuntime.persist().getFuture().get();
+        siddhiAppRuntime.shutdown();
+
+        List<Event> expiredEvents = Collections.synchronizedList(new ArrayList<>());
+        siddhiAppRuntime = createSiddhiAppRuntime(siddhiManager, attributes);
+        addExpiredEventsCallback(siddhiAppRuntime, expiredEvents);
+        siddhiAppRuntime.start();
+        siddhiAppRuntime.restoreLastRevision();
+        // Spans received after the restoration are appended to the restored compact spans
+        siddhiAppRuntime.getInputHandler("ZipkinStreamIn").send(new Event(currentTimestamp + spanCount,
+                new Object[]{"trace-a", "span-" + spanCount, "span-0", "get", "service", "SERVER",
+                        currentTimestamp + spanCount, (long) spanCount, "{}"}));
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, spanCount + 1, expiredEvents, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(expiredEvents.size(), spanCount + 1);
+        for (int i = 0; i <= spanCount; i++) {
+            Event expiredEvent = expiredEvents.get(i);
+            Assert.assertEquals(expiredEvent.getTimestamp(), currentTimestamp + i);
+            Assert.assertEquals(expiredEvent.getData(), new Object[]{"trace-a", "span-" + i,
+                    i == 0 ? null : "span-0", null, null, null, currentTimestamp + i, i == 1 ? null : (long) i, null});
+        }
+    }
+
+    @Test
+    public void testRepeatedRestoreWithEarlyCompletion() throws Exception {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setPersistenceStore(new InMemoryPersistenceStore());
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(siddhiManager,
+                TimerCountingTraceGroupWindowProcessor.class, "traceId, 100, id, parentId");
+        List<String> expiredSpanIds = Collections.synchronizedList(new ArrayList<>());
+        addExpiredSpanIdsCallback(siddhiAppRuntime, expiredSpanIds);
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        // The parents of the spans are never received, and hence the traces are held until the idle time gap
+        long currentTimestamp = System.currentTimeMillis();
+        inputHandler.send(createSpan("trace-a", "span-1", "span-0", currentTimestamp));
+        siddhiAppRuntime.persist().getFuture().get();
+        siddhiAppRuntime.restoreLastRevision();
+        inputHandler.send(createSpan("trace-b", "span-2", "span-0", currentTimestamp));
+        siddhiAppRuntime.restoreLastRevision();
+        inputHandler.send(createSpan("trace-c", "span-3", "span-0", currentTimestamp));
+
+        // A single chain of timers notifies the window once per expiry tick
+        Thread.sleep(200);
+        TimerCountingTraceGroupWindowProcessor.TIMER_EVENT_COUNT.set(0);
+        Thread.sleep(1000);
+        int timerEventCount = TimerCountingTraceGroupWindowProcessor.TIMER_EVENT_COUNT.get();
+        Assert.assertTrue(timerEventCount >= 5 && timerEventCount <= 13, "Unexpected number of timer events "
+                + timerEventCount);
+
+        // The second restoration discarded trace-b
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 2, expiredSpanIds, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+        Assert.assertEquals(expiredSpanIds.size(), 2);
+        Assert.assertTrue(expiredSpanIds.contains("span-1"));
+        Assert.assertTrue(expiredSpanIds.contains("span-3"));
+    }
+
+    @Test
+    public void testIncrementalSnapshotRestore() throws Exception {
+        File persistenceDirectory = Files.createTempDirectory("trace-group-window").toFile();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setIncrementalPersistenceStore(
+                new IncrementalFileSystemPersistenceStore(persistenceDirectory.getAbsolutePath()));
+        String attributes = "traceId, id, timestamp";
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(siddhiManager, attributes);
+        siddhiAppRuntime.start();
+        long currentTimestamp = System.currentTimeMillis();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+        inputHandler.send(createSpan("trace-a", "span-1", currentTimestamp));
+        inputHandler.send(createSpan("trace-b", "span-2", currentTimestamp));
+        waitForIncrementalPersistence(siddhiAppRuntime.persist());
+        Thread.sleep(10);
+        inputHandler.send(createSpan("trace-a", "span-3", currentTimestamp + 1));
+        inputHandler.send(createSpan("trace-c", "span-4", currentTimestamp + 1));
+        waitForIncrementalPersistence(siddhiAppRuntime.persist());
+        siddhiAppRuntime.shutdown();
+
+        List<Event> expiredEvents = Collections.synchronizedList(new ArrayList<>());
+        siddhiAppRuntime = createSiddhiAppRuntime(siddhiManager, attributes);
+        addExpiredEventsCallback(siddhiAppRuntime, expiredEvents);
+        siddhiAppRuntime.start();
+        siddhiAppRuntime.restoreLastRevision();
+        siddhiAppRuntime.getInputHandler("ZipkinStreamIn").send(createSpan("trace-d", "span-5", currentTimestamp));
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 5, expiredEvents, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(expiredEvents.size(), 5);
+        for (Event expiredEvent : expiredEvents) {
+            if ("span-3".equals(expiredEvent.getData(1))) {
+                Assert.assertEquals(expiredEvent.getData(), new Object[]{"trace-a", "span-3", null, null, null, null,
+                        currentTimestamp + 1, null, null});
+            }
+        }
+    }
+
+    @Test
+    public void testLateSpans() throws Exception {
+        List<String> expiredSpanIds = Collections.synchronizedList(new ArrayList<>());
+        List<String> currentSpanIds = Collections.synchronizedList(new ArrayList<>());
+        SiddhiAppRuntime siddhiAppRuntime = createSiddhiAppRuntime(new InMemoryConfigManager());
+        siddhiAppRuntime.addCallback("query1", new QueryCallback() {
+            @Override
+            public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    for (Event inEvent : inEvents) {
+                        currentSpanIds.add((String) inEvent.getData(1));
+                    }
+                }
+                if (removeEvents != null) {
+                    for (Event removeEvent : removeEvents) {
+                        expiredSpanIds.add((String) removeEvent.getData(1));
+                    }
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("ZipkinStreamIn");
+
+        long currentTimestamp = System.currentTimeMillis();
+        inputHandler.send(createSpan("trace-a", "span-1", currentTimestamp));
+        inputHandler.send(createSpan("trace-a", "span-2", currentTimestamp - 1000));    // Within the idle time gap
+        inputHandler.send(createSpan("trace-a", "span-3", currentTimestamp - 10000));   // Beyond the idle time gap
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 2, expiredSpanIds, TIMEOUT);
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(currentSpanIds.size(), 2);
+        Assert.assertFalse(currentSpanIds.contains("span-3"));
+        Assert.assertEquals(expiredSpanIds.size(), 2);
+        Assert.assertTrue(expiredSpanIds.contains("span-1"));
+        Assert.assertTrue(expiredSpanIds.contains("span-2"));
+    }
+
+    private SiddhiAppRuntime createSiddhiAppRuntime(InMemoryConfigManager configManager) {
+        return createSiddhiAppRuntime(configManager, "traceId");
+    }
+
+    private SiddhiAppRuntime createSiddhiAppRuntime(InMemoryConfigManager configManager, String attributes) {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setConfigManager(configManager);
+        return createSiddhiAppRuntime(siddhiManager, attributes);
+    }
+
+    private SiddhiAppRuntime createSiddhiAppRuntime(SiddhiManager siddhiManager, String attributes) {
+        return createSiddhiAppRuntime(siddhiManager, TraceGroupWindowProcessor.class, attributes);
+    }
+
+    private SiddhiAppRuntime createSiddhiAppRuntime(SiddhiManager siddhiManager,
+                                                    Class<? extends TraceGroupWindowProcessor> windowClass,
+                                                    String attributes) {
+        String query = "@app:name('TraceGroupWindowTest')\n" +
+                "define stream ZipkinStreamIn(traceId string, id string, parentId string, name string, " +
+                "serviceName string, kind string, timestamp long, duration long, tags string);\n" +
+                "@info(name = 'query1')\n" +
+                "from ZipkinStreamIn#observe:traceGroupWindow(2 sec, " + attributes + ") " +
+                "select *\n" +
+                "insert all events into AfterTraceGroupStream;";
+        siddhiManager.setExtension("observe:traceGroupWindow", windowClass);
+        return siddhiManager.createSiddhiAppRuntime(query);
+    }
+
+    private void addExpiredSpanIdsCallback(SiddhiAppRuntime siddhiAppRuntime, List<String> expiredSpanIds) {
+        siddhiAppRuntime.addCallback("query1", new QueryCallback() {
+            @Override
+            public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                if (removeEvents != null) {
+                    for (Event removeEvent : removeEvents) {
+                        expiredSpanIds.add((String) removeEvent.getData(1));
+                    }
+                }
+            }
+        });
+    }
+
+    private void waitForIncrementalPersistence(PersistenceReference persistenceReference) throws Exception {
+        for (Future future : persistenceReference.getIncrementalStateFuture()) {
+            future.get();
+        }
+    }
+
+    private void addExpiredEventsCallback(SiddhiAppRuntime siddhiAppRuntime, List<Event> expiredEvents) {
+        siddhiAppRuntime.addCallback("query1", new QueryCallback() {
+            @Override
+            public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                if (removeEvents != null) {
+                    expiredEvents.addAll(Arrays.asList(removeEvents));
+                }
+            }
+        });
+    }
+
+    private Event createSpan(String traceId, String spanId, long timestamp) {
+        return createSpan(traceId, spanId, "", timestamp);
+    }
+
+    private Event createSpan(String traceId, String spanId, String parentId, long timestamp) {
+        return new Event(timestamp, new Object[]{traceId, spanId, parentId, "get", "service", "SERVER", timestamp,
+                10L, "{}"});
+    }
+
+    private InMemoryConfigManager createConfig(String... keyValues) {
+        Map<String, String> extensionConfigs = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            extensionConfigs.put("observe.traceGroupWindow." + keyValues[i], keyValues[i + 1]);
+        }
+        return new InMemoryConfigManager(extensionConfigs, null);
+    }
+
     private void initSiddhi(String paramString) {
+        initSiddhi(paramString, new InMemoryConfigManager());
+    }
+
+    private void initSiddhi(String paramString, InMemoryConfigManager configManager) {
         String query = "define stream ZipkinStreamIn(traceId string, id string, parentId string, name string, " +
                 "serviceName string," +
                 "kind string, timestamp long, duration long, tags string);\n";
@@ -59,7 +606,27 @@ public class TraceGroupWindowProcessorTestCase {
                 "select *\n" +
                 "insert into AfterTraceGroupStream;";
         SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setConfigManager(configManager);
         siddhiManager.setExtension("observe:traceGroupWindow", TraceGroupWindowProcessor.class);
         siddhiManager.createSiddhiAppRuntime(query);
     }
+
+    /**
+     * Trace group window which counts the timer events it receives.
+     */
+    public static class TimerCountingTraceGroupWindowProcessor extends TraceGroupWindowProcessor {
+        private static final AtomicInteger TIMER_EVENT_COUNT = new AtomicInteger(0);
+
+        @Override
+        protected void process(ComplexEventChunk<StreamEvent> streamEventChunk, Processor processor,
+                               StreamEventCloner streamEventCloner, ComplexEventPopulater complexEventPopulater) {
+            for (StreamEvent streamEvent = streamEventChunk.getFirst(); streamEvent != null;
+                 streamEvent = (StreamEvent) streamEvent.getNext()) {
+                if (streamEvent.getType() == ComplexEvent.Type.TIMER) {
+                    TIMER_EVENT_COUNT.incrementAndGet();
+                }
+            }
+            super.process(streamEventChunk, processor, streamEventCloner, complexEventPopulater);
+        }
+    }
 }
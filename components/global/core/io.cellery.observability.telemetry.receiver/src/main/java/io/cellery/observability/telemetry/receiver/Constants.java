@@ -23,7 +23,32 @@ package io.cellery.observability.telemetry.receiver;
  */
 public class Constants {
 
+    public static final String HTTP_CONTENT_TYPE_HEADER = "Content-Type";
+    public static final String HTTP_APPLICATION_NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    public static final String HTTP_RETRY_AFTER_HEADER = "Retry-After";
+    public static final String HTTP_RETRY_AFTER_SECONDS = "1";
+
     static final String DEFAULT_RECEIVER_PORT = "9091";
+    static final String DEFAULT_OUTPUT_FORMAT = "json";
+    static final String DEFAULT_TRANSPORT = "http";
+    static final String DEFAULT_WORKER_THREADS = "0";     // Number of available processors
+    static final String DEFAULT_QUEUE_SIZE = "1000";
+    static final String DEFAULT_BACKLOG = "0";    // System default
     static final String PORT_EVENT_SOURCE_OPTION_KEY = "port";
+    static final String OUTPUT_FORMAT_EVENT_SOURCE_OPTION_KEY = "output.format";
+    static final String TRANSPORT_EVENT_SOURCE_OPTION_KEY = "transport";
+    static final String WORKER_THREADS_EVENT_SOURCE_OPTION_KEY = "worker.threads";
+    static final String QUEUE_SIZE_EVENT_SOURCE_OPTION_KEY = "queue.size";
+    static final String BACKLOG_EVENT_SOURCE_OPTION_KEY = "backlog";
+
+    static final long WORKER_THREADS_SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    static final String OUTPUT_FORMAT_JSON = "json";
+    static final String OUTPUT_FORMAT_PASS_THROUGH = "passThrough";
+
+    static final String TRANSPORT_HTTP = "http";
+    static final String TRANSPORT_GRPC = "grpc";
 
+    private Constants() {   // Prevent initialization
+    }
 }
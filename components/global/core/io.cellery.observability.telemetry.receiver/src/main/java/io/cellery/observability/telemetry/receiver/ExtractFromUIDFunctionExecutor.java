@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver;
+
+import org.wso2.siddhi.annotation.Example;
+import org.wso2.siddhi.annotation.Extension;
+import org.wso2.siddhi.annotation.Parameter;
+import org.wso2.siddhi.annotation.ReturnAttribute;
+import org.wso2.siddhi.annotation.util.DataType;
+import org.wso2.siddhi.core.config.SiddhiAppContext;
+import org.wso2.siddhi.core.executor.ConstantExpressionExecutor;
+import org.wso2.siddhi.core.executor.ExpressionExecutor;
+import org.wso2.siddhi.core.executor.function.FunctionExecutor;
+import org.wso2.siddhi.core.util.config.ConfigReader;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.exception.SiddhiAppValidationException;
+
+import java.util.Map;
+
+/**
+ * Siddhi function which extracts the pod name or the namespace from the UID of a pod reported by Istio
+ * (eg:- kubernetes://pet-be--controller-deployment-6f6b8d9c4-2xk8q.default).
+ * The UID is scanned once without using regular expressions. The UID of the global gateway is handled specially.
+ */
+@Extension(
+        name = "extractFromUID",
+        namespace = "telemetry",
+        description = "This extracts the pod name or the namespace from a pod UID of the format "
+                + "[kubernetes://]<pod>.<namespace>. An empty string is returned if the UID is not of this format",
+        parameters = {
+                @Parameter(name = "uid",
+                        description = "The UID of the pod",
+                        type = {DataType.STRING}),
+                @Parameter(name = "index",
+                        description = "The part of the UID to extract. 1 extracts the pod name and 2 extracts the "
+                                + "namespace",
+                        type = {DataType.INT})
+        },
+        returnAttributes = @ReturnAttribute(
+                description = "The pod name or the namespace extracted from the UID",
+                type = {DataType.STRING}),
+        examples = @Example(
+                syntax = "from TelemetryStream\n"
+                        + "select telemetry:extractFromUID(sourceUID, 1) as sourcePod, "
+                        + "telemetry:extractFromUID(sourceUID, 2) as sourceNamespace\n"
+                        + "insert into ProcessedTelemetryStream;",
+                description = "This extracts the pod name and the namespace of the source pod")
+)
+public class ExtractFromUIDFunctionExecutor extends FunctionExecutor {
+
+    private static final String KUBERNETES_UID_PREFIX = "kubernetes://";
+    private static final String GLOBAL_GATEWAY_UID = "Synapse-PT-HttpComponents-NIO";
+    private static final String GLOBAL_GATEWAY_POD = "global-gateway";
+    private static final int POD_INDEX = 1;
+    private static final int NAMESPACE_INDEX = 2;
+
+    private boolean extractNamespace;
+
+    @Override
+    protected void init(ExpressionExecutor[] attributeExpressionExecutors, ConfigReader configReader,
+                        SiddhiAppContext siddhiAppContext) {
+        if (attributeExpressionExecutors.length != 2) {
+            throw new SiddhiAppValidationException("telemetry:extractFromUID() expects exactly two parameters, "
+                    + "but found " + attributeExpressionExecutors.length);
+        }
+        if (attributeExpressionExecutors[0].getReturnType() != Attribute.Type.STRING) {
+            throw new SiddhiAppValidationException("The uid parameter of telemetry:extractFromUID() should be of "
+                    + "type " + Attribute.Type.STRING + ", but found "
+                    + attributeExpressionExecutors[0].getReturnType());
+        }
+        if (!(attributeExpressionExecutors[1] instanceof ConstantExpressionExecutor)
+                || attributeExpressionExecutors[1].getReturnType() != Attribute.Type.INT) {
+            throw new SiddhiAppValidationException("The index parameter of telemetry:extractFromUID() should be a "
+                    + "constant of type " + Attribute.Type.INT);
+        }
+        int index = (Integer) ((ConstantExpressionExecutor) attributeExpressionExecutors[1]).getValue();
+        if (index != POD_INDEX && index != NAMESPACE_INDEX) {
+            throw new SiddhiAppValidationException("The index parameter of telemetry:extractFromUID() should be "
+                    + "either " + POD_INDEX + " (pod) or " + NAMESPACE_INDEX + " (namespace), but found " + index);
+        }
+        extractNamespace = index == NAMESPACE_INDEX;
+    }
+
+    @Override
+    protected Object execute(Object[] data) {
+        return extract((String) data[0], extractNamespace);
+    }
+
+    @Override
+    protected Object execute(Object data) {
+        return null;    // Not used since this function expects two parameters
+    }
+
+    @Override
+    public Attribute.Type getReturnType() {
+        return Attribute.Type.STRING;
+    }
+
+    @Override
+    public Map<String, Object> currentState() {
+        return null;
+    }
+
+    @Override
+    public void restoreState(Map<String, Object> map) {
+    }
+
+    /**
+     * Extract the pod name or the namespace from a pod UID.
+     *
+     * @param uid              The UID of the pod
+     * @param extractNamespace True to extract the namespace and false to extract the pod name
+     * @return The pod name or the namespace, or an empty string if the UID is not of the expected format
+     */
+    static String extract(String uid, boolean extractNamespace) {
+        if (uid == null) {
+            return "";
+        }
+        int start = uid.startsWith(KUBERNETES_UID_PREFIX) ? KUBERNETES_UID_PREFIX.length() : 0;
+        int separatorIndex = -1;
+        for (int i = uid.length() - 1; i >= start; i--) {
+            char c = uid.charAt(i);
+            if (c == '.') {
+                if (separatorIndex == -1) {
+                    separatorIndex = i;
+                }
+            } else if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-')) {
+                separatorIndex = -2;    // Not a valid pod UID
+                break;
+            }
+        }
+        if (separatorIndex > start && separatorIndex < uid.length() - 1) {
+            return extractNamespace
+                    ? uid.substring(separatorIndex + 1)
+                    : uid.substring(start, separatorIndex);
+        } else if (!extractNamespace && uid.length() - start == GLOBAL_GATEWAY_UID.length()
+                && uid.startsWith(GLOBAL_GATEWAY_UID, start)) {
+            return GLOBAL_GATEWAY_POD;
+        } else {
+            return "";
+        }
+    }
+}
@@ -20,37 +20,102 @@
 package io.cellery.observability.telemetry.receiver;
 
 import com.sun.net.httpserver.HttpServer;
+import io.cellery.observability.metrics.MetricsHttpHandler;
+import io.cellery.observability.metrics.MetricsRegistry;
+import io.cellery.observability.telemetry.receiver.internal.CallAdmissionInterceptor;
+import io.cellery.observability.telemetry.receiver.internal.EventDataReader;
 import io.cellery.observability.telemetry.receiver.internal.MetricsHandler;
+import io.cellery.observability.telemetry.receiver.internal.RequestExecutor;
+import io.cellery.observability.telemetry.receiver.internal.TelemetryService;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
 import org.apache.log4j.Logger;
 import org.wso2.siddhi.annotation.Example;
 import org.wso2.siddhi.annotation.Extension;
 import org.wso2.siddhi.annotation.Parameter;
 import org.wso2.siddhi.annotation.util.DataType;
 import org.wso2.siddhi.core.config.SiddhiAppContext;
+import org.wso2.siddhi.core.event.Event;
 import org.wso2.siddhi.core.exception.ConnectionUnavailableException;
 import org.wso2.siddhi.core.stream.input.source.Source;
 import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
 import org.wso2.siddhi.core.util.config.ConfigReader;
 import org.wso2.siddhi.core.util.transport.OptionHolder;
+import org.wso2.siddhi.query.api.exception.SiddhiAppValidationException;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class implements the event source, where the received telemetry attributes can be injected to streams.
  */
-@Extension(name = "telemetry-receiver", namespace = "source", description = "Telemetry Receiver for Cellery",
+@Extension(name = "telemetry-receiver", namespace = "source", description = "Telemetry Receiver for Cellery. "
+        + "This accepts a single telemetry record as a JSON object or a batch of records as a JSON array or as "
+        + "newline delimited JSON (application/x-ndjson) and emits the records of a request as a single event chunk.",
         parameters = {
                 @Parameter(name = "port",
                         description = "The port which the telemetry service should be started on. Default is 9091",
                         type = {DataType.INT},
                         optional = true,
                         defaultValue = "9091"),
+                @Parameter(name = "output.format",
+                        description = "The format of the events emitted by the event source. 'json' emits the "
+                                + "received JSON to be used with the json mapper. 'passThrough' parses the received "
+                                + "records directly into event data in the order of the stream attributes, to be "
+                                + "used with the pass through mapper. The record keys should match the stream "
+                                + "attribute names in this format",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "json"),
+                @Parameter(name = "transport",
+                        description = "The transport on which the telemetry records are received. 'http' accepts "
+                                + "JSON over HTTP. 'grpc' accepts batches of protobuf encoded telemetry records over "
+                                + "gRPC (the TelemetryReceiver service) and requires the 'passThrough' output format",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "http"),
+                @Parameter(name = "worker.threads",
+                        description = "The number of threads used for handling the received requests. If set to 0, "
+                                + "the number of available processors is used",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "0"),
+                @Parameter(name = "queue.size",
+                        description = "The maximum number of requests waiting to be handled by the worker threads. "
+                                + "Requests received when the queue is full are rejected with 503 (Service "
+                                + "Unavailable), or UNAVAILABLE over gRPC, asking the client to retry later",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1000"),
+                @Parameter(name = "backlog",
+                        description = "The maximum number of incoming connections waiting to be accepted by the "
+                                + "HTTP server. If set to 0, the system default is used",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "0"),
         },
         examples = {
-                @Example(syntax = "this is synatax",
-                        description = "some desc")
+                @Example(syntax = "@source(type='telemetry-receiver', @map(type='json', "
+                        + "fail.on.missing.attribute='false'))\n"
+                        + "define stream TelemetryStream(requestID string, sourceUID string, responseCode long)",
+                        description = "This emits the received telemetry records as JSON to be mapped by the json "
+                                + "mapper"),
+                @Example(syntax = "@source(type='telemetry-receiver', output.format='passThrough', "
+                        + "@map(type='passThrough'))\n"
+                        + "define stream TelemetryStream(requestID string, sourceUID string, responseCode long)",
+                        description = "This parses the received telemetry records directly into event data without "
+                                + "any mapping"),
+                @Example(syntax = "@source(type='telemetry-receiver', transport='grpc', output.format='passThrough', "
+                        + "@map(type='passThrough'))\n"
+                        + "define stream TelemetryStream(requestID string, sourceUID string, responseCode long)",
+                        description = "This receives batches of telemetry records over gRPC and emits each batch as "
+                                + "a single event chunk")
         }
 )
 public class TelemetryEventSource extends Source {
@@ -58,7 +123,16 @@ public class TelemetryEventSource extends Source {
 
     private SourceEventListener sourceEventListener;
     private int port;
+    private String transport;
+    private int workerThreads;
+    private int queueSize;
+    private int backlog;
+    private EventDataReader eventDataReader;
     private HttpServer httpServer;
+    private Server grpcServer;
+    private RequestExecutor requestExecutor;
+    private CallAdmissionInterceptor callAdmissionInterceptor;
+    private ExecutorService grpcExecutor;
 
     @Override
     public void init(SourceEventListener sourceEventListener, OptionHolder optionHolder, String[] strings,
@@ -66,26 +140,137 @@ public class TelemetryEventSource extends Source {
         this.sourceEventListener = sourceEventListener;
         this.port = Integer.parseInt(optionHolder.validateAndGetStaticValue(Constants.PORT_EVENT_SOURCE_OPTION_KEY,
                 Constants.DEFAULT_RECEIVER_PORT));
+        this.workerThreads = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                Constants.WORKER_THREADS_EVENT_SOURCE_OPTION_KEY, Constants.DEFAULT_WORKER_THREADS));
+        if (this.workerThreads == 0) {
+            this.workerThreads = Runtime.getRuntime().availableProcessors();
+        }
+        this.queueSize = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                Constants.QUEUE_SIZE_EVENT_SOURCE_OPTION_KEY, Constants.DEFAULT_QUEUE_SIZE));
+        this.backlog = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                Constants.BACKLOG_EVENT_SOURCE_OPTION_KEY, Constants.DEFAULT_BACKLOG));
+        if (this.workerThreads < 0 || this.queueSize <= 0 || this.backlog < 0) {
+            throw new SiddhiAppValidationException("Telemetry receiver worker threads and backlog should not be "
+                    + "negative and queue size should be positive, but found worker threads " + workerThreads
+                    + ", queue size " + queueSize + " and backlog " + backlog);
+        }
+        String outputFormat = optionHolder.validateAndGetStaticValue(
+                Constants.OUTPUT_FORMAT_EVENT_SOURCE_OPTION_KEY, Constants.DEFAULT_OUTPUT_FORMAT);
+        if (Constants.OUTPUT_FORMAT_PASS_THROUGH.equals(outputFormat)) {
+            try {
+                this.eventDataReader = new EventDataReader(sourceEventListener.getStreamDefinition());
+            } catch (IllegalArgumentException e) {
+                throw new SiddhiAppValidationException("Invalid stream definition for the "
+                        + Constants.OUTPUT_FORMAT_PASS_THROUGH + " format: " + e.getMessage());
+            }
+        } else if (!Constants.OUTPUT_FORMAT_JSON.equals(outputFormat)) {
+            throw new SiddhiAppValidationException("Telemetry receiver output format should be either "
+                    + Constants.OUTPUT_FORMAT_JSON + " or " + Constants.OUTPUT_FORMAT_PASS_THROUGH
+                    + ", but found " + outputFormat);
+        }
+        this.transport = optionHolder.validateAndGetStaticValue(Constants.TRANSPORT_EVENT_SOURCE_OPTION_KEY,
+                Constants.DEFAULT_TRANSPORT);
+        if (Constants.TRANSPORT_GRPC.equals(transport)) {
+            if (this.eventDataReader == null) {
+                throw new SiddhiAppValidationException("Telemetry receiver " + Constants.TRANSPORT_GRPC
+                        + " transport requires the " + Constants.OUTPUT_FORMAT_PASS_THROUGH + " output format");
+            }
+        } else if (!Constants.TRANSPORT_HTTP.equals(transport)) {
+            throw new SiddhiAppValidationException("Telemetry receiver transport should be either "
+                    + Constants.TRANSPORT_HTTP + " or " + Constants.TRANSPORT_GRPC + ", but found " + transport);
+        }
     }
 
     @Override
     public Class[] getOutputEventClasses() {
-        return new Class[]{String.class};
+        return new Class[]{String.class, Event[].class};
     }
 
     @Override
     public void connect(ConnectionCallback connectionCallback) throws ConnectionUnavailableException {
+        if (Constants.TRANSPORT_GRPC.equals(transport)) {
+            startGrpcServer();
+        } else {
+            startHttpServer();
+        }
+    }
+
+    /**
+     * Start the HTTP server accepting JSON encoded telemetry records.
+     *
+     * @throws ConnectionUnavailableException If starting the server fails
+     */
+    private void startHttpServer() throws ConnectionUnavailableException {
         try {
-            httpServer = HttpServer.create(new InetSocketAddress(port), 0);
-            httpServer.createContext("/", new MetricsHandler(sourceEventListener));
-            httpServer.setExecutor(null); // creates a default executor
+            httpServer = HttpServer.create(new InetSocketAddress(port), backlog);
+            MetricsHandler metricsHandler = new MetricsHandler(sourceEventListener, eventDataReader);
+            httpServer.createContext("/", metricsHandler);
+            // Telemetry data received on the metrics context is still passed to the telemetry handler
+            httpServer.createContext(MetricsHttpHandler.METRICS_CONTEXT,
+                    new MetricsHttpHandler(MetricsRegistry.getDefault(), metricsHandler));
+            requestExecutor = new RequestExecutor(workerThreads, queueSize);
+            httpServer.setExecutor(requestExecutor);
             httpServer.start();
-            log.info("Http server started on port : " + port);
+            log.info("Http server started on port : " + port + " with " + workerThreads + " worker threads");
         } catch (IOException e) {
+            if (requestExecutor != null) {
+                requestExecutor.shutdown(0);
+                requestExecutor = null;
+            }
             throw new ConnectionUnavailableException("Unable to start the http server on port: " + port, e);
         }
     }
 
+    /**
+     * Start the gRPC server accepting batches of protobuf encoded telemetry records.
+     *
+     * @throws ConnectionUnavailableException If starting the server fails
+     */
+    private void startGrpcServer() throws ConnectionUnavailableException {
+        // gRPC runs every callback of a call on the executor, so the calls are admitted when they start instead of
+        // rejecting the executor tasks. A call has at most one task waiting in the executor at a time.
+        callAdmissionInterceptor = new CallAdmissionInterceptor(workerThreads, queueSize);
+        AtomicInteger threadCount = new AtomicInteger();
+        grpcExecutor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "telemetry-receiver-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            grpcServer = NettyServerBuilder.forAddress(new InetSocketAddress(port))
+                    .addService(ServerInterceptors.intercept(new TelemetryService(sourceEventListener),
+                            callAdmissionInterceptor))
+                    .executor(grpcExecutor)
+                    .build()
+                    .start();
+            log.info("gRPC server started on port : " + port + " with " + workerThreads + " worker threads");
+        } catch (IOException e) {
+            grpcServer = null;
+            stopGrpcExecutor(0);
+            throw new ConnectionUnavailableException("Unable to start the gRPC server on port: " + port, e);
+        }
+    }
+
+    /**
+     * Stop the worker threads of the gRPC server.
+     *
+     * @param timeoutSeconds The maximum time to wait for the admitted calls to be handled
+     */
+    private void stopGrpcExecutor(long timeoutSeconds) {
+        grpcExecutor.shutdown();
+        try {
+            if (!grpcExecutor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                grpcExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            grpcExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        grpcExecutor = null;
+        callAdmissionInterceptor.close();
+        callAdmissionInterceptor = null;
+    }
+
     @Override
     public void disconnect() {
         this.stopServer();
@@ -120,6 +305,28 @@ public class TelemetryEventSource extends Source {
         if (this.httpServer != null) {
             log.info("Shutting down the http server");
             this.httpServer.stop(0);
+            this.httpServer = null;
+        }
+        if (this.grpcServer != null) {
+            log.info("Shutting down the gRPC server");
+            this.grpcServer.shutdown();
+            try {
+                if (!this.grpcServer.awaitTermination(Constants.WORKER_THREADS_SHUTDOWN_TIMEOUT_SECONDS,
+                        TimeUnit.SECONDS)) {
+                    this.grpcServer.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                this.grpcServer.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            this.grpcServer = null;
+        }
+        if (this.grpcExecutor != null) {
+            this.stopGrpcExecutor(Constants.WORKER_THREADS_SHUTDOWN_TIMEOUT_SECONDS);
+        }
+        if (this.requestExecutor != null) {
+            this.requestExecutor.shutdown(Constants.WORKER_THREADS_SHUTDOWN_TIMEOUT_SECONDS);
+            this.requestExecutor = null;
         }
     }
 }
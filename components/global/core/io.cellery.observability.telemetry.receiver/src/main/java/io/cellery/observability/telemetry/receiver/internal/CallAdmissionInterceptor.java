@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+
+/**
+ * gRPC server interceptor which bounds the number of telemetry calls being handled by the telemetry receiver.
+ * A call is admitted when it starts if fewer than worker threads + queue size calls are in flight and it holds its
+ * admission until it is completed or cancelled. Calls started while the limit is reached are closed immediately
+ * with UNAVAILABLE asking the client to back off, before any of the request is parsed.
+ */
+public class CallAdmissionInterceptor implements ServerInterceptor {
+
+    private static final ServerCall.Listener<Object> NOOP_LISTENER = new ServerCall.Listener<Object>() {
+    };
+
+    private final int workerThreads;
+    private final int maxCalls;
+    private final Semaphore admissions;
+    private final IntSupplier queueDepthSupplier;
+
+    public CallAdmissionInterceptor(int workerThreads, int queueSize) {
+        this.workerThreads = workerThreads;
+        this.maxCalls = workerThreads + queueSize;
+        this.admissions = new Semaphore(maxCalls);
+        queueDepthSupplier = () -> Math.max(0, maxCalls - admissions.availablePermits() - this.workerThreads);
+        TelemetryMetrics.addQueueDepth(queueDepthSupplier);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        if (!admissions.tryAcquire()) {
+            TelemetryMetrics.REJECTED_REQUESTS_COUNTER.increment();
+            call.close(Status.UNAVAILABLE.withDescription("Telemetry request queue is full"), new Metadata());
+            return (ServerCall.Listener<ReqT>) NOOP_LISTENER;
+        }
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                admissions.release();
+            }
+        };
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(call, headers);
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onComplete() {
+                try {
+                    super.onComplete();
+                } finally {
+                    release.run();
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                try {
+                    super.onCancel();
+                } finally {
+                    release.run();
+                }
+            }
+        };
+    }
+
+    /**
+     * Stop reporting the queue depth of the telemetry calls.
+     */
+    public void close() {
+        TelemetryMetrics.removeQueueDepth(queueDepthSupplier);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader which parses telemetry records directly into event data ordered according to the stream attributes.
+ * The records are read using a streaming parser without building a JSON tree. The values of the record keys which
+ * match the stream attribute names are converted to the attribute types and the other keys are skipped. Attributes
+ * missing in a record are set to null. A record wrapped in an event object (the default format of the json mapper)
+ * is unwrapped when the event object is its leading key, and such a record with other keys besides the event object
+ * is rejected.
+ *
+ * The reader accepts a single record, a JSON array of records or a stream of records (eg:- newline delimited JSON).
+ */
+public class EventDataReader {
+
+    private static final String JSON_EVENT_KEY = "event";
+
+    private final Map<String, Integer> attributeIndexes;
+    private final Attribute.Type[] attributeTypes;
+
+    public EventDataReader(StreamDefinition streamDefinition) {
+        List<Attribute> attributes = streamDefinition.getAttributeList();
+        attributeIndexes = new HashMap<>(attributes.size() * 2);
+        attributeTypes = new Attribute.Type[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            if (attribute.getType() == Attribute.Type.OBJECT) {
+                throw new IllegalArgumentException("Unsupported type " + attribute.getType() + " of attribute "
+                        + attribute.getName());
+            }
+            attributeIndexes.put(attribute.getName(), i);
+            attributeTypes[i] = attribute.getType();
+        }
+    }
+
+    /**
+     * Read all the telemetry records as events.
+     *
+     * @param reader The reader of the received telemetry records
+     * @return The events read
+     * @throws IOException If reading fails or if the records are malformed
+     */
+    public Event[] read(Reader reader) throws IOException {
+        List<Event> events = new ArrayList<>();
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);     // Allows a stream of multiple top level records
+        try {
+            jsonReader.peek();
+        } catch (EOFException e) {
+            return new Event[0];    // Empty request body
+        }
+        while (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+            if (jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                jsonReader.beginArray();
+                while (jsonReader.hasNext()) {
+                    events.add(new Event(-1, readRecord(jsonReader)));     // Timestamp is set by Siddhi
+                }
+                jsonReader.endArray();
+            } else {
+                events.add(new Event(-1, readRecord(jsonReader)));
+            }
+        }
+        return events.toArray(new Event[0]);
+    }
+
+    /**
+     * Read a single telemetry record into event data.
+     *
+     * @param jsonReader The JSON reader positioned at the start of the record
+     * @return The event data
+     * @throws IOException If reading fails or if the record is malformed
+     */
+    private Object[] readRecord(JsonReader jsonReader) throws IOException {
+        Object[] data = new Object[attributeTypes.length];
+        if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new IOException("Expected a telemetry record object, but found " + jsonReader.peek() + " at "
+                    + jsonReader.getPath());
+        }
+        jsonReader.beginObject();
+        if (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (JSON_EVENT_KEY.equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    readAttribute(jsonReader, jsonReader.nextName(), data);
+                }
+                jsonReader.endObject();
+                if (jsonReader.hasNext()) {
+                    throw new IOException("Unexpected key " + jsonReader.nextName() + " besides the event object at "
+                            + jsonReader.getPath());
+                }
+            } else {
+                readAttribute(jsonReader, name, data);
+                while (jsonReader.hasNext()) {
+                    readAttribute(jsonReader, jsonReader.nextName(), data);
+                }
+            }
+        }
+        jsonReader.endObject();
+        return data;
+    }
+
+    /**
+     * Read the value of a record key into the event data if the key is a stream attribute.
+     *
+     * @param jsonReader The JSON reader positioned at the value
+     * @param name       The name of the record key
+     * @param data       The event data to which the value is read
+     * @throws IOException If reading fails or if the value cannot be converted to the type of the attribute
+     */
+    private void readAttribute(JsonReader jsonReader, String name, Object[] data) throws IOException {
+        Integer index = attributeIndexes.get(name);
+        if (index == null || jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.skipValue();
+        } else {
+            data[index] = readValue(jsonReader, attributeTypes[index]);
+        }
+    }
+
+    /**
+     * Read a value converted to the type of the attribute.
+     *
+     * @param jsonReader The JSON reader positioned at the value
+     * @param type       The type of the attribute
+     * @return The converted value
+     * @throws IOException If reading fails or if the value cannot be converted to the type of the attribute
+     */
+    private static Object readValue(JsonReader jsonReader, Attribute.Type type) throws IOException {
+        try {
+            switch (type) {
+                case STRING:
+                    return jsonReader.peek() == JsonToken.BOOLEAN
+                            ? String.valueOf(jsonReader.nextBoolean())
+                            : jsonReader.nextString();
+                case INT:
+                    return jsonReader.nextInt();
+                case LONG:
+                    return jsonReader.nextLong();
+                case FLOAT:
+                    return (float) jsonReader.nextDouble();
+                case DOUBLE:
+                    return jsonReader.nextDouble();
+                case BOOL:
+                    return jsonReader.peek() == JsonToken.STRING
+                            ? Boolean.parseBoolean(jsonReader.nextString())
+                            : jsonReader.nextBoolean();
+                default:
+                    throw new IllegalStateException("Unsupported attribute type " + type);
+            }
+        } catch (NumberFormatException | IllegalStateException e) {
+            throw new IOException("Failed to read value of type " + type + " at " + jsonReader.getPath(), e);
+        }
+    }
+}
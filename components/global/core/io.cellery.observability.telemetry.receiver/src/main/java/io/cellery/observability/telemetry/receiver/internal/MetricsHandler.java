@@ -18,44 +18,255 @@
 
 package io.cellery.observability.telemetry.receiver.internal;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import io.cellery.observability.telemetry.receiver.Constants;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.event.Event;
 import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 
 /**
  * This class is responsible for handling metrics received from the http server.
+ *
+ * A request can either contain a single telemetry record as a JSON object or a batch of telemetry records as a JSON
+ * array or as newline delimited JSON objects (with the application/x-ndjson content type). The records are emitted
+ * in the default format of the json mapper, wrapped in an event object unless they are already wrapped in one. A
+ * batch is emitted as a single JSON array of events, so that all the records in the request are processed as a
+ * single event chunk. The records are wrapped as text without being parsed, since they are parsed by the json
+ * mapper anyway. Only the boundaries of the records in a batch are scanned for.
+ *
+ * If an event data reader is provided, the telemetry records are parsed directly from the request body into event
+ * data and emitted as a single batch of events (to be used with a pass through mapper) instead of emitting JSON.
  */
 public class MetricsHandler implements HttpHandler {
 
     private static final Logger log = Logger.getLogger(MetricsHandler.class);
-    private static final Gson gson = new Gson();
+    private static final String JSON_EVENT_PREFIX = "{\"event\":";
+    private static final String JSON_EVENT_KEY = "\"event\"";
+
     private SourceEventListener sourceEventListener;
+    private EventDataReader eventDataReader;
 
     public MetricsHandler(SourceEventListener sourceEventListener) {
+        this(sourceEventListener, null);
+    }
+
+    public MetricsHandler(SourceEventListener sourceEventListener, EventDataReader eventDataReader) {
         this.sourceEventListener = sourceEventListener;
+        this.eventDataReader = eventDataReader;
     }
 
     @Override
     public void handle(HttpExchange httpExchange) throws IOException {
-        if (httpExchange.getRequestBody() != null) {
-            try {
-                String json = IOUtils.toString(httpExchange.getRequestBody());
-                if (log.isDebugEnabled()) {
-                    log.debug("Received a metric from the adapter : " + json);
-                }
-                sourceEventListener.onEvent(json, new String[0]);
-                httpExchange.sendResponseHeaders(200, -1);
-            } catch (IOException e) {
+        TelemetryMetrics.REQUESTS_COUNTER.increment();
+        try {
+            if (RequestExecutor.isRejected()) {
+                httpExchange.getResponseHeaders().set(Constants.HTTP_RETRY_AFTER_HEADER,
+                        Constants.HTTP_RETRY_AFTER_SECONDS);
+                httpExchange.sendResponseHeaders(503, -1);
+            } else if (httpExchange.getRequestBody() != null && eventDataReader != null) {
+                handleAsEventData(httpExchange);
+            } else if (httpExchange.getRequestBody() != null) {
+                handleAsJson(httpExchange);
+            } else {
+                TelemetryMetrics.FAILURES_COUNTER.increment();
                 httpExchange.sendResponseHeaders(500, -1);
             }
-        } else {
+        } finally {
+            httpExchange.close();
+        }
+    }
+
+    /**
+     * Read the telemetry records in the request body as JSON and emit them to be mapped by the json mapper.
+     *
+     * @param httpExchange The HTTP exchange of the request
+     * @throws IOException If sending the response fails
+     */
+    private void handleAsJson(HttpExchange httpExchange) throws IOException {
+        String json;
+        try {
+            json = IOUtils.toString(httpExchange.getRequestBody(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            TelemetryMetrics.FAILURES_COUNTER.increment();
             httpExchange.sendResponseHeaders(500, -1);
+            return;
+        }
+        TelemetryMetrics.REQUEST_SIZE_HISTOGRAM.observe(json.length());
+        if (log.isDebugEnabled()) {
+            log.debug("Received a metric from the adapter : " + json);
+        }
+        try {
+            if (isBatch(json, httpExchange.getRequestHeaders().getFirst(Constants.HTTP_CONTENT_TYPE_HEADER))) {
+                StringBuilder events = new StringBuilder(json.length() + 64);
+                int recordCount = toEventArray(json, events);
+                TelemetryMetrics.RECORDS_COUNTER.increment(recordCount);
+                if (recordCount > 0) {
+                    sourceEventListener.onEvent(events.toString(), new String[0]);
+                }
+            } else {
+                StringBuilder event = new StringBuilder(json.length() + JSON_EVENT_PREFIX.length() + 1);
+                int recordStart = skipWhitespace(json, 0);
+                if (recordStart == json.length() || json.charAt(recordStart) != '{') {
+                    throw new JsonParseException("Expected a telemetry record object");
+                }
+                toEvent(json, recordStart, json.length(), event);
+                TelemetryMetrics.RECORDS_COUNTER.increment();
+                sourceEventListener.onEvent(event.toString(), new String[0]);
+            }
+        } catch (JsonParseException e) {
+            TelemetryMetrics.FAILURES_COUNTER.increment();
+            log.error("Failed to parse the received telemetry records", e);
+            httpExchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        httpExchange.sendResponseHeaders(200, -1);
+    }
+
+    /**
+     * Parse the telemetry records in the request body into event data and emit them as a single batch of events.
+     *
+     * @param httpExchange The HTTP exchange of the request
+     * @throws IOException If sending the response fails
+     */
+    private void handleAsEventData(HttpExchange httpExchange) throws IOException {
+        CountingInputStream inputStream = new CountingInputStream(httpExchange.getRequestBody());
+        Event[] events;
+        try {
+            events = eventDataReader.read(new BufferedReader(new InputStreamReader(inputStream,
+                    StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            TelemetryMetrics.FAILURES_COUNTER.increment();
+            log.error("Failed to parse the received telemetry records", e);
+            httpExchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        TelemetryMetrics.REQUEST_SIZE_HISTOGRAM.observe(inputStream.getByteCount());
+        TelemetryMetrics.RECORDS_COUNTER.increment(events.length);
+        if (log.isDebugEnabled()) {
+            log.debug("Received " + events.length + " metrics from the adapter");
+        }
+        if (events.length > 0) {
+            sourceEventListener.onEvent(events, new String[0]);
+        }
+        httpExchange.sendResponseHeaders(200, -1);
+    }
+
+    /**
+     * Check if a request contains a batch of telemetry records.
+     *
+     * @param json        The body of the request
+     * @param contentType The content type of the request
+     * @return True if the request contains a batch of telemetry records
+     */
+    private static boolean isBatch(String json, String contentType) {
+        if (contentType != null && contentType.toLowerCase().startsWith(
+                Constants.HTTP_APPLICATION_NDJSON_CONTENT_TYPE)) {
+            return true;
+        }
+        int start = skipWhitespace(json, 0);
+        return start < json.length() && json.charAt(start) == '[';
+    }
+
+    /**
+     * Convert a telemetry record to a JSON event accepted by the json mapper.
+     * A record which is already wrapped in an event object is written as it is.
+     *
+     * @param json   The text containing the telemetry record
+     * @param start  The index of the start of the record object
+     * @param end    The index after the end of the record object
+     * @param events The string builder to which the JSON event is written
+     */
+    static void toEvent(String json, int start, int end, StringBuilder events) {
+        int keyStart = skipWhitespace(json, start + 1);
+        int separator = skipWhitespace(json, keyStart + JSON_EVENT_KEY.length());
+        if (json.startsWith(JSON_EVENT_KEY, keyStart) && separator < end && json.charAt(separator) == ':') {
+            events.append(json, start, end);
+        } else {
+            events.append(JSON_EVENT_PREFIX).append(json, start, end).append('}');
+        }
+    }
+
+    /**
+     * Convert a batch of telemetry records to a JSON array of events accepted by the json mapper.
+     * The batch can be a JSON array of records or a stream of records (eg:- newline delimited JSON). Only the
+     * boundaries of the records are scanned for and the contents of the records are left to be validated by the
+     * json mapper.
+     *
+     * @param json   The batch of telemetry records
+     * @param events The string builder to which the JSON array of events is written
+     * @return The number of telemetry records in the batch
+     * @throws JsonParseException If the batch is truncated or contains a telemetry record which is not an object
+     */
+    static int toEventArray(String json, StringBuilder events) {
+        int recordCount = 0;
+        int recordStart = -1;
+        int depth = 0;
+        boolean inArray = false;
+        boolean inString = false;
+        boolean escaped = false;
+        events.append('[');
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (recordStart >= 0) {
+                if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    if (recordCount > 0) {
+                        events.append(',');
+                    }
+                    toEvent(json, recordStart, i + 1, events);
+                    recordCount++;
+                    recordStart = -1;
+                }
+            } else if (c == '{') {
+                recordStart = i;
+                depth = 1;
+            } else if (c == '[' && !inArray) {
+                inArray = true;
+            } else if (c == ']' && inArray) {
+                inArray = false;
+            } else if (!Character.isWhitespace(c) && !(c == ',' && inArray)) {
+                throw new JsonParseException("Expected a telemetry record object, but found '" + c
+                        + "' at position " + i);
+            }
+        }
+        if (recordStart >= 0 || inArray) {
+            throw new JsonParseException("Unexpected end of the batch of telemetry records");
+        }
+        events.append(']');
+        return recordCount;
+    }
+
+    /**
+     * Get the index of the first non whitespace character starting from an index.
+     *
+     * @param json  The text to scan
+     * @param index The index to start from
+     * @return The index of the first non whitespace character or the length of the text if there is none
+     */
+    private static int skipWhitespace(String json, int index) {
+        while (index < json.length() && Character.isWhitespace(json.charAt(index))) {
+            index++;
         }
-        httpExchange.close();
+        return index;
     }
 }
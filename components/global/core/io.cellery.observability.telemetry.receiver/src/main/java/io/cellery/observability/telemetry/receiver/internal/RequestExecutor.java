@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Executor used by the telemetry receiver HTTP server for handling the requests.
+ * The requests are handled by a pool of worker threads through a bounded queue. When the queue is full, the request
+ * is run in the calling server thread marked as rejected, so that the handlers can respond immediately asking the
+ * client to back off without reading the request.
+ */
+public class RequestExecutor implements Executor {
+
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+    private final IntSupplier queueDepthSupplier;
+
+    public RequestExecutor(int workerThreads, int queueSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        threadPoolExecutor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "telemetry-receiver-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    TelemetryMetrics.REJECTED_REQUESTS_COUNTER.increment();
+                    REJECTED.set(Boolean.TRUE);
+                    try {
+                        runnable.run();
+                    } finally {
+                        REJECTED.remove();
+                    }
+                });
+        queueDepthSupplier = () -> threadPoolExecutor.getQueue().size();
+        TelemetryMetrics.addQueueDepth(queueDepthSupplier);
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        threadPoolExecutor.execute(runnable);
+    }
+
+    /**
+     * Stop the worker threads.
+     * The requests already accepted are handled before the worker threads are stopped.
+     *
+     * @param timeoutSeconds The maximum time to wait for the accepted requests to be handled
+     */
+    public void shutdown(long timeoutSeconds) {
+        threadPoolExecutor.shutdown();
+        try {
+            if (!threadPoolExecutor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                threadPoolExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            threadPoolExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        TelemetryMetrics.removeQueueDepth(queueDepthSupplier);
+    }
+
+    /**
+     * Check if the request handled in the current thread was rejected since the request queue was full.
+     *
+     * @return True if the request was rejected
+     */
+    public static boolean isRejected() {
+        return REJECTED.get() != null;
+    }
+}
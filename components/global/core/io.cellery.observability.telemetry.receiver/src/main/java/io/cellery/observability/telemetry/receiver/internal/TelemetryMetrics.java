@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import io.cellery.observability.metrics.Counter;
+import io.cellery.observability.metrics.Histogram;
+import io.cellery.observability.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics of the telemetry receiver shared by the HTTP and the gRPC transports.
+ * The queue depth is reported as the total of the queue depths of all the running receivers, since multiple Siddhi
+ * apps can run telemetry receivers at once while only one gauge can be registered per name.
+ */
+final class TelemetryMetrics {
+
+    static final Counter REQUESTS_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_telemetry_receiver_requests_total", "Total number of telemetry requests received");
+    static final Counter RECORDS_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_telemetry_receiver_records_total", "Total number of telemetry records received");
+    static final Counter FAILURES_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_telemetry_receiver_failures_total", "Total number of telemetry requests failed to be handled");
+    static final Counter REJECTED_REQUESTS_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_telemetry_receiver_rejected_requests_total",
+            "Total number of telemetry requests rejected since the request queue was full");
+    static final Histogram REQUEST_SIZE_HISTOGRAM = MetricsRegistry.getDefault().histogram(
+            "cellery_telemetry_receiver_request_size_bytes", "Size of the telemetry requests received",
+            Histogram.exponentialBuckets(256, 4, 8));
+
+    private static final List<IntSupplier> QUEUE_DEPTH_SUPPLIERS = new CopyOnWriteArrayList<>();
+
+    static {
+        MetricsRegistry.getDefault().gauge("cellery_telemetry_receiver_queue_depth",
+                "Number of telemetry requests waiting in the request queue", TelemetryMetrics::getQueueDepth);
+    }
+
+    /**
+     * Add the queue depth of a receiver to the reported queue depth.
+     *
+     * @param queueDepthSupplier The supplier of the queue depth of the receiver
+     */
+    static void addQueueDepth(IntSupplier queueDepthSupplier) {
+        QUEUE_DEPTH_SUPPLIERS.add(queueDepthSupplier);
+    }
+
+    /**
+     * Remove the queue depth of a stopped receiver from the reported queue depth.
+     *
+     * @param queueDepthSupplier The supplier of the queue depth of the receiver
+     */
+    static void removeQueueDepth(IntSupplier queueDepthSupplier) {
+        QUEUE_DEPTH_SUPPLIERS.remove(queueDepthSupplier);
+    }
+
+    private static double getQueueDepth() {
+        int queueDepth = 0;
+        for (IntSupplier queueDepthSupplier : QUEUE_DEPTH_SUPPLIERS) {
+            queueDepth += queueDepthSupplier.getAsInt();
+        }
+        return queueDepth;
+    }
+
+    private TelemetryMetrics() {   // Prevent initialization
+    }
+}
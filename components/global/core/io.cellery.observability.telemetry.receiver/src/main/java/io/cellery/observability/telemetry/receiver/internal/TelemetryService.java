@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import io.cellery.observability.telemetry.receiver.generated.AttributeValue;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryReceiverGrpc;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryRecord;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryRequest;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryResponse;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * gRPC service which accepts batches of telemetry records.
+ * The records of a request are converted directly into event data ordered according to the stream attributes and
+ * emitted as a single batch of events (to be used with a pass through mapper). Record attributes which are not
+ * stream attributes are ignored and stream attributes missing in a record are set to null. The calls are expected to
+ * be admitted by a {@link CallAdmissionInterceptor}.
+ */
+public class TelemetryService extends TelemetryReceiverGrpc.TelemetryReceiverImplBase {
+
+    private static final Logger log = Logger.getLogger(TelemetryService.class);
+    private static final TelemetryResponse RESPONSE = TelemetryResponse.getDefaultInstance();
+
+    private final SourceEventListener sourceEventListener;
+    private final String[] attributeNames;
+    private final Attribute.Type[] attributeTypes;
+
+    public TelemetryService(SourceEventListener sourceEventListener) {
+        this.sourceEventListener = sourceEventListener;
+        StreamDefinition streamDefinition = sourceEventListener.getStreamDefinition();
+        List<Attribute> attributes = streamDefinition.getAttributeList();
+        attributeNames = new String[attributes.size()];
+        attributeTypes = new Attribute.Type[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            if (attribute.getType() == Attribute.Type.OBJECT) {
+                throw new IllegalArgumentException("Unsupported type " + attribute.getType() + " of attribute "
+                        + attribute.getName());
+            }
+            attributeNames[i] = attribute.getName();
+            attributeTypes[i] = attribute.getType();
+        }
+    }
+
+    @Override
+    public void report(TelemetryRequest request, StreamObserver<TelemetryResponse> responseObserver) {
+        TelemetryMetrics.REQUESTS_COUNTER.increment();
+        try {
+            Event[] events = new Event[request.getRecordsCount()];
+            for (int i = 0; i < events.length; i++) {
+                events[i] = new Event(-1, toEventData(request.getRecords(i)));     // Timestamp is set by Siddhi
+            }
+            TelemetryMetrics.RECORDS_COUNTER.increment(events.length);
+            if (log.isDebugEnabled()) {
+                log.debug("Received " + events.length + " metrics from the adapter over gRPC");
+            }
+            if (events.length > 0) {
+                sourceEventListener.onEvent(events, new String[0]);
+            }
+            responseObserver.onNext(RESPONSE);
+            responseObserver.onCompleted();
+        } catch (NumberFormatException e) {
+            TelemetryMetrics.FAILURES_COUNTER.increment();
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription(e.getMessage())
+                    .asRuntimeException());
+        } catch (RuntimeException e) {
+            TelemetryMetrics.FAILURES_COUNTER.increment();
+            log.error("Failed to handle the received telemetry records", e);
+            responseObserver.onError(Status.INTERNAL
+                    .withDescription("Failed to handle the received telemetry records")
+                    .asRuntimeException());
+        }
+    }
+
+    /**
+     * Convert a telemetry record into event data.
+     *
+     * @param record The telemetry record
+     * @return The event data
+     */
+    private Object[] toEventData(TelemetryRecord record) {
+        Map<String, AttributeValue> recordAttributes = record.getAttributesMap();
+        Object[] data = new Object[attributeNames.length];
+        for (int i = 0; i < attributeNames.length; i++) {
+            AttributeValue value = recordAttributes.get(attributeNames[i]);
+            if (value != null) {
+                data[i] = convert(value, attributeTypes[i]);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Convert an attribute value to the type of the stream attribute.
+     *
+     * @param value The attribute value
+     * @param type  The type of the stream attribute
+     * @return The converted value or null if the value is not set
+     */
+    private static Object convert(AttributeValue value, Attribute.Type type) {
+        switch (value.getValueCase()) {
+            case STRING_VALUE:
+                return convert(value.getStringValue(), type);
+            case INT64_VALUE:
+                return convert(value.getInt64Value(), type);
+            case DOUBLE_VALUE:
+                return convert(value.getDoubleValue(), type);
+            case BOOL_VALUE:
+                return type == Attribute.Type.BOOL ? value.getBoolValue() : convert(
+                        String.valueOf(value.getBoolValue()), type);
+            default:
+                return null;
+        }
+    }
+
+    private static Object convert(String value, Attribute.Type type) {
+        switch (type) {
+            case INT:
+                return Integer.parseInt(value);
+            case LONG:
+                return Long.parseLong(value);
+            case FLOAT:
+                return Float.parseFloat(value);
+            case DOUBLE:
+                return Double.parseDouble(value);
+            case BOOL:
+                return Boolean.parseBoolean(value);
+            default:
+                return value;
+        }
+    }
+
+    private static Object convert(long value, Attribute.Type type) {
+        switch (type) {
+            case INT:
+                return (int) value;
+            case FLOAT:
+                return (float) value;
+            case DOUBLE:
+                return (double) value;
+            case BOOL:
+                return value != 0;
+            case STRING:
+                return String.valueOf(value);
+            default:
+                return value;
+        }
+    }
+
+    private static Object convert(double value, Attribute.Type type) {
+        switch (type) {
+            case INT:
+                return (int) value;
+            case LONG:
+                return (long) value;
+            case FLOAT:
+                return (float) value;
+            case BOOL:
+                return value != 0;
+            case STRING:
+                return String.valueOf(value);
+            default:
+                return value;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.exception.SiddhiAppCreationException;
+import org.wso2.siddhi.core.query.output.callback.QueryCallback;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+import org.wso2.siddhi.query.api.exception.SiddhiAppValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Test Cases for Extract From UID Function.
+ */
+public class ExtractFromUIDFunctionExecutorTestCase {
+
+    private SiddhiManager siddhiManager;
+    private SiddhiAppRuntime siddhiAppRuntime;
+
+    @BeforeMethod
+    public void init() {
+        siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("telemetry:extractFromUID", ExtractFromUIDFunctionExecutor.class);
+    }
+
+    @AfterMethod
+    public void cleanUp() {
+        if (siddhiAppRuntime != null) {
+            siddhiAppRuntime.shutdown();
+            siddhiAppRuntime = null;
+        }
+        siddhiManager.shutdown();
+    }
+
+    @DataProvider(name = "uids")
+    public Object[][] getUIDs() {
+        return new Object[][]{
+                {"kubernetes://pet-be--controller-deployment-6f6b8d9c4-2xk8q.default",
+                        "pet-be--controller-deployment-6f6b8d9c4-2xk8q", "default"},
+                {"pet-be--controller-deployment-6f6b8d9c4-2xk8q.default",
+                        "pet-be--controller-deployment-6f6b8d9c4-2xk8q", "default"},
+                {"kubernetes://hr.v1.cellery-system", "hr.v1", "cellery-system"},
+                {"a.b.c.d", "a.b.c", "d"},
+                {"pod..default", "pod.", "default"},
+                {"kubernetes://Pet-BE.default", "", ""},
+                {"pet-be.Default", "", ""},
+                {"pet_be.default", "", ""},
+                {"pet-be.default ", "", ""},
+                {"kubernetes://pet-be", "", ""},
+                {"pet-be", "", ""},
+                {".default", "", ""},
+                {"pet-be.", "", ""},
+                {"kubernetes://.default", "", ""},
+                {"kubernetes://", "", ""},
+                {"http://pet-be.default", "", ""},
+                {"", "", ""},
+                {null, "", ""},
+                {"Synapse-PT-HttpComponents-NIO", "global-gateway", ""},
+                {"kubernetes://Synapse-PT-HttpComponents-NIO", "global-gateway", ""},
+                {"Synapse-PT-HttpComponents-NIO.default", "", ""},
+                {"xSynapse-PT-HttpComponents-NIO", "", ""}
+        };
+    }
+
+    @Test(dataProvider = "uids")
+    public void testExtract(String uid, String expectedPod, String expectedNamespace) {
+        Assert.assertEquals(ExtractFromUIDFunctionExecutor.extract(uid, false), expectedPod);
+        Assert.assertEquals(ExtractFromUIDFunctionExecutor.extract(uid, true), expectedNamespace);
+    }
+
+    @Test(dataProvider = "uids")
+    public void testExtractMatchesRegularExpression(String uid, String expectedPod, String expectedNamespace) {
+        Assert.assertEquals(ExtractFromUIDFunctionExecutor.extract(uid, false), extractUsingRegex(uid, 1));
+        Assert.assertEquals(ExtractFromUIDFunctionExecutor.extract(uid, true), extractUsingRegex(uid, 2));
+    }
+
+    @Test
+    public void testExtraction() throws Exception {
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (uid string);\n"
+                + "@info(name = \"query\")\n"
+                + "from inputStream\n"
+                + "select telemetry:extractFromUID(uid, 1) as pod, "
+                + "telemetry:extractFromUID(uid, 2) as namespace\n"
+                + "insert into outputStream;");
+        List<Event> receivedEvents = new ArrayList<>();
+        siddhiAppRuntime.addCallback("query", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                for (Event event : inEvents) {
+                    receivedEvents.add(event);
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("inputStream");
+        inputHandler.send(new Object[]{"kubernetes://hr--employee-deployment-5b8f7c4d6-q2w9x.default"});
+        inputHandler.send(new Object[]{"Synapse-PT-HttpComponents-NIO"});
+        inputHandler.send(new Object[]{"istio-ingressgateway"});
+        inputHandler.send(new Object[]{null});
+
+        Assert.assertEquals(receivedEvents.size(), 4);
+        Assert.assertEquals(receivedEvents.get(0).getData(),
+                new Object[]{"hr--employee-deployment-5b8f7c4d6-q2w9x", "default"});
+        Assert.assertEquals(receivedEvents.get(1).getData(), new Object[]{"global-gateway", ""});
+        Assert.assertEquals(receivedEvents.get(2).getData(), new Object[]{"", ""});
+        Assert.assertEquals(receivedEvents.get(3).getData(), new Object[]{"", ""});
+    }
+
+    @DataProvider(name = "invalidIndices")
+    public Object[][] getInvalidIndices() {
+        return new Object[][]{{"0"}, {"3"}, {"-1"}, {"1L"}, {"'1'"}};
+    }
+
+    @Test(dataProvider = "invalidIndices",
+            expectedExceptions = {SiddhiAppValidationException.class, SiddhiAppCreationException.class})
+    public void testInvalidIndex(String index) {
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (uid string);\n"
+                + "from inputStream\n"
+                + "select telemetry:extractFromUID(uid, " + index + ") as pod\n"
+                + "insert into outputStream;");
+    }
+
+    @Test(expectedExceptions = {SiddhiAppValidationException.class, SiddhiAppCreationException.class})
+    public void testNonConstantIndex() {
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (uid string, "
+                + "index int);\n"
+                + "from inputStream\n"
+                + "select telemetry:extractFromUID(uid, index) as pod\n"
+                + "insert into outputStream;");
+    }
+
+    @Test(expectedExceptions = {SiddhiAppValidationException.class, SiddhiAppCreationException.class})
+    public void testNonStringUID() {
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (uid long);\n"
+                + "from inputStream\n"
+                + "select telemetry:extractFromUID(uid, 1) as pod\n"
+                + "insert into outputStream;");
+    }
+
+    @Test(expectedExceptions = {SiddhiAppValidationException.class, SiddhiAppCreationException.class})
+    public void testInvalidParameterCount() {
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (uid string);\n"
+                + "from inputStream\n"
+                + "select telemetry:extractFromUID(uid) as pod\n"
+                + "insert into outputStream;");
+    }
+
+    /**
+     * Extract from a UID using the regular expression of the JavaScript function replaced by this function.
+     *
+     * @param uid   The UID of the pod
+     * @param index 1 to extract the pod name and 2 to extract the namespace
+     * @return The pod name or the namespace
+     */
+    private static String extractUsingRegex(String uid, int index) {
+        if (uid == null) {
+            return "";
+        }
+        String strippedUID = uid.replaceFirst("^kubernetes://", "");
+        Matcher matcher = Pattern.compile("^([a-z0-9-.]+)\\.([a-z0-9-]+)$").matcher(strippedUID);
+        if (matcher.matches()) {
+            return matcher.group(index);
+        } else if ("Synapse-PT-HttpComponents-NIO".equals(strippedUID) && index == 1) {
+            return "global-gateway";
+        } else {
+            return "";
+        }
+    }
+}
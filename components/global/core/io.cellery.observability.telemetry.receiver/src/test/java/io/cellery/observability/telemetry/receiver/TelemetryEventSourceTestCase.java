@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.map.json.sourcemapper.JsonSourceMapper;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.query.output.callback.QueryCallback;
+import org.wso2.siddhi.core.util.SiddhiTestHelper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test Cases for Telemetry Event Source emitting JSON to the json mapper.
+ */
+public class TelemetryEventSourceTestCase {
+
+    private static final int PORT = 20437;
+    private static final int WAIT_TIME = 50;
+    private static final int TIMEOUT = 5000;
+
+    private SiddhiAppRuntime siddhiAppRuntime;
+    private List<Event> receivedEvents;
+
+    @BeforeMethod
+    public void init() {
+        String inStreamDefinition = "@App:name(\"test-telemetry-app\")\n" +
+                "@source(type=\"telemetry-receiver\", port=\"" + PORT + "\", " +
+                "@map(type=\"json\", fail.on.missing.attribute=\"false\"))\n" +
+                "define stream TelemetryStream (requestID string, responseCode long);";
+        String query = "@info(name = \"query\")\n" +
+                "from TelemetryStream\n" +
+                "select *\n" +
+                "insert into outputStream;";
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("source:telemetry-receiver", TelemetryEventSource.class);
+        siddhiManager.setExtension("json", JsonSourceMapper.class);
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + "\n" + query);
+        receivedEvents = Collections.synchronizedList(new ArrayList<>());
+        siddhiAppRuntime.addCallback("query", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                Collections.addAll(receivedEvents, inEvents);
+            }
+        });
+        siddhiAppRuntime.start();
+    }
+
+    @AfterMethod
+    public void cleanUp() {
+        siddhiAppRuntime.shutdown();
+    }
+
+    @Test
+    public void testSingleRecords() throws Exception {
+        Assert.assertEquals(sendRequest("{\"requestID\":\"1\",\"responseCode\":200}", "application/json"), 200);
+        Assert.assertEquals(sendRequest("{\"event\":{\"requestID\":\"2\",\"responseCode\":404}}",
+                "application/json"), 200);
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 2, receivedEvents, TIMEOUT);
+
+        Assert.assertEquals(receivedEvents.size(), 2);
+        Assert.assertEquals(receivedEvents.get(0).getData(), new Object[]{"1", 200L});
+        Assert.assertEquals(receivedEvents.get(1).getData(), new Object[]{"2", 404L});
+    }
+
+    @Test
+    public void testBatches() throws Exception {
+        Assert.assertEquals(sendRequest("[{\"requestID\":\"1\",\"responseCode\":200},"
+                + "{\"event\":{\"requestID\":\"2\",\"responseCode\":404}}]", "application/json"), 200);
+        Assert.assertEquals(sendRequest("{\"requestID\":\"3\",\"responseCode\":503}\n"
+                        + "{\"event\":{\"requestID\":\"4\",\"responseCode\":500}}\n",
+                Constants.HTTP_APPLICATION_NDJSON_CONTENT_TYPE), 200);
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 4, receivedEvents, TIMEOUT);
+
+        Assert.assertEquals(receivedEvents.size(), 4);
+        Assert.assertEquals(receivedEvents.get(0).getData(), new Object[]{"1", 200L});
+        Assert.assertEquals(receivedEvents.get(1).getData(), new Object[]{"2", 404L});
+        Assert.assertEquals(receivedEvents.get(2).getData(), new Object[]{"3", 503L});
+        Assert.assertEquals(receivedEvents.get(3).getData(), new Object[]{"4", 500L});
+    }
+
+    /**
+     * Send a request to the telemetry receiver.
+     *
+     * @param body        The body of the request
+     * @param contentType The content type of the request
+     * @return The response code
+     * @throws IOException If sending the request fails
+     */
+    private int sendRequest(String body, String contentType) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + PORT + "/")
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty(Constants.HTTP_CONTENT_TYPE_HEADER, contentType);
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection.getResponseCode();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.cellery.observability.metrics.MetricsRegistry;
+import io.cellery.observability.telemetry.receiver.generated.AttributeValue;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryReceiverGrpc;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryRecord;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryRequest;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryResponse;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test Cases for Call Admission Interceptor.
+ */
+public class CallAdmissionInterceptorTestCase {
+
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final String SERVER_NAME = "telemetry-receiver-test";
+    private static final String QUEUE_DEPTH_METRIC = "cellery_telemetry_receiver_queue_depth";
+    private static final TelemetryRequest REQUEST = TelemetryRequest.newBuilder()
+            .addRecords(TelemetryRecord.newBuilder()
+                    .putAttributes("requestID", AttributeValue.newBuilder().setStringValue("1").build())
+                    .build())
+            .build();
+
+    @Test
+    public void testUnavailableWhenCallLimitIsReached() throws Exception {
+        CountDownLatch startedLatch = new CountDownLatch(2);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        AtomicInteger eventCount = new AtomicInteger(0);
+        CallAdmissionInterceptor callAdmissionInterceptor = new CallAdmissionInterceptor(1, 1);
+        // More server threads than admitted calls, so that the rejected call is not waiting behind the admitted calls
+        ExecutorService serverExecutor = Executors.newFixedThreadPool(3);
+        Server server = InProcessServerBuilder.forName(SERVER_NAME)
+                .addService(ServerInterceptors.intercept(new TelemetryService(new SourceEventListener() {
+                    @Override
+                    public StreamDefinition getStreamDefinition() {
+                        return StreamDefinition.id("TelemetryStream")
+                                .attribute("requestID", Attribute.Type.STRING);
+                    }
+
+                    @Override
+                    public void onEvent(Object eventObject, String[] transportProperties) {
+                        startedLatch.countDown();
+                        try {
+                            releaseLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        eventCount.incrementAndGet();
+                    }
+                }), callAdmissionInterceptor))
+                .executor(serverExecutor)
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build();
+        long initialRejectedCount = TelemetryMetrics.REJECTED_REQUESTS_COUNTER.getValue();
+        try {
+            TelemetryReceiverGrpc.TelemetryReceiverFutureStub stub = TelemetryReceiverGrpc.newFutureStub(channel);
+            ListenableFuture<TelemetryResponse> firstResponse = stub.report(REQUEST);
+            ListenableFuture<TelemetryResponse> secondResponse = stub.report(REQUEST);
+            Assert.assertTrue(startedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            try {
+                TelemetryReceiverGrpc.newBlockingStub(channel).report(REQUEST);
+                Assert.fail("Expected the call to be rejected");
+            } catch (StatusRuntimeException e) {
+                Assert.assertEquals(e.getStatus().getCode(), Status.Code.UNAVAILABLE);
+            }
+            Assert.assertEquals(TelemetryMetrics.REJECTED_REQUESTS_COUNTER.getValue(), initialRejectedCount + 1);
+            Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText()
+                    .contains(QUEUE_DEPTH_METRIC + " 1\n"));
+
+            releaseLatch.countDown();
+            Assert.assertNotNull(firstResponse.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assert.assertNotNull(secondResponse.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assert.assertEquals(eventCount.get(), 2);
+        } finally {
+            releaseLatch.countDown();
+            channel.shutdownNow();
+            server.shutdownNow();
+            serverExecutor.shutdownNow();
+            callAdmissionInterceptor.close();
+        }
+        Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText().contains(QUEUE_DEPTH_METRIC + " 0\n"));
+    }
+}
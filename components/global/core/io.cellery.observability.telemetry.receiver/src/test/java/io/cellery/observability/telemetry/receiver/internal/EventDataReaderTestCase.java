@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Test Cases for Event Data Reader.
+ */
+public class EventDataReaderTestCase {
+
+    private EventDataReader eventDataReader;
+
+    @BeforeClass
+    public void init() {
+        eventDataReader = new EventDataReader(StreamDefinition.id("TelemetryStream")
+                .attribute("requestID", Attribute.Type.STRING)
+                .attribute("responseCode", Attribute.Type.INT)
+                .attribute("requestSize", Attribute.Type.LONG)
+                .attribute("ratio", Attribute.Type.FLOAT)
+                .attribute("duration", Attribute.Type.DOUBLE)
+                .attribute("success", Attribute.Type.BOOL));
+    }
+
+    @Test
+    public void testReadingInAttributesOrder() throws IOException {
+        Event[] events = eventDataReader.read(new StringReader("{\"success\":true,\"duration\":12.5,"
+                + "\"ratio\":0.5,\"requestSize\":4096,\"responseCode\":200,\"requestID\":\"1\"}"));
+
+        Assert.assertEquals(events.length, 1);
+        Assert.assertEquals(events[0].getData(), new Object[]{"1", 200, 4096L, 0.5f, 12.5d, true});
+        Assert.assertEquals(events[0].getTimestamp(), -1);
+    }
+
+    @Test
+    public void testTypeCoercion() throws IOException {
+        Event[] events = eventDataReader.read(new StringReader("{\"requestID\":25,\"responseCode\":\"200\","
+                + "\"requestSize\":\"4096\",\"ratio\":1,\"duration\":\"12.5\",\"success\":\"true\"}"
+                + "{\"requestID\":false,\"responseCode\":404.0,\"success\":false}"));
+
+        Assert.assertEquals(events.length, 2);
+        Assert.assertEquals(events[0].getData(), new Object[]{"25", 200, 4096L, 1.0f, 12.5d, true});
+        Assert.assertEquals(events[1].getData(), new Object[]{"false", 404, null, null, null, false});
+    }
+
+    @Test
+    public void testMissingAndNullKeys() throws IOException {
+        Event[] events = eventDataReader.read(new StringReader("{\"requestID\":null,\"responseCode\":200,"
+                + "\"destination\":{\"name\":\"hr\",\"ports\":[80,443]},\"success\":null}"));
+
+        Assert.assertEquals(events.length, 1);
+        Assert.assertEquals(events[0].getData(), new Object[]{null, 200, null, null, null, null});
+    }
+
+    @Test
+    public void testReadingBatches() throws IOException {
+        Event[] events = eventDataReader.read(new StringReader("[{\"requestID\":\"1\"},{\"requestID\":\"2\"}]\n"
+                + "{\"requestID\":\"3\"}\n"
+                + "[]\n"
+                + "[{\"requestID\":\"4\"}]\n"));
+
+        Assert.assertEquals(events.length, 4);
+        for (int i = 0; i < events.length; i++) {
+            Assert.assertEquals(events[i].getData()[0], String.valueOf(i + 1));
+        }
+    }
+
+    @Test
+    public void testReadingWrappedRecords() throws IOException {
+        Event[] events = eventDataReader.read(new StringReader("{\"event\":{\"requestID\":\"1\",\"responseCode\":200}}"
+                + "[{\"event\":{\"requestID\":\"2\"}},{\"requestID\":\"3\",\"event\":{\"requestID\":\"4\"}}]"));
+
+        Assert.assertEquals(events.length, 3);
+        Assert.assertEquals(events[0].getData(), new Object[]{"1", 200, null, null, null, null});
+        Assert.assertEquals(events[1].getData(), new Object[]{"2", null, null, null, null, null});
+        Assert.assertEquals(events[2].getData(), new Object[]{"3", null, null, null, null, null});
+    }
+
+    @Test
+    public void testReadingEmptyBody() throws IOException {
+        Assert.assertEquals(eventDataReader.read(new StringReader("")).length, 0);
+        Assert.assertEquals(eventDataReader.read(new StringReader(" \n")).length, 0);
+        Assert.assertEquals(eventDataReader.read(new StringReader("[]")).length, 0);
+    }
+
+    @DataProvider(name = "malformedRecords")
+    public Object[][] getMalformedRecords() {
+        return new Object[][]{
+                {"{\"responseCode\":\"OK\"}"},
+                {"{\"responseCode\":200.5}"},
+                {"{\"requestSize\":true}"},
+                {"{\"success\":1}"},
+                {"{\"requestID\":[\"1\"]}"},
+                {"{\"requestID\":\"1\""},
+                {"[{\"requestID\":\"1\"},"},
+                {"[\"1\"]"},
+                {"{\"requestID\":\"1\"}\n200"},
+                {"{\"event\":{\"requestID\":\"1\"},\"responseCode\":200}"}
+        };
+    }
+
+    @Test(dataProvider = "malformedRecords", expectedExceptions = IOException.class)
+    public void testReadingMalformedRecords(String records) throws IOException {
+        eventDataReader.read(new StringReader(records));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedAttributeType() {
+        new EventDataReader(StreamDefinition.id("TelemetryStream")
+                .attribute("requestID", Attribute.Type.STRING)
+                .attribute("attributes", Attribute.Type.OBJECT));
+    }
+}
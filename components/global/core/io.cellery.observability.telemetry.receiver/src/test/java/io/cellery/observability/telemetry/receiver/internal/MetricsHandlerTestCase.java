@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+import io.cellery.observability.telemetry.receiver.Constants;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Test Cases for Metrics Handler.
+ */
+public class MetricsHandlerTestCase {
+
+    private static final String EVENT_DATA_CONTEXT = "/events";
+
+    private HttpServer httpServer;
+    private List<Object> receivedEvents;
+
+    @BeforeMethod
+    public void init() throws IOException {
+        receivedEvents = new CopyOnWriteArrayList<>();
+        SourceEventListener sourceEventListener = new SourceEventListener() {
+            @Override
+            public StreamDefinition getStreamDefinition() {
+                return null;
+            }
+
+            @Override
+            public void onEvent(Object eventObject, String[] transportProperties) {
+                receivedEvents.add(eventObject);
+            }
+        };
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/", new MetricsHandler(sourceEventListener));
+        httpServer.createContext(EVENT_DATA_CONTEXT, new MetricsHandler(sourceEventListener,
+                new EventDataReader(StreamDefinition.id("TelemetryStream")
+                        .attribute("requestID", Attribute.Type.STRING)
+                        .attribute("responseCode", Attribute.Type.INT))));
+        httpServer.start();
+    }
+
+    @AfterMethod
+    public void cleanUp() {
+        httpServer.stop(0);
+    }
+
+    @Test
+    public void testConvertingJsonArray() {
+        StringBuilder events = new StringBuilder();
+        int recordCount = MetricsHandler.toEventArray("[{\"requestID\":\"1\",\"responseCode\":200}, "
+                + "{\"requestID\":\"2\",\"responseCode\":503}]", events);
+
+        Assert.assertEquals(recordCount, 2);
+        Assert.assertEquals(events.toString(), "[{\"event\":{\"requestID\":\"1\",\"responseCode\":200}},"
+                + "{\"event\":{\"requestID\":\"2\",\"responseCode\":503}}]");
+    }
+
+    @Test
+    public void testConvertingNewlineDelimitedJson() {
+        StringBuilder events = new StringBuilder();
+        int recordCount = MetricsHandler.toEventArray("{\"requestID\":\"1\"}\n{\"requestID\":\"2\"}\n"
+                + "[{\"requestID\":\"3\"}]\n", events);
+
+        Assert.assertEquals(recordCount, 3);
+        Assert.assertEquals(events.toString(), "[{\"event\":{\"requestID\":\"1\"}},"
+                + "{\"event\":{\"requestID\":\"2\"}},{\"event\":{\"requestID\":\"3\"}}]");
+    }
+
+    @Test
+    public void testConvertingRecordsAsText() {
+        StringBuilder events = new StringBuilder();
+        int recordCount = MetricsHandler.toEventArray("[{ \"event\" : {\"path\":\"/a}\\\"{\"}}, "
+                + "{\"eventID\":\"[1]\",\"tags\":[{}]}]", events);
+
+        Assert.assertEquals(recordCount, 2);
+        Assert.assertEquals(events.toString(), "[{ \"event\" : {\"path\":\"/a}\\\"{\"}},"
+                + "{\"event\":{\"eventID\":\"[1]\",\"tags\":[{}]}}]");
+    }
+
+    @Test
+    public void testConvertingEmptyBatch() {
+        StringBuilder events = new StringBuilder();
+        Assert.assertEquals(MetricsHandler.toEventArray("[]", events), 0);
+        Assert.assertEquals(events.toString(), "[]");
+
+        events = new StringBuilder();
+        Assert.assertEquals(MetricsHandler.toEventArray(" \n", events), 0);
+        Assert.assertEquals(events.toString(), "[]");
+    }
+
+    @Test(expectedExceptions = JsonParseException.class)
+    public void testConvertingTruncatedBatch() {
+        MetricsHandler.toEventArray("[{\"requestID\":\"1\"}, {\"requestID\":", new StringBuilder());
+    }
+
+    @Test(expectedExceptions = JsonParseException.class)
+    public void testConvertingNonObjectRecord() {
+        MetricsHandler.toEventArray("[{\"requestID\":\"1\"}, 2]", new StringBuilder());
+    }
+
+    @Test
+    public void testHandlingSingleRecord() throws IOException {
+        String record = "{\"requestID\":\"1\",\"responseCode\":200}";
+        Assert.assertEquals(sendRequest(record, "application/json").getResponseCode(), 200);
+
+        Assert.assertEquals(receivedEvents.size(), 1);
+        Assert.assertEquals(receivedEvents.get(0), "{\"event\":" + record + "}");
+    }
+
+    @Test
+    public void testHandlingWrappedRecords() throws IOException {
+        Assert.assertEquals(sendRequest("{\"event\":{\"requestID\":\"1\"}}", "application/json")
+                .getResponseCode(), 200);
+        Assert.assertEquals(sendRequest("[{\"event\":{\"requestID\":\"2\"}},{\"requestID\":\"3\"}]",
+                "application/json").getResponseCode(), 200);
+
+        Assert.assertEquals(receivedEvents.size(), 2);
+        Assert.assertEquals(receivedEvents.get(0), "{\"event\":{\"requestID\":\"1\"}}");
+        Assert.assertEquals(receivedEvents.get(1),
+                "[{\"event\":{\"requestID\":\"2\"}},{\"event\":{\"requestID\":\"3\"}}]");
+    }
+
+    @Test
+    public void testHandlingJsonArray() throws IOException {
+        Assert.assertEquals(sendRequest("[{\"requestID\":\"1\"},{\"requestID\":\"2\"}]", "application/json")
+                .getResponseCode(), 200);
+
+        Assert.assertEquals(receivedEvents.size(), 1);
+        Assert.assertEquals(receivedEvents.get(0),
+                "[{\"event\":{\"requestID\":\"1\"}},{\"event\":{\"requestID\":\"2\"}}]");
+    }
+
+    @Test
+    public void testHandlingNewlineDelimitedJson() throws IOException {
+        Assert.assertEquals(sendRequest("{\"requestID\":\"1\"}\n{\"requestID\":\"2\"}\n",
+                Constants.HTTP_APPLICATION_NDJSON_CONTENT_TYPE).getResponseCode(), 200);
+
+        Assert.assertEquals(receivedEvents.size(), 1);
+        Assert.assertEquals(receivedEvents.get(0),
+                "[{\"event\":{\"requestID\":\"1\"}},{\"event\":{\"requestID\":\"2\"}}]");
+    }
+
+    @Test
+    public void testHandlingEmptyBatch() throws IOException {
+        Assert.assertEquals(sendRequest("[]", "application/json").getResponseCode(), 200);
+        Assert.assertEquals(sendRequest("", Constants.HTTP_APPLICATION_NDJSON_CONTENT_TYPE).getResponseCode(), 200);
+        Assert.assertEquals(receivedEvents.size(), 0);
+    }
+
+    @Test
+    public void testHandlingMalformedBatches() throws IOException {
+        Assert.assertEquals(sendRequest("[\"requestID\"]", "application/json").getResponseCode(), 400);
+        Assert.assertEquals(sendRequest("{\"requestID\":\"1\"}\n2\n", Constants.HTTP_APPLICATION_NDJSON_CONTENT_TYPE)
+                .getResponseCode(), 400);
+        Assert.assertEquals(sendRequest("[{\"requestID\":", "application/json").getResponseCode(), 400);
+        Assert.assertEquals(sendRequest("\"requestID\"", "application/json").getResponseCode(), 400);
+        Assert.assertEquals(receivedEvents.size(), 0);
+    }
+
+    @Test
+    public void testHandlingAsEventData() throws IOException {
+        Assert.assertEquals(sendRequest(EVENT_DATA_CONTEXT, "[{\"requestID\":\"1\",\"responseCode\":200},"
+                + "{\"requestID\":\"2\",\"responseCode\":503}]", "application/json").getResponseCode(), 200);
+        Assert.assertEquals(sendRequest(EVENT_DATA_CONTEXT, "", "application/json").getResponseCode(), 200);
+
+        Assert.assertEquals(receivedEvents.size(), 1);
+        Event[] events = (Event[]) receivedEvents.get(0);
+        Assert.assertEquals(events.length, 2);
+        Assert.assertEquals(events[0].getData(), new Object[]{"1", 200});
+        Assert.assertEquals(events[1].getData(), new Object[]{"2", 503});
+    }
+
+    @Test
+    public void testHandlingMalformedRecordsAsEventData() throws IOException {
+        Assert.assertEquals(sendRequest(EVENT_DATA_CONTEXT, "[{\"requestID\":\"1\"}, 2]", "application/json")
+                .getResponseCode(), 400);
+        Assert.assertEquals(sendRequest(EVENT_DATA_CONTEXT, "{\"responseCode\":\"OK\"}", "application/json")
+                .getResponseCode(), 400);
+        Assert.assertEquals(receivedEvents.size(), 0);
+    }
+
+    @Test
+    public void testFailedResponseAsEventData() {
+        StubHttpExchange httpExchange = new StubHttpExchange("[{\"requestID\":\"1\",\"responseCode\":200}]");
+        MetricsHandler metricsHandler = new MetricsHandler(new SourceEventListener() {
+            @Override
+            public StreamDefinition getStreamDefinition() {
+                return null;
+            }
+
+            @Override
+            public void onEvent(Object eventObject, String[] transportProperties) {
+                receivedEvents.add(eventObject);
+            }
+        }, new EventDataReader(StreamDefinition.id("TelemetryStream")
+                .attribute("requestID", Attribute.Type.STRING)
+                .attribute("responseCode", Attribute.Type.INT)));
+        // The failure to send the response is not handled as a malformed request
+        Assert.expectThrows(IOException.class, () -> metricsHandler.handle(httpExchange));
+
+        Assert.assertEquals(receivedEvents.size(), 1);
+        Assert.assertEquals(httpExchange.responseCodes, Collections.singletonList(200));
+        Assert.assertEquals(httpExchange.closeCount, 1);
+    }
+
+    private HttpURLConnection sendRequest(String body, String contentType) throws IOException {
+        return sendRequest("/", body, contentType);
+    }
+
+    /**
+     * Send a request to the telemetry receiver.
+     *
+     * @param context     The context to which the request is sent
+     * @param body        The body of the request
+     * @param contentType The content type of the request
+     * @return The connection from which the response can be read
+     * @throws IOException If sending the request fails
+     */
+    private HttpURLConnection sendRequest(String context, String body, String contentType) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:"
+                + httpServer.getAddress().getPort() + context).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty(Constants.HTTP_CONTENT_TYPE_HEADER, contentType);
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    /**
+     * HTTP exchange which fails to send the response headers and records the interactions of the handler.
+     */
+    private static class StubHttpExchange extends HttpExchange {
+
+        private final InputStream requestBody;
+        private final Headers requestHeaders = new Headers();
+        private final Headers responseHeaders = new Headers();
+        private final List<Integer> responseCodes = new ArrayList<>();
+        private int closeCount = 0;
+
+        private StubHttpExchange(String body) {
+            requestBody = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            return requestHeaders;
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return URI.create(EVENT_DATA_CONTEXT);
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return "POST";
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            closeCount++;
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return requestBody;
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void sendResponseHeaders(int responseCode, long responseLength) throws IOException {
+            responseCodes.add(responseCode);
+            throw new IOException("Connection reset by peer");
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return responseCodes.isEmpty() ? -1 : responseCodes.get(responseCodes.size() - 1);
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return null;
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+        }
+
+        @Override
+        public void setStreams(InputStream inputStream, OutputStream outputStream) {
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import com.sun.net.httpserver.HttpServer;
+import io.cellery.observability.metrics.MetricsRegistry;
+import io.cellery.observability.telemetry.receiver.Constants;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test Cases for Request Executor.
+ */
+public class RequestExecutorTestCase {
+
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final int WAIT_TIME = 50;
+    private static final String QUEUE_DEPTH_METRIC = "cellery_telemetry_receiver_queue_depth";
+
+    @Test
+    public void testRejectionWhenQueueIsFull() throws Exception {
+        RequestExecutor requestExecutor = new RequestExecutor(1, 1);
+        CountDownLatch startedLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        List<Boolean> rejections = new CopyOnWriteArrayList<>();
+        long initialRejectedCount = TelemetryMetrics.REJECTED_REQUESTS_COUNTER.getValue();
+
+        requestExecutor.execute(() -> {     // Blocks the only worker thread
+            startedLatch.countDown();
+            awaitRelease(releaseLatch);
+            rejections.add(RequestExecutor.isRejected());
+        });
+        Assert.assertTrue(startedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        requestExecutor.execute(() -> rejections.add(RequestExecutor.isRejected()));   // Fills the queue
+        Thread[] rejectedThread = new Thread[1];
+        requestExecutor.execute(() -> {
+            rejectedThread[0] = Thread.currentThread();
+            rejections.add(RequestExecutor.isRejected());
+        });
+
+        Assert.assertSame(rejectedThread[0], Thread.currentThread());
+        Assert.assertFalse(RequestExecutor.isRejected());
+        Assert.assertEquals(TelemetryMetrics.REJECTED_REQUESTS_COUNTER.getValue(), initialRejectedCount + 1);
+        releaseLatch.countDown();
+        requestExecutor.shutdown(TIMEOUT_SECONDS);
+        Assert.assertEquals(rejections.size(), 3);
+        Assert.assertEquals(rejections.get(0), Boolean.TRUE);
+        Assert.assertEquals(rejections.get(1), Boolean.FALSE);
+        Assert.assertEquals(rejections.get(2), Boolean.FALSE);
+    }
+
+    @Test
+    public void testServiceUnavailableWhenQueueIsFull() throws Exception {
+        CountDownLatch startedLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        AtomicInteger eventCount = new AtomicInteger(0);
+        SourceEventListener sourceEventListener = new SourceEventListener() {
+            @Override
+            public StreamDefinition getStreamDefinition() {
+                return null;
+            }
+
+            @Override
+            public void onEvent(Object eventObject, String[] transportProperties) {
+                startedLatch.countDown();
+                awaitRelease(releaseLatch);
+                eventCount.incrementAndGet();
+            }
+        };
+        RequestExecutor requestExecutor = new RequestExecutor(1, 1);
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/", new MetricsHandler(sourceEventListener));
+        httpServer.setExecutor(requestExecutor);
+        httpServer.start();
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(2);
+        try {
+            int port = httpServer.getAddress().getPort();
+            Future<Integer> blockingResponse = clientExecutor.submit(() -> sendRequest(port).getResponseCode());
+            Assert.assertTrue(startedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Future<Integer> queuedResponse = clientExecutor.submit(() -> sendRequest(port).getResponseCode());
+            waitForQueueDepth(1);
+
+            HttpURLConnection rejectedConnection = sendRequest(port);
+            Assert.assertEquals(rejectedConnection.getResponseCode(), 503);
+            Assert.assertEquals(rejectedConnection.getHeaderField(Constants.HTTP_RETRY_AFTER_HEADER),
+                    Constants.HTTP_RETRY_AFTER_SECONDS);
+
+            releaseLatch.countDown();
+            Assert.assertEquals(blockingResponse.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), Integer.valueOf(200));
+            Assert.assertEquals(queuedResponse.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), Integer.valueOf(200));
+            Assert.assertEquals(eventCount.get(), 2);
+        } finally {
+            releaseLatch.countDown();
+            clientExecutor.shutdownNow();
+            httpServer.stop(0);
+            requestExecutor.shutdown(TIMEOUT_SECONDS);
+        }
+    }
+
+    @Test
+    public void testShutdownHandlesAcceptedRequests() throws Exception {
+        RequestExecutor requestExecutor = new RequestExecutor(1, 10);
+        CountDownLatch startedLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        AtomicInteger handledCount = new AtomicInteger(0);
+
+        requestExecutor.execute(() -> {
+            startedLatch.countDown();
+            awaitRelease(releaseLatch);
+            handledCount.incrementAndGet();
+        });
+        Assert.assertTrue(startedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            requestExecutor.execute(handledCount::incrementAndGet);
+        }
+        releaseLatch.countDown();
+        requestExecutor.shutdown(TIMEOUT_SECONDS);
+
+        Assert.assertEquals(handledCount.get(), 6);
+        Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText().contains(QUEUE_DEPTH_METRIC + " 0\n"));
+    }
+
+    private static void awaitRelease(CountDownLatch releaseLatch) {
+        try {
+            releaseLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static HttpURLConnection sendRequest(int port) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/")
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty(Constants.HTTP_CONTENT_TYPE_HEADER, "application/json");
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write("{\"requestID\":\"1\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private static void waitForQueueDepth(int expectedQueueDepth) throws InterruptedException {
+        long waitedTime = 0;
+        while (getQueueDepth() < expectedQueueDepth && waitedTime < TIMEOUT_SECONDS * 1000) {
+            Thread.sleep(WAIT_TIME);
+            waitedTime += WAIT_TIME;
+        }
+        Assert.assertEquals(getQueueDepth(), expectedQueueDepth);
+    }
+
+    private static int getQueueDepth() {
+        for (String line : MetricsRegistry.getDefault().toPrometheusText().split("\n")) {
+            if (line.startsWith(QUEUE_DEPTH_METRIC + " ")) {
+                return (int) Double.parseDouble(line.substring(QUEUE_DEPTH_METRIC.length() + 1));
+            }
+        }
+        return 0;
+    }
+}
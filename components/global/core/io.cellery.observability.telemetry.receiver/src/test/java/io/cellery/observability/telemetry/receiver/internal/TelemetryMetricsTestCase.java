@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import io.cellery.observability.metrics.MetricsRegistry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Test Cases for Telemetry Metrics.
+ */
+public class TelemetryMetricsTestCase {
+
+    private static final String QUEUE_DEPTH_METRIC = "cellery_telemetry_receiver_queue_depth";
+
+    @Test
+    public void testQueueDepthOfMultipleReceivers() {
+        IntSupplier firstQueueDepth = () -> 2;
+        IntSupplier secondQueueDepth = () -> 3;
+        TelemetryMetrics.addQueueDepth(firstQueueDepth);
+        TelemetryMetrics.addQueueDepth(secondQueueDepth);
+        try {
+            Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText().contains(QUEUE_DEPTH_METRIC + " 5\n"));
+
+            TelemetryMetrics.removeQueueDepth(secondQueueDepth);
+            Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText().contains(QUEUE_DEPTH_METRIC + " 2\n"));
+        } finally {
+            TelemetryMetrics.removeQueueDepth(firstQueueDepth);
+            TelemetryMetrics.removeQueueDepth(secondQueueDepth);
+        }
+        Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText().contains(QUEUE_DEPTH_METRIC + " 0\n"));
+    }
+}
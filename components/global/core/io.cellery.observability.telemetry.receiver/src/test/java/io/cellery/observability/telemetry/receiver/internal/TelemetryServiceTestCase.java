@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.telemetry.receiver.internal;
+
+import io.cellery.observability.telemetry.receiver.generated.AttributeValue;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryRecord;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryRequest;
+import io.cellery.observability.telemetry.receiver.generated.TelemetryResponse;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test Cases for Telemetry Service.
+ */
+public class TelemetryServiceTestCase {
+
+    private static final StreamDefinition STREAM_DEFINITION = StreamDefinition.id("TelemetryStream")
+            .attribute("requestID", Attribute.Type.STRING)
+            .attribute("responseCode", Attribute.Type.INT)
+            .attribute("requestSize", Attribute.Type.LONG)
+            .attribute("ratio", Attribute.Type.FLOAT)
+            .attribute("duration", Attribute.Type.DOUBLE)
+            .attribute("success", Attribute.Type.BOOL);
+
+    private List<Object> receivedEvents;
+    private TelemetryService telemetryService;
+
+    @BeforeMethod
+    public void init() {
+        receivedEvents = new ArrayList<>();
+        telemetryService = new TelemetryService(new SourceEventListener() {
+            @Override
+            public StreamDefinition getStreamDefinition() {
+                return STREAM_DEFINITION;
+            }
+
+            @Override
+            public void onEvent(Object eventObject, String[] transportProperties) {
+                receivedEvents.add(eventObject);
+            }
+        });
+    }
+
+    @Test
+    public void testEmittingBatchAsSingleEventArray() {
+        TelemetryRequest request = TelemetryRequest.newBuilder()
+                .addRecords(TelemetryRecord.newBuilder()
+                        .putAttributes("requestID", stringValue("1"))
+                        .putAttributes("responseCode", int64Value(200))
+                        .putAttributes("requestSize", int64Value(4096))
+                        .putAttributes("ratio", doubleValue(0.5))
+                        .putAttributes("duration", doubleValue(12.5))
+                        .putAttributes("success", boolValue(true))
+                        .build())
+                .addRecords(TelemetryRecord.newBuilder()
+                        .putAttributes("requestID", stringValue("2"))
+                        .putAttributes("destination", stringValue("hr"))
+                        .build())
+                .addRecords(TelemetryRecord.newBuilder()
+                        .putAttributes("requestID", AttributeValue.newBuilder().build())
+                        .build())
+                .build();
+        RecordingStreamObserver responseObserver = new RecordingStreamObserver();
+        telemetryService.report(request, responseObserver);
+
+        Assert.assertNull(responseObserver.error);
+        Assert.assertEquals(responseObserver.responses.size(), 1);
+        Assert.assertTrue(responseObserver.completed);
+        Assert.assertEquals(receivedEvents.size(), 1);
+        Event[] events = (Event[]) receivedEvents.get(0);
+        Assert.assertEquals(events.length, 3);
+        Assert.assertEquals(events[0].getData(), new Object[]{"1", 200, 4096L, 0.5f, 12.5d, true});
+        Assert.assertEquals(events[1].getData(), new Object[]{"2", null, null, null, null, null});
+        Assert.assertEquals(events[2].getData(), new Object[]{null, null, null, null, null, null});
+        for (Event event : events) {
+            Assert.assertEquals(event.getTimestamp(), -1);
+        }
+    }
+
+    @Test
+    public void testTypeCoercion() {
+        TelemetryRequest request = TelemetryRequest.newBuilder()
+                .addRecords(TelemetryRecord.newBuilder()
+                        .putAttributes("requestID", int64Value(25))
+                        .putAttributes("responseCode", stringValue("404"))
+                        .putAttributes("requestSize", doubleValue(4096.7))
+                        .putAttributes("ratio", int64Value(1))
+                        .putAttributes("duration", stringValue("12.5"))
+                        .putAttributes("success", stringValue("true"))
+                        .build())
+                .addRecords(TelemetryRecord.newBuilder()
+                        .putAttributes("requestID", boolValue(false))
+                        .putAttributes("responseCode", doubleValue(200.0))
+                        .putAttributes("requestSize", stringValue("10"))
+                        .putAttributes("duration", int64Value(3))
+                        .putAttributes("success", int64Value(0))
+                        .build())
+                .build();
+        RecordingStreamObserver responseObserver = new RecordingStreamObserver();
+        telemetryService.report(request, responseObserver);
+
+        Assert.assertTrue(responseObserver.completed);
+        Event[] events = (Event[]) receivedEvents.get(0);
+        Assert.assertEquals(events[0].getData(), new Object[]{"25", 404, 4096L, 1.0f, 12.5d, true});
+        Assert.assertEquals(events[1].getData(), new Object[]{"false", 200, 10L, null, 3.0d, false});
+    }
+
+    @Test
+    public void testEmptyRequest() {
+        RecordingStreamObserver responseObserver = new RecordingStreamObserver();
+        telemetryService.report(TelemetryRequest.newBuilder().build(), responseObserver);
+
+        Assert.assertNull(responseObserver.error);
+        Assert.assertEquals(responseObserver.responses.size(), 1);
+        Assert.assertTrue(responseObserver.completed);
+        Assert.assertEquals(receivedEvents.size(), 0);
+    }
+
+    @Test
+    public void testInvalidArgument() {
+        TelemetryRequest request = TelemetryRequest.newBuilder()
+                .addRecords(TelemetryRecord.newBuilder()
+                        .putAttributes("requestID", stringValue("1"))
+                        .build())
+                .addRecords(TelemetryRecord.newBuilder()
+                        .putAttributes("responseCode", stringValue("OK"))
+                        .build())
+                .build();
+        RecordingStreamObserver responseObserver = new RecordingStreamObserver();
+        telemetryService.report(request, responseObserver);
+
+        Assert.assertNotNull(responseObserver.error);
+        Assert.assertEquals(Status.fromThrowable(responseObserver.error).getCode(), Status.Code.INVALID_ARGUMENT);
+        Assert.assertEquals(responseObserver.responses.size(), 0);
+        Assert.assertFalse(responseObserver.completed);
+        Assert.assertEquals(receivedEvents.size(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedAttributeType() {
+        new TelemetryService(new SourceEventListener() {
+            @Override
+            public StreamDefinition getStreamDefinition() {
+                return StreamDefinition.id("TelemetryStream")
+                        .attribute("attributes", Attribute.Type.OBJECT);
+            }
+
+            @Override
+            public void onEvent(Object eventObject, String[] transportProperties) {
+            }
+        });
+    }
+
+    private static AttributeValue stringValue(String value) {
+        return AttributeValue.newBuilder().setStringValue(value).build();
+    }
+
+    private static AttributeValue int64Value(long value) {
+        return AttributeValue.newBuilder().setInt64Value(value).build();
+    }
+
+    private static AttributeValue doubleValue(double value) {
+        return AttributeValue.newBuilder().setDoubleValue(value).build();
+    }
+
+    private static AttributeValue boolValue(boolean value) {
+        return AttributeValue.newBuilder().setBoolValue(value).build();
+    }
+
+    /**
+     * Stream Observer which records the responses of the telemetry service.
+     */
+    private static class RecordingStreamObserver implements StreamObserver<TelemetryResponse> {
+
+        private List<TelemetryResponse> responses = new ArrayList<>();
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onNext(TelemetryResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+}
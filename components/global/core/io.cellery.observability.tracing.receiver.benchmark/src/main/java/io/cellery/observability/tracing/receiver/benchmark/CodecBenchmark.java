@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.benchmark;
+
+import io.cellery.observability.tracing.receiver.Constants;
+import io.cellery.observability.tracing.receiver.internal.Codec;
+import io.cellery.observability.tracing.receiver.internal.SpanAttribute;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import zipkin2.Endpoint;
+import zipkin2.Span;
+import zipkin2.codec.SpanBytesEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for decoding the Zipkin encodings accepted by the tracing receiver.
+ * The throughput is measured in spans per second, and the decoded bytes per second are reported alongside it, so
+ * that the encoded size per span of each encoding is the ratio of the two.
+ *
+ * Build with "mvn clean install -Pbenchmark" and run with "java -jar target/benchmarks.jar CodecBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final int SPANS_PER_REQUEST = 100;
+    private static final SpanAttribute[] OUTPUT_ATTRIBUTES = SpanAttribute.values();
+
+    @Param({"JSON_V1", "JSON_V2", "PROTO3", "THRIFT"})
+    public String encoding;
+
+    private byte[] encodedSpans;
+    private String contentType;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpanBytesEncoder encoder = SpanBytesEncoder.valueOf(encoding);
+        encodedSpans = encoder.encodeList(generateSpans(SPANS_PER_REQUEST));
+        switch (encoder) {
+            case PROTO3:
+                contentType = Constants.HTTP_APPLICATION_PROTOBUF_CONTENT_TYPE;
+                break;
+            case THRIFT:
+                contentType = Constants.HTTP_APPLICATION_THRIFT_CONTENT_TYPE;
+                break;
+            default:
+                contentType = "application/json";
+        }
+    }
+
+    /**
+     * Counter of the encoded bytes decoded, reported by JMH as a secondary result of each benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class DecodedBytes {
+
+        public long decodedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            decodedBytes = 0;
+        }
+    }
+
+    /**
+     * Decode the received spans into Zipkin spans.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SPANS_PER_REQUEST)
+    public void decodeSpans(DecodedBytes decodedBytes, Blackhole blackhole) {
+        blackhole.consume(Codec.decodeSpans(encodedSpans, contentType));
+        decodedBytes.decodedBytes += encodedSpans.length;
+    }
+
+    /**
+     * Decode the received spans and convert them into event data as done by the tracing receiver.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SPANS_PER_REQUEST)
+    public void decodeSpansToEventData(DecodedBytes decodedBytes, Blackhole blackhole) {
+        for (Span span : Codec.decodeSpans(encodedSpans, contentType)) {
+            Object[] data = new Object[OUTPUT_ATTRIBUTES.length];
+            for (int i = 0; i < OUTPUT_ATTRIBUTES.length; i++) {
+                data[i] = OUTPUT_ATTRIBUTES[i].getValue(span);
+            }
+            blackhole.consume(data);
+        }
+        decodedBytes.decodedBytes += encodedSpans.length;
+    }
+
+    /**
+     * Generate spans similar to the spans reported by the Cellery components.
+     *
+     * @param count The number of spans to generate
+     * @return The generated spans
+     */
+    private static List<Span> generateSpans(int count) {
+        List<Span> spans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            spans.add(Span.newBuilder()
+                    .traceId(Long.toHexString(0x5af7183fb1d4cf5fL + i / 10))
+                    .id(Long.toHexString(0x6b221d5bc9e6496cL + i))
+                    .parentId(i % 10 == 0 ? null : Long.toHexString(0x6b221d5bc9e6496cL + i - 1))
+                    .name("get /api/v1/pets/" + i)
+                    .kind(i % 2 == 0 ? Span.Kind.CLIENT : Span.Kind.SERVER)
+                    .timestamp(1559192000000000L + i * 1000L)
+                    .duration(1500L + i)
+                    .localEndpoint(Endpoint.newBuilder()
+                            .serviceName("pet-be--controller-" + (i % 5))
+                            .ip("10.244.0." + (i % 250 + 1))
+                            .port(8080)
+                            .build())
+                    .remoteEndpoint(Endpoint.newBuilder()
+                            .serviceName("pet-be--catalog-" + (i % 3))
+                            .ip("10.244.1." + (i % 250 + 1))
+                            .port(80)
+                            .build())
+                    .putTag("component", "proxy")
+                    .putTag("http.method", "GET")
+                    .putTag("http.url", "http://pet-be--catalog-service:80/api/v1/pets/" + i)
+                    .putTag("http.status_code", "200")
+                    .putTag("node_id", "sidecar~10.244.0." + (i % 250 + 1) + "~pet-be--controller.default")
+                    .putTag("request_size", "0")
+                    .putTag("response_size", "1024")
+                    .putTag("upstream_cluster", "outbound|80||pet-be--catalog-service.default.svc.cluster.local")
+                    .build());
+        }
+        return spans;
+    }
+}
@@ -23,15 +23,52 @@ package io.cellery.observability.tracing.receiver;
  */
 public class Constants {
     public static final String HTTP_CONTENT_TYPE_HEADER = "Content-Type";
+    public static final String HTTP_CONTENT_LENGTH_HEADER = "Content-Length";
+    public static final String HTTP_CONTENT_ENCODING_HEADER = "Content-Encoding";
+    public static final String HTTP_IDENTITY_CONTENT_ENCODING = "identity";
+    public static final String HTTP_GZIP_CONTENT_ENCODING = "gzip";
+    public static final String HTTP_DEFLATE_CONTENT_ENCODING = "deflate";
     public static final String HTTP_APPLICATION_THRIFT_CONTENT_TYPE = "application/x-thrift";
+    public static final String HTTP_APPLICATION_PROTOBUF_CONTENT_TYPE = "application/x-protobuf";
+    public static final String HTTP_RETRY_AFTER_HEADER = "Retry-After";
+    public static final String HTTP_RETRY_AFTER_SECONDS = "1";
 
     public static final String TRACING_RECEIVER_HOST_KEY = "host";
     public static final String TRACING_RECEIVER_PORT_KEY = "port";
     public static final String TRACING_RECEIVER_API_CONTEXT_KEY = "api.context";
+    public static final String TRACING_RECEIVER_SERVER_TYPE_KEY = "server.type";
+    public static final String TRACING_RECEIVER_BOSS_THREADS_KEY = "boss.threads";
+    public static final String TRACING_RECEIVER_WORKER_THREADS_KEY = "worker.threads";
+    public static final String TRACING_RECEIVER_KEEP_ALIVE_KEY = "keep.alive";
+    public static final String TRACING_RECEIVER_PROCESSING_THREADS_KEY = "processing.threads";
+    public static final String TRACING_RECEIVER_QUEUE_SIZE_KEY = "queue.size";
+    public static final String TRACING_RECEIVER_OUTPUT_FORMAT_KEY = "output.format";
+    public static final String TRACING_RECEIVER_STRING_DICTIONARY_SIZE_KEY = "string.dictionary.size";
+
+    public static final String SERVER_TYPE_HTTP = "http";
+    public static final String SERVER_TYPE_NETTY = "netty";
+
+    public static final String OUTPUT_FORMAT_KEY_VALUE = "keyvalue";
+    public static final String OUTPUT_FORMAT_PASS_THROUGH = "passThrough";
 
     public static final String DEFAULT_TRACING_RECEIVER_IP = "0.0.0.0";
     public static final String DEFAULT_TRACING_RECEIVER_PORT = "9411";
     public static final String DEFAULT_TRACING_RECEIVER_API_CONTEXT = "/api/v1/spans";
+    public static final String DEFAULT_TRACING_RECEIVER_SERVER_TYPE = SERVER_TYPE_HTTP;
+    public static final String DEFAULT_TRACING_RECEIVER_BOSS_THREADS = "1";
+    public static final String DEFAULT_TRACING_RECEIVER_WORKER_THREADS = "0";   // Netty default (2 * cores)
+    public static final String DEFAULT_TRACING_RECEIVER_KEEP_ALIVE = "true";
+    public static final String DEFAULT_TRACING_RECEIVER_PROCESSING_THREADS = "0";  // Handled in the server threads
+    public static final String DEFAULT_TRACING_RECEIVER_QUEUE_SIZE = "1000";
+    public static final String DEFAULT_TRACING_RECEIVER_OUTPUT_FORMAT = OUTPUT_FORMAT_KEY_VALUE;
+    public static final String DEFAULT_TRACING_RECEIVER_STRING_DICTIONARY_SIZE = "10000";
+
+    public static final long PROCESSING_THREADS_SHUTDOWN_TIMEOUT_SECONDS = 5;
+    public static final int MAX_CONTENT_LENGTH = 10 * 1024 * 1024;
+
+    // Netty server configurations
+    public static final int NETTY_SERVER_SO_BACKLOG = 1024;
+    public static final long NETTY_SERVER_SHUTDOWN_TIMEOUT_SECONDS = 5;
 
     // Zipkin fields
     public static final String ATTRIBUTE_TRACE_ID = "traceId";
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver;
+
+import io.cellery.observability.tracing.receiver.internal.ServiceName;
+import org.wso2.siddhi.annotation.Example;
+import org.wso2.siddhi.annotation.Extension;
+import org.wso2.siddhi.annotation.Parameter;
+import org.wso2.siddhi.annotation.ReturnAttribute;
+import org.wso2.siddhi.annotation.util.DataType;
+import org.wso2.siddhi.core.config.SiddhiAppContext;
+import org.wso2.siddhi.core.executor.ConstantExpressionExecutor;
+import org.wso2.siddhi.core.executor.ExpressionExecutor;
+import org.wso2.siddhi.core.executor.function.FunctionExecutor;
+import org.wso2.siddhi.core.util.config.ConfigReader;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.exception.SiddhiAppValidationException;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Siddhi function which extracts a part of a Cellery service name.
+ * Each distinct service name is parsed only once and the parsed parts are shared among all the function calls.
+ */
+@Extension(
+        name = "extractFromServiceName",
+        namespace = "tracing",
+        description = "This extracts a part of a service name of the format instance--component--kind.namespace "
+                + "(microservices) or instance--gateway.namespace (cell gateways). If the service name is not of a "
+                + "known format, the service name itself is returned as the service and the other parts are empty",
+        parameters = {
+                @Parameter(name = "service.name",
+                        description = "The service name",
+                        type = {DataType.STRING}),
+                @Parameter(name = "index",
+                        description = "The part of the service name to extract. 1 extracts the instance, 2 extracts "
+                                + "the service, 3 extracts the instance kind and 4 extracts the namespace",
+                        type = {DataType.INT})
+        },
+        returnAttributes = @ReturnAttribute(
+                description = "The part extracted from the service name",
+                type = {DataType.STRING}),
+        examples = @Example(
+                syntax = "from ZipkinStreamIn\n"
+                        + "select tracing:extractFromServiceName(serviceName, 1) as instance, "
+                        + "tracing:extractFromServiceName(serviceName, 2) as serviceName\n"
+                        + "insert into ProcessedZipkinStream;",
+                description = "This extracts the instance and the service from the service name")
+)
+public class ExtractFromServiceNameFunctionExecutor extends FunctionExecutor {
+
+    private static final int INSTANCE_INDEX = 1;
+    private static final int SERVICE_INDEX = 2;
+    private static final int INSTANCE_KIND_INDEX = 3;
+    private static final int NAMESPACE_INDEX = 4;
+
+    private Function<ServiceName, String> partExtractor;
+    private boolean isServiceExtracted;
+
+    @Override
+    protected void init(ExpressionExecutor[] attributeExpressionExecutors, ConfigReader configReader,
+                        SiddhiAppContext siddhiAppContext) {
+        if (attributeExpressionExecutors.length != 2) {
+            throw new SiddhiAppValidationException("tracing:extractFromServiceName() expects exactly two "
+                    + "parameters, but found " + attributeExpressionExecutors.length);
+        }
+        if (attributeExpressionExecutors[0].getReturnType() != Attribute.Type.STRING) {
+            throw new SiddhiAppValidationException("The service.name parameter of tracing:extractFromServiceName() "
+                    + "should be of type " + Attribute.Type.STRING + ", but found "
+                    + attributeExpressionExecutors[0].getReturnType());
+        }
+        if (!(attributeExpressionExecutors[1] instanceof ConstantExpressionExecutor)
+                || attributeExpressionExecutors[1].getReturnType() != Attribute.Type.INT) {
+            throw new SiddhiAppValidationException("The index parameter of tracing:extractFromServiceName() should "
+                    + "be a constant of type " + Attribute.Type.INT);
+        }
+        int index = (Integer) ((ConstantExpressionExecutor) attributeExpressionExecutors[1]).getValue();
+        switch (index) {
+            case INSTANCE_INDEX:
+                partExtractor = ServiceName::getInstance;
+                break;
+            case SERVICE_INDEX:
+                partExtractor = ServiceName::getService;
+                break;
+            case INSTANCE_KIND_INDEX:
+                partExtractor = ServiceName::getInstanceKind;
+                break;
+            case NAMESPACE_INDEX:
+                partExtractor = ServiceName::getNamespace;
+                break;
+            default:
+                throw new SiddhiAppValidationException("The index parameter of tracing:extractFromServiceName() "
+                        + "should be between " + INSTANCE_INDEX + " and " + NAMESPACE_INDEX + ", but found " + index);
+        }
+        isServiceExtracted = index == SERVICE_INDEX;
+    }
+
+    @Override
+    protected Object execute(Object[] data) {
+        String serviceName = (String) data[0];
+        if (serviceName == null) {
+            return isServiceExtracted ? null : "";
+        }
+        return partExtractor.apply(ServiceName.of(serviceName));
+    }
+
+    @Override
+    protected Object execute(Object data) {
+        return null;    // Not used since this function expects two parameters
+    }
+
+    @Override
+    public Attribute.Type getReturnType() {
+        return Attribute.Type.STRING;
+    }
+
+    @Override
+    public Map<String, Object> currentState() {
+        return null;
+    }
+
+    @Override
+    public void restoreState(Map<String, Object> map) {
+    }
+}
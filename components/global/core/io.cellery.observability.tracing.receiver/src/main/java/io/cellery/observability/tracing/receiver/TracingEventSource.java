@@ -18,32 +18,38 @@
 
 package io.cellery.observability.tracing.receiver;
 
-import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
-import io.cellery.observability.tracing.receiver.internal.Codec;
-import io.cellery.observability.tracing.receiver.internal.ZipkinSpan;
-import org.apache.commons.io.IOUtils;
+import io.cellery.observability.metrics.MetricsHttpHandler;
+import io.cellery.observability.metrics.MetricsRegistry;
+import io.cellery.observability.tracing.receiver.internal.ContentTooLargeException;
+import io.cellery.observability.tracing.receiver.internal.NettyServer;
+import io.cellery.observability.tracing.receiver.internal.RequestBodyReader;
+import io.cellery.observability.tracing.receiver.internal.SpanAttribute;
+import io.cellery.observability.tracing.receiver.internal.StringDictionary;
+import io.cellery.observability.tracing.receiver.internal.TracingDataHandler;
 import org.apache.log4j.Logger;
 import org.wso2.siddhi.annotation.Example;
 import org.wso2.siddhi.annotation.Extension;
 import org.wso2.siddhi.annotation.Parameter;
 import org.wso2.siddhi.annotation.util.DataType;
 import org.wso2.siddhi.core.config.SiddhiAppContext;
+import org.wso2.siddhi.core.event.Event;
 import org.wso2.siddhi.core.exception.ConnectionUnavailableException;
 import org.wso2.siddhi.core.stream.input.source.Source;
 import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
 import org.wso2.siddhi.core.util.config.ConfigReader;
 import org.wso2.siddhi.core.util.transport.OptionHolder;
+import org.wso2.siddhi.query.api.exception.SiddhiAppValidationException;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipException;
 
 /**
  * This class implements the event source, where the received telemetry attributes can be injected to streams.
@@ -52,7 +58,10 @@ import java.util.Map;
         name = "tracing-receiver",
         namespace = "source",
         description = "This is the tracing Receiver for Cellery. This accepts Zipkin encoded tracing data. " +
-                "The event source outputs a map of attributes. Therefore a key-value mapper needs to be used.",
+                "By default the event source outputs a map of attributes. Therefore a key-value mapper needs to be " +
+                "used. Alternatively the event source can output event data ordered according to the stream " +
+                "definition, to be used with a pass through mapper. The ingestion metrics of the receiver are " +
+                "served in the Prometheus text format on the /metrics path of the server.",
         parameters = {
                 @Parameter(
                         name = "ip",
@@ -67,6 +76,80 @@ import java.util.Map;
                         description = "Port on which the server connector should listen on",
                         optional = true,
                         defaultValue = "9411"
+                ),
+                @Parameter(
+                        name = "server.type",
+                        type = DataType.STRING,
+                        description = "The type of the server used for receiving the tracing data. " +
+                                "'http' uses the JDK HTTP server and 'netty' uses a non-blocking Netty server " +
+                                "which decodes the received spans on multiple worker threads",
+                        optional = true,
+                        defaultValue = "http"
+                ),
+                @Parameter(
+                        name = "boss.threads",
+                        type = DataType.INT,
+                        description = "The number of threads accepting connections in the Netty server. " +
+                                "This is only applicable for the 'netty' server type",
+                        optional = true,
+                        defaultValue = "1"
+                ),
+                @Parameter(
+                        name = "worker.threads",
+                        type = DataType.INT,
+                        description = "The number of threads handling the requests in the Netty server. If set to " +
+                                "0, twice the number of available processors is used. This is only applicable for " +
+                                "the 'netty' server type",
+                        optional = true,
+                        defaultValue = "0"
+                ),
+                @Parameter(
+                        name = "keep.alive",
+                        type = DataType.BOOL,
+                        description = "Keep the client connections alive for reuse by multiple (and pipelined) " +
+                                "requests. This is only applicable for the 'netty' server type",
+                        optional = true,
+                        defaultValue = "true"
+                ),
+                @Parameter(
+                        name = "processing.threads",
+                        type = DataType.INT,
+                        description = "The number of threads decoding the received tracing data and emitting the " +
+                                "spans. If set to 0, the tracing data is handled in the server threads itself. " +
+                                "Otherwise the received tracing data is handed off to a bounded queue, and requests " +
+                                "are rejected with status 503 and a Retry-After header when the queue is full",
+                        optional = true,
+                        defaultValue = "0"
+                ),
+                @Parameter(
+                        name = "queue.size",
+                        type = DataType.INT,
+                        description = "The maximum number of received requests waiting to be handled by the " +
+                                "processing threads. This is only applicable if processing threads are configured",
+                        optional = true,
+                        defaultValue = "1000"
+                ),
+                @Parameter(
+                        name = "output.format",
+                        type = DataType.STRING,
+                        description = "The format of the events emitted by the event source. 'keyvalue' emits a " +
+                                "map of attributes per span to be used with the key-value mapper. 'passThrough' " +
+                                "emits all the spans of a request directly as a single batch of events with data in " +
+                                "the order of the stream attributes, avoiding the intermediate objects and the " +
+                                "mapping, to be used with the pass through mapper. All the stream attributes should " +
+                                "be span attributes in this format",
+                        optional = true,
+                        defaultValue = "keyvalue"
+                ),
+                @Parameter(
+                        name = "string.dictionary.size",
+                        type = DataType.INT,
+                        description = "The maximum number of service and operation names kept in the dictionary " +
+                                "used for sharing a single instance of each name among all the emitted spans. The " +
+                                "least recently used names are evicted when the dictionary is full. If set to 0, " +
+                                "the names are not shared",
+                        optional = true,
+                        defaultValue = "10000"
                 )
         },
         examples = {
@@ -79,20 +162,41 @@ import java.util.Map;
                         description = "This produced events when Zipkin tracing data is received on amy interface on " +
                                 "port 9411. The stream definition of the event source is fixed since it depends on " +
                                 "the Zipkin format"
+                ),
+                @Example(
+                        syntax = "@source(type='tracing-receiver', server.type='netty', worker.threads='8', " +
+                                "@map(type='keyvalue', fail.on.missing.attribute='false'))\n" +
+                                "define stream ZipkinStreamIn (traceId string, id string, parentId string, " +
+                                "name string, serviceName string, kind string, timestamp long, duration long, " +
+                                "tags string)",
+                        description = "This receives the Zipkin tracing data using a Netty server with 8 worker " +
+                                "threads, so that the requests from multiple clients are decoded in parallel"
+                ),
+                @Example(
+                        syntax = "@source(type='tracing-receiver', output.format='passThrough', " +
+                                "@map(type='passThrough'))\n" +
+                                "define stream ZipkinStreamIn (traceId string, id string, parentId string, " +
+                                "operationName string, serviceName string, spanKind string, timestamp long, " +
+                                "duration long, tags string)",
+                        description = "This emits the received spans directly as event data without any mapping"
                 )
         }
 )
 public class TracingEventSource extends Source {
 
     private static final Logger logger = Logger.getLogger(TracingEventSource.class.getName());
-    private static final Gson gson = new Gson();
 
     private HttpServer httpServer;
-    private HttpServerListener httpServerListener;
+    private NettyServer nettyServer;
+    private TracingDataHandler tracingDataHandler;
 
     private String host;
     private String apiContext;
     private int port;
+    private String serverType;
+    private int bossThreads;
+    private int workerThreads;
+    private boolean keepAlive;
 
     @Override
     public void init(SourceEventListener sourceEventListener, OptionHolder optionHolder,
@@ -104,28 +208,93 @@ public class TracingEventSource extends Source {
                 Constants.DEFAULT_TRACING_RECEIVER_PORT));
         apiContext = optionHolder.validateAndGetStaticValue(Constants.TRACING_RECEIVER_API_CONTEXT_KEY,
                 Constants.DEFAULT_TRACING_RECEIVER_API_CONTEXT);
+        serverType = optionHolder.validateAndGetStaticValue(Constants.TRACING_RECEIVER_SERVER_TYPE_KEY,
+                Constants.DEFAULT_TRACING_RECEIVER_SERVER_TYPE);
+        bossThreads = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                Constants.TRACING_RECEIVER_BOSS_THREADS_KEY, Constants.DEFAULT_TRACING_RECEIVER_BOSS_THREADS));
+        workerThreads = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                Constants.TRACING_RECEIVER_WORKER_THREADS_KEY, Constants.DEFAULT_TRACING_RECEIVER_WORKER_THREADS));
+        keepAlive = Boolean.parseBoolean(optionHolder.validateAndGetStaticValue(
+                Constants.TRACING_RECEIVER_KEEP_ALIVE_KEY, Constants.DEFAULT_TRACING_RECEIVER_KEEP_ALIVE));
+        int processingThreads = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                Constants.TRACING_RECEIVER_PROCESSING_THREADS_KEY,
+                Constants.DEFAULT_TRACING_RECEIVER_PROCESSING_THREADS));
+        int queueSize = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                Constants.TRACING_RECEIVER_QUEUE_SIZE_KEY, Constants.DEFAULT_TRACING_RECEIVER_QUEUE_SIZE));
+        String outputFormat = optionHolder.validateAndGetStaticValue(Constants.TRACING_RECEIVER_OUTPUT_FORMAT_KEY,
+                Constants.DEFAULT_TRACING_RECEIVER_OUTPUT_FORMAT);
+        int stringDictionarySize = Integer.parseInt(optionHolder.validateAndGetStaticValue(
+                Constants.TRACING_RECEIVER_STRING_DICTIONARY_SIZE_KEY,
+                Constants.DEFAULT_TRACING_RECEIVER_STRING_DICTIONARY_SIZE));
+        if (!Constants.SERVER_TYPE_HTTP.equals(serverType) && !Constants.SERVER_TYPE_NETTY.equals(serverType)) {
+            throw new SiddhiAppValidationException("Tracing receiver server type should be either "
+                    + Constants.SERVER_TYPE_HTTP + " or " + Constants.SERVER_TYPE_NETTY + ", but found " + serverType);
+        }
+
+        SpanAttribute[] outputAttributes;
+        if (Constants.OUTPUT_FORMAT_KEY_VALUE.equals(outputFormat)) {
+            outputAttributes = null;
+        } else if (Constants.OUTPUT_FORMAT_PASS_THROUGH.equals(outputFormat)) {
+            try {
+                outputAttributes = SpanAttribute.fromStreamDefinition(sourceEventListener.getStreamDefinition());
+            } catch (IllegalArgumentException e) {
+                throw new SiddhiAppValidationException("Tracing receiver cannot emit events in the "
+                        + Constants.OUTPUT_FORMAT_PASS_THROUGH + " format: " + e.getMessage());
+            }
+        } else {
+            throw new SiddhiAppValidationException("Tracing receiver output format should be either "
+                    + Constants.OUTPUT_FORMAT_KEY_VALUE + " or " + Constants.OUTPUT_FORMAT_PASS_THROUGH
+                    + ", but found " + outputFormat);
+        }
 
-        httpServerListener = new HttpServerListener(sourceEventListener);
+        tracingDataHandler = new TracingDataHandler(sourceEventListener, outputAttributes,
+                stringDictionarySize > 0 ? new StringDictionary(stringDictionarySize) : null, processingThreads,
+                queueSize);
     }
 
     @Override
     public void connect(ConnectionCallback connectionCallback) throws ConnectionUnavailableException {
-        try {
-            httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
-        } catch (IOException e) {
-            throw new ConnectionUnavailableException("Failed to instantiate HTTP Server");
+        tracingDataHandler.start();
+        if (Constants.SERVER_TYPE_NETTY.equals(serverType)) {
+            nettyServer = new NettyServer(host, port, apiContext, bossThreads, workerThreads, keepAlive,
+                    tracingDataHandler);
+            try {
+                nettyServer.start();
+            } catch (IOException | InterruptedException e) {
+                nettyServer = null;
+                tracingDataHandler.stop();
+                throw new ConnectionUnavailableException("Failed to instantiate Netty Server", e);
+            }
+        } else {
+            try {
+                httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+            } catch (IOException e) {
+                tracingDataHandler.stop();
+                throw new ConnectionUnavailableException("Failed to instantiate HTTP Server");
+            }
+            HttpContext context = httpServer.createContext(apiContext);
+            context.setHandler(new HttpServerListener(tracingDataHandler));
+            if (!MetricsHttpHandler.METRICS_CONTEXT.equals(apiContext)) {
+                httpServer.createContext(MetricsHttpHandler.METRICS_CONTEXT,
+                        new MetricsHttpHandler(MetricsRegistry.getDefault()));
+            }
+            httpServer.start();
         }
-        HttpContext context = httpServer.createContext(apiContext);
-        context.setHandler(httpServerListener);
-        httpServer.start();
         if (logger.isDebugEnabled()) {
-            logger.debug("Started HTTP Server started and receiving requests on http://" + host + ":" + port
+            logger.debug("Started " + serverType + " server and receiving requests on http://" + host + ":" + port
                     + apiContext);
         }
     }
 
     @Override
     public void disconnect() {
+        if (nettyServer != null) {
+            nettyServer.stop();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Netty Server Shutdown");
+            }
+            nettyServer = null;
+        }
         if (httpServer != null) {
             httpServer.stop(0);
             if (logger.isDebugEnabled()) {
@@ -133,6 +302,7 @@ public class TracingEventSource extends Source {
             }
             httpServer = null;
         }
+        tracingDataHandler.stop();
     }
 
     @Override
@@ -162,7 +332,7 @@ public class TracingEventSource extends Source {
 
     @Override
     public Class[] getOutputEventClasses() {
-        return new Class[]{Map.class};
+        return new Class[]{Map.class, Event[].class};
     }
 
     /**
@@ -171,21 +341,37 @@ public class TracingEventSource extends Source {
      */
     public static class HttpServerListener implements HttpHandler {
 
-        private static final Logger logger = Logger.getLogger(HttpServerListener.class.getName());
-        private SourceEventListener sourceEventListener;
+        private TracingDataHandler tracingDataHandler;
 
-        HttpServerListener(SourceEventListener sourceEventListener) {
-            this.sourceEventListener = sourceEventListener;
+        HttpServerListener(TracingDataHandler tracingDataHandler) {
+            this.tracingDataHandler = tracingDataHandler;
         }
 
         @Override
         public void handle(HttpExchange httpExchange) throws IOException {
             try (InputStream inputStream = httpExchange.getRequestBody()) {
-                byte[] byteArray = IOUtils.toByteArray(inputStream);
-                String contentType = httpExchange.getRequestHeaders().getFirst(Constants.HTTP_CONTENT_TYPE_HEADER);
+                String contentEncoding = httpExchange.getRequestHeaders()
+                        .getFirst(Constants.HTTP_CONTENT_ENCODING_HEADER);
+                if (RequestBodyReader.isSupportedContentEncoding(contentEncoding)) {
+                    byte[] byteArray = RequestBodyReader.read(inputStream, getContentLength(httpExchange),
+                            contentEncoding);
+                    String contentType = httpExchange.getRequestHeaders()
+                            .getFirst(Constants.HTTP_CONTENT_TYPE_HEADER);
 
-                handleEventReceive(byteArray, contentType);
-                httpExchange.sendResponseHeaders(200, -1);
+                    if (tracingDataHandler.submit(byteArray, contentType)) {
+                        httpExchange.sendResponseHeaders(200, -1);
+                    } else {
+                        httpExchange.getResponseHeaders().set(Constants.HTTP_RETRY_AFTER_HEADER,
+                                Constants.HTTP_RETRY_AFTER_SECONDS);
+                        httpExchange.sendResponseHeaders(503, -1);
+                    }
+                } else {
+                    httpExchange.sendResponseHeaders(415, -1);
+                }
+            } catch (ContentTooLargeException e) {
+                httpExchange.sendResponseHeaders(413, -1);
+            } catch (NumberFormatException | ZipException | EOFException e) {
+                httpExchange.sendResponseHeaders(400, -1);
             } catch (IOException e) {
                 httpExchange.sendResponseHeaders(500, -1);
             }
@@ -193,50 +379,15 @@ public class TracingEventSource extends Source {
         }
 
         /**
-         * Handle tracing data receive.
+         * Get the content length of the request.
          *
-         * @param byteArray   The byte array received
-         * @param contentType The content type of the message received
+         * @param httpExchange The HTTP exchange of the request
+         * @return The content length or -1 if the content length is not known (chunked requests)
          */
-        private void handleEventReceive(byte[] byteArray, String contentType) {
-            if (logger.isDebugEnabled()) {
-                logger.debug("Received message of type " + contentType);
-            }
-
-            // Decoding the Zipkin spans
-            // Decoding Zipkin spans (encoding is automatically detected)
-            List<ZipkinSpan> spans = null;
-            try {
-                spans = Codec.decodeData(byteArray);
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Decoded " + spans.size() + " Zipkin Spans");
-                }
-            } catch (Throwable t) {
-                logger.error("Failed to parse received tracing data", t);
-            }
-
-            if (spans != null) {
-                // Sending the received Zipkin spans to the source event listener
-                for (ZipkinSpan span : spans) {
-                    Map<String, Object> attributes = new HashMap<>();
-
-                    attributes.put(Constants.ATTRIBUTE_TRACE_ID, span.getTraceId());
-                    attributes.put(Constants.ATTRIBUTE_SPAN_ID, span.getId());
-                    attributes.put(Constants.ATTRIBUTE_PARENT_ID, span.getParentId());
-                    attributes.put(Constants.ATTRIBUTE_OPERATION_NAME, span.getName());
-                    attributes.put(Constants.ATTRIBUTE_SERVICE_NAME, span.getServiceName());
-                    attributes.put(Constants.ATTRIBUTE_SPAN_KIND, span.getKind());
-                    attributes.put(Constants.ATTRIBUTE_TIMESTAMP, span.getTimestamp() / 1000);
-                    attributes.put(Constants.ATTRIBUTE_DURATION, span.getDuration() / 1000);
-                    attributes.put(Constants.ATTRIBUTE_TAGS, gson.toJson(span.getTags()));
-
-                    sourceEventListener.onEvent(attributes, new String[0]);
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Emitted event - span " + span.getTraceId() + "-" + span.getId()
-                                + " to event source listener");
-                    }
-                }
-            }
+        private long getContentLength(HttpExchange httpExchange) {
+            String contentLengthHeader = httpExchange.getRequestHeaders()
+                    .getFirst(Constants.HTTP_CONTENT_LENGTH_HEADER);
+            return contentLengthHeader == null ? -1 : Long.parseLong(contentLengthHeader.trim());
         }
     }
 }
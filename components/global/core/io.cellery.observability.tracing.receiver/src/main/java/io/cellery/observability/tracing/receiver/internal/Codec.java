@@ -18,12 +18,15 @@
 
 package io.cellery.observability.tracing.receiver.internal;
 
+import io.cellery.observability.tracing.receiver.Constants;
 import org.apache.log4j.Logger;
 import zipkin2.SpanBytesDecoderDetector;
 import zipkin2.codec.BytesDecoder;
+import zipkin2.codec.SpanBytesDecoder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Codec used for decoding tracing data.
@@ -39,11 +42,18 @@ public class Codec {
      * @return spans list
      */
     public static List<ZipkinSpan> decodeData(byte[] byteArray) {
-        BytesDecoder<zipkin2.Span> spanBytesDecoder = SpanBytesDecoderDetector.decoderForListMessage(byteArray);
-        if (logger.isDebugEnabled()) {
-            logger.debug("Using " + spanBytesDecoder.getClass().getName() + " decoder for received tracing data");
-        }
-        List<zipkin2.Span> zipkin2Spans = spanBytesDecoder.decodeList(byteArray);
+        return decodeData(byteArray, null);
+    }
+
+    /**
+     * Decode a byte array received with a content type.
+     *
+     * @param byteArray   The byte array to decode
+     * @param contentType The content type of the byte array or null if not known
+     * @return spans list
+     */
+    public static List<ZipkinSpan> decodeData(byte[] byteArray, String contentType) {
+        List<zipkin2.Span> zipkin2Spans = decodeSpans(byteArray, contentType);
 
         List<ZipkinSpan> spans = new ArrayList<>();
         for (zipkin2.Span zipkin2Span : zipkin2Spans) {
@@ -62,6 +72,46 @@ public class Codec {
         return spans;
     }
 
+    /**
+     * Decode a byte array received with a content type into Zipkin spans.
+     * The decoder is selected based on the content type, and the encoding is detected from the content itself only
+     * if the content type does not identify the encoding (JSON v1 and v2 share the same content type).
+     *
+     * @param byteArray   The byte array to decode
+     * @param contentType The content type of the byte array or null if not known
+     * @return Zipkin spans list
+     */
+    public static List<zipkin2.Span> decodeSpans(byte[] byteArray, String contentType) {
+        BytesDecoder<zipkin2.Span> spanBytesDecoder;
+        String mediaType = getMediaType(contentType);
+        if (Constants.HTTP_APPLICATION_PROTOBUF_CONTENT_TYPE.equals(mediaType)) {
+            spanBytesDecoder = SpanBytesDecoder.PROTO3;
+        } else if (Constants.HTTP_APPLICATION_THRIFT_CONTENT_TYPE.equals(mediaType)) {
+            spanBytesDecoder = SpanBytesDecoder.THRIFT;
+        } else {
+            spanBytesDecoder = SpanBytesDecoderDetector.decoderForListMessage(byteArray);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Using " + spanBytesDecoder + " decoder for received tracing data of type " + contentType);
+        }
+        return spanBytesDecoder.decodeList(byteArray);
+    }
+
+    /**
+     * Get the media type of a content type without the parameters (eg:- charset).
+     *
+     * @param contentType The content type
+     * @return The lower case media type or null if the content type is not known
+     */
+    private static String getMediaType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int parametersIndex = contentType.indexOf(';');
+        String mediaType = parametersIndex == -1 ? contentType : contentType.substring(0, parametersIndex);
+        return mediaType.trim().toLowerCase(Locale.ENGLISH);
+    }
+
     private Codec() {   // Prevent initialization
     }
 }
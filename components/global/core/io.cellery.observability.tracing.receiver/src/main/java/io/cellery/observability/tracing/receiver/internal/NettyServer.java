@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import io.cellery.observability.tracing.receiver.Constants;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking HTTP server based on Netty used for receiving tracing data.
+ * Requests are decoded on the worker event loops, and therefore multiple connections are served in parallel.
+ * HTTP/1.1 keep-alive and pipelining are supported since the responses are written in the order of the requests.
+ * Compressed (gzip or deflate) request bodies are decompressed before being aggregated.
+ */
+public class NettyServer {
+
+    private static final Logger logger = Logger.getLogger(NettyServer.class.getName());
+
+    private String host;
+    private int port;
+    private int bossThreads;
+    private int workerThreads;
+    private boolean keepAlive;
+    private NettyServerHandler nettyServerHandler;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    public NettyServer(String host, int port, String apiContext, int bossThreads, int workerThreads,
+                       boolean keepAlive, TracingDataHandler tracingDataHandler) {
+        this.host = host;
+        this.port = port;
+        this.bossThreads = bossThreads;
+        this.workerThreads = workerThreads;
+        this.keepAlive = keepAlive;
+        this.nettyServerHandler = new NettyServerHandler(apiContext, keepAlive, tracingDataHandler);
+    }
+
+    /**
+     * Start the server and bind to the host and port.
+     *
+     * @throws IOException          if binding to the host and port failed
+     * @throws InterruptedException if interrupted while binding to the port
+     */
+    public void start() throws IOException, InterruptedException {
+        bossGroup = new NioEventLoopGroup(bossThreads);
+        workerGroup = new NioEventLoopGroup(workerThreads);
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, Constants.NETTY_SERVER_SO_BACKLOG)
+                .childOption(ChannelOption.SO_KEEPALIVE, keepAlive)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel socketChannel) {
+                        ChannelPipeline pipeline = socketChannel.pipeline();
+                        pipeline.addLast(new HttpServerCodec());
+                        pipeline.addLast(new HttpServerExpectContinueHandler());
+                        pipeline.addLast(new HttpContentDecompressor());
+                        pipeline.addLast(new HttpObjectAggregator(Constants.MAX_CONTENT_LENGTH));
+                        pipeline.addLast(nettyServerHandler);
+                    }
+                });
+        ChannelFuture bindFuture = bootstrap.bind(new InetSocketAddress(host, port)).await();
+        if (!bindFuture.isSuccess()) {
+            stop();
+            throw new IOException("Failed to bind Netty Server to " + host + ":" + port, bindFuture.cause());
+        }
+        serverChannel = bindFuture.channel();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Started Netty Server with " + bossThreads + " boss threads and " + workerThreads
+                    + " worker threads");
+        }
+    }
+
+    /**
+     * Stop the server and release the event loops.
+     */
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+            serverChannel = null;
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, Constants.NETTY_SERVER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .syncUninterruptibly();
+            bossGroup = null;
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully(0, Constants.NETTY_SERVER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .syncUninterruptibly();
+            workerGroup = null;
+        }
+    }
+}
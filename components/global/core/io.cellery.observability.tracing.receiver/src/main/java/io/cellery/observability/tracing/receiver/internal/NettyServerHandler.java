@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import io.cellery.observability.metrics.MetricsHttpHandler;
+import io.cellery.observability.metrics.MetricsRegistry;
+import io.cellery.observability.tracing.receiver.Constants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.apache.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Netty Channel Handler used for handling the HTTP requests received by the Netty Server.
+ * This is shared among all the channels since it does not hold any channel specific state.
+ *
+ * GET requests to the metrics context are responded with the metrics of the receiver.
+ */
+@ChannelHandler.Sharable
+public class NettyServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+    private static final Logger logger = Logger.getLogger(NettyServerHandler.class.getName());
+
+    private String apiContext;
+    private boolean keepAlive;
+    private TracingDataHandler tracingDataHandler;
+
+    NettyServerHandler(String apiContext, boolean keepAlive, TracingDataHandler tracingDataHandler) {
+        this.apiContext = apiContext;
+        this.keepAlive = keepAlive;
+        this.tracingDataHandler = tracingDataHandler;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        HttpResponseStatus status;
+        String path = new QueryStringDecoder(request.uri()).path();
+        if (!request.decoderResult().isSuccess()) {
+            status = HttpResponseStatus.BAD_REQUEST;
+        } else if (HttpMethod.GET.equals(request.method()) && MetricsHttpHandler.METRICS_CONTEXT.equals(path)) {
+            sendMetricsResponse(ctx, request);
+            return;
+        } else if (!path.startsWith(apiContext)) {
+            status = HttpResponseStatus.NOT_FOUND;
+        } else if (!RequestBodyReader.isSupportedContentEncoding(
+                request.headers().get(HttpHeaderNames.CONTENT_ENCODING))) {
+            status = HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE;
+        } else {
+            try {
+                // The backing array is used without copying when it holds exactly the request content, unless the
+                // content is handled by the processing threads after the request buffer is released
+                ByteBuf content = request.content();
+                byte[] byteArray = ByteBufUtil.getBytes(content, content.readerIndex(), content.readableBytes(),
+                        tracingDataHandler.isAsynchronous());
+                String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+
+                if (tracingDataHandler.submit(byteArray, contentType)) {
+                    status = HttpResponseStatus.OK;
+                } else {
+                    status = HttpResponseStatus.SERVICE_UNAVAILABLE;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to handle received tracing data", e);
+                status = HttpResponseStatus.INTERNAL_SERVER_ERROR;
+            }
+        }
+        sendResponse(ctx, request, status);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.error("Unexpected error occurred while handling tracing data request", cause);
+        ctx.close();
+    }
+
+    /**
+     * Send an empty response for a request.
+     *
+     * @param ctx     The channel handler context of the request
+     * @param request The request to respond to
+     * @param status  The status of the response
+     */
+    private void sendResponse(ChannelHandlerContext ctx, FullHttpRequest request, HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status);
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+        if (status == HttpResponseStatus.SERVICE_UNAVAILABLE) {
+            response.headers().set(HttpHeaderNames.RETRY_AFTER, Constants.HTTP_RETRY_AFTER_SECONDS);
+        }
+        writeResponse(ctx, request, response);
+    }
+
+    /**
+     * Send the metrics in the default metrics registry in the Prometheus text exposition format.
+     *
+     * @param ctx     The channel handler context of the request
+     * @param request The request to respond to
+     */
+    private void sendMetricsResponse(ChannelHandlerContext ctx, FullHttpRequest request) {
+        ByteBuf content = Unpooled.copiedBuffer(MetricsRegistry.getDefault().toPrometheusText(),
+                StandardCharsets.UTF_8);
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                content);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, MetricsHttpHandler.getContentType());
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        writeResponse(ctx, request, response);
+    }
+
+    /**
+     * Write a response to a request.
+     * The connection is kept open for the next request if keep alive is enabled and requested by the client.
+     *
+     * @param ctx      The channel handler context of the request
+     * @param request  The request to respond to
+     * @param response The response to write
+     */
+    private void writeResponse(ChannelHandlerContext ctx, FullHttpRequest request, FullHttpResponse response) {
+        if (keepAlive && HttpUtil.isKeepAlive(request)) {
+            if (!request.protocolVersion().isKeepAliveDefault()) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+            ctx.writeAndFlush(response);
+        } else {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import io.cellery.observability.tracing.receiver.Constants;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reader used for reading the body of the requests received by the HTTP server.
+ * Compressed bodies are decompressed while being read according to the content encoding of the request.
+ */
+public class RequestBodyReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Check whether a content encoding is supported.
+     *
+     * @param contentEncoding The content encoding of the request
+     * @return True if the content encoding is supported
+     */
+    public static boolean isSupportedContentEncoding(String contentEncoding) {
+        return contentEncoding == null
+                || Constants.HTTP_IDENTITY_CONTENT_ENCODING.equalsIgnoreCase(contentEncoding.trim())
+                || Constants.HTTP_GZIP_CONTENT_ENCODING.equalsIgnoreCase(contentEncoding.trim())
+                || Constants.HTTP_DEFLATE_CONTENT_ENCODING.equalsIgnoreCase(contentEncoding.trim());
+    }
+
+    /**
+     * Read the request body.
+     * If the body is not compressed and the content length is known the body is read directly into an array of the
+     * exact size, avoiding the intermediate growing buffers and the final copy.
+     *
+     * @param inputStream     The input stream of the request body
+     * @param contentLength   The content length of the request or -1 if not known
+     * @param contentEncoding The content encoding of the request or null if not compressed
+     * @return The (decompressed) request body
+     * @throws ContentTooLargeException if the (decompressed) request body exceeds the maximum content length
+     * @throws IOException              if reading the request body failed
+     */
+    public static byte[] read(InputStream inputStream, long contentLength, String contentEncoding)
+            throws IOException {
+        if (contentLength > Constants.MAX_CONTENT_LENGTH) {
+            throw new ContentTooLargeException("Content length " + contentLength + " exceeds the maximum of "
+                    + Constants.MAX_CONTENT_LENGTH);
+        }
+        byte[] byteArray;
+        if (contentEncoding == null
+                || Constants.HTTP_IDENTITY_CONTENT_ENCODING.equalsIgnoreCase(contentEncoding.trim())) {
+            if (contentLength >= 0) {
+                byteArray = new byte[(int) contentLength];
+                IOUtils.readFully(inputStream, byteArray);
+            } else {
+                byteArray = readBounded(inputStream);
+            }
+        } else if (Constants.HTTP_GZIP_CONTENT_ENCODING.equalsIgnoreCase(contentEncoding.trim())) {
+            try (InputStream gzipInputStream = new GZIPInputStream(inputStream, BUFFER_SIZE)) {
+                byteArray = readBounded(gzipInputStream);
+            }
+        } else if (Constants.HTTP_DEFLATE_CONTENT_ENCODING.equalsIgnoreCase(contentEncoding.trim())) {
+            try (InputStream inflaterInputStream = new InflaterInputStream(inputStream)) {
+                byteArray = readBounded(inflaterInputStream);
+            }
+        } else {
+            throw new IOException("Unsupported content encoding " + contentEncoding);
+        }
+        return byteArray;
+    }
+
+    /**
+     * Read an input stream of unknown length while ensuring that the maximum content length is not exceeded.
+     * This protects the receiver from highly compressed payloads expanding into very large bodies.
+     *
+     * @param inputStream The input stream to read
+     * @return The bytes read
+     * @throws ContentTooLargeException if the content exceeds the maximum content length
+     * @throws IOException              if reading the input stream failed
+     */
+    private static byte[] readBounded(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int readCount;
+        while ((readCount = inputStream.read(buffer)) != -1) {
+            if (outputStream.size() + readCount > Constants.MAX_CONTENT_LENGTH) {
+                throw new ContentTooLargeException("Content exceeds the maximum length of "
+                        + Constants.MAX_CONTENT_LENGTH);
+            }
+            outputStream.write(buffer, 0, readCount);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private RequestBodyReader() {   // Prevent initialization
+    }
+}
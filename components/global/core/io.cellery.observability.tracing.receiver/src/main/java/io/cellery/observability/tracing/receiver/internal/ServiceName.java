@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parts of a Cellery service name.
+ * Service names of the format instance--component--kind.namespace are reported by microservices and service names
+ * of the format instance--gateway.namespace are reported by cell gateways. The parsed service names are cached,
+ * since only a limited number of distinct service names are reported.
+ */
+public class ServiceName {
+
+    private static final int MAX_CACHED_SERVICE_NAMES = 10000;
+    private static final Map<String, ServiceName> CACHE = new ConcurrentHashMap<>();
+
+    private static final String INSTANCE_KIND_CELL = "Cell";
+    private static final String INSTANCE_KIND_COMPOSITE = "Composite";
+    private static final String CELL_KIND = "cell";
+    private static final String COMPOSITE_KIND = "composite";
+
+    private final String instance;
+    private final String service;
+    private final String instanceKind;
+    private final String namespace;
+
+    private ServiceName(String instance, String service, String instanceKind, String namespace) {
+        this.instance = instance;
+        this.service = service;
+        this.instanceKind = instanceKind;
+        this.namespace = namespace;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getInstanceKind() {
+        return instanceKind;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Get the parts of a service name.
+     *
+     * @param serviceName The service name
+     * @return The parts of the service name
+     */
+    public static ServiceName of(String serviceName) {
+        ServiceName parsedServiceName = CACHE.get(serviceName);
+        if (parsedServiceName == null) {
+            parsedServiceName = parse(serviceName);
+            if (CACHE.size() >= MAX_CACHED_SERVICE_NAMES) {
+                CACHE.clear();      // Unexpectedly large number of service names
+            }
+            CACHE.put(serviceName, parsedServiceName);
+        }
+        return parsedServiceName;
+    }
+
+    /**
+     * Parse a service name.
+     * If the service name is not of a known format, the whole service name is considered as the service and the
+     * other parts are empty. Underscores are replaced with hyphens in all the parts.
+     *
+     * @param serviceName The service name
+     * @return The parts of the service name
+     */
+    static ServiceName parse(String serviceName) {
+        // Finding the "--" separators of the lowercase alphanumeric hyphenated segments before the first "."
+        int firstSeparator = -1;
+        int secondSeparator = -1;
+        int dotIndex = -1;
+        int segmentStart = 0;
+        for (int i = 0; i < serviceName.length(); i++) {
+            char c = serviceName.charAt(i);
+            if (c == '.') {
+                dotIndex = i;
+                break;
+            } else if (c == '-') {
+                if (i == segmentStart || i + 1 >= serviceName.length()) {
+                    break;
+                } else if (serviceName.charAt(i + 1) == '-') {
+                    if (firstSeparator == -1) {
+                        firstSeparator = i;
+                    } else if (secondSeparator == -1) {
+                        secondSeparator = i;
+                    } else {
+                        break;
+                    }
+                    i++;
+                    segmentStart = i + 1;
+                } else if (!isAlphanumeric(serviceName.charAt(i + 1))) {
+                    break;
+                }
+            } else if (!isAlphanumeric(c)) {
+                break;
+            }
+        }
+        boolean isValid = dotIndex > segmentStart && dotIndex < serviceName.length() - 1 && firstSeparator != -1;
+
+        ServiceName parsedServiceName;
+        if (isValid && secondSeparator == -1) {
+            // Cell gateway (instance--gateway.namespace)
+            parsedServiceName = new ServiceName(serviceName.substring(0, firstSeparator),
+                    serviceName.substring(firstSeparator + 2, dotIndex), INSTANCE_KIND_CELL,
+                    replaceUnderscores(serviceName.substring(dotIndex + 1)));
+        } else if (isValid) {
+            // Microservice (instance--component--kind.namespace)
+            String kind = serviceName.substring(secondSeparator + 2, dotIndex);
+            String instanceKind;
+            if (CELL_KIND.equals(kind)) {
+                instanceKind = INSTANCE_KIND_CELL;
+            } else if (COMPOSITE_KIND.equals(kind)) {
+                instanceKind = INSTANCE_KIND_COMPOSITE;
+            } else {
+                instanceKind = "";
+            }
+            parsedServiceName = new ServiceName(serviceName.substring(0, firstSeparator),
+                    serviceName.substring(firstSeparator + 2, secondSeparator), instanceKind,
+                    replaceUnderscores(serviceName.substring(dotIndex + 1)));
+        } else {
+            parsedServiceName = new ServiceName("", replaceUnderscores(serviceName), "", "");
+        }
+        return parsedServiceName;
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return c >= 'a' && c <= 'z' || c >= '0' && c <= '9';
+    }
+
+    private static String replaceUnderscores(String value) {
+        return value.indexOf('_') == -1 ? value : value.replace('_', '-');
+    }
+}
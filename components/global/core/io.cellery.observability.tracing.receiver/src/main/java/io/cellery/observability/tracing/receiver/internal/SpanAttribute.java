@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import io.cellery.observability.tracing.receiver.Constants;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Span attributes emitted by the tracing receiver.
+ * This is used for converting the decoded Zipkin spans directly into event data ordered according to the stream
+ * definition, without any intermediate objects.
+ */
+public enum SpanAttribute {
+    TRACE_ID(Constants.ATTRIBUTE_TRACE_ID, zipkin2.Span::traceId),
+    SPAN_ID(Constants.ATTRIBUTE_SPAN_ID, zipkin2.Span::id),
+    PARENT_ID(Constants.ATTRIBUTE_PARENT_ID, zipkin2.Span::parentId),
+    OPERATION_NAME(Constants.ATTRIBUTE_OPERATION_NAME, zipkin2.Span::name, true),
+    SERVICE_NAME(Constants.ATTRIBUTE_SERVICE_NAME,
+            span -> span.localServiceName() != null ? span.localServiceName() : "", true),
+    SPAN_KIND(Constants.ATTRIBUTE_SPAN_KIND, span -> span.kind() != null ? span.kind().toString() : ""),
+    TIMESTAMP(Constants.ATTRIBUTE_TIMESTAMP, span -> span.timestampAsLong() / 1000),
+    DURATION(Constants.ATTRIBUTE_DURATION, span -> span.durationAsLong() / 1000),
+    TAGS(Constants.ATTRIBUTE_TAGS, span -> TagsEncoder.encode(span.tags()));
+
+    private String attributeName;
+    private Function<zipkin2.Span, Object> valueExtractor;
+    private boolean lowCardinality;
+
+    SpanAttribute(String attributeName, Function<zipkin2.Span, Object> valueExtractor) {
+        this(attributeName, valueExtractor, false);
+    }
+
+    SpanAttribute(String attributeName, Function<zipkin2.Span, Object> valueExtractor, boolean lowCardinality) {
+        this.attributeName = attributeName;
+        this.valueExtractor = valueExtractor;
+        this.lowCardinality = lowCardinality;
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    /**
+     * Check whether the values of this attribute are strings repeated across spans, which should be canonicalized.
+     *
+     * @return True if the attribute has low cardinality string values
+     */
+    public boolean isLowCardinality() {
+        return lowCardinality;
+    }
+
+    /**
+     * Get the value of this attribute of a span.
+     *
+     * @param span The span from which the value should be taken
+     * @return The value of the attribute
+     */
+    public Object getValue(zipkin2.Span span) {
+        return valueExtractor.apply(span);
+    }
+
+    /**
+     * Get the span attributes in the order of the attributes of a stream definition.
+     *
+     * @param streamDefinition The stream definition of the stream to which the spans are emitted
+     * @return The span attributes ordered according to the stream definition
+     * @throws IllegalArgumentException if the stream definition contains an attribute which is not a span attribute
+     */
+    public static SpanAttribute[] fromStreamDefinition(StreamDefinition streamDefinition) {
+        List<Attribute> streamAttributes = streamDefinition.getAttributeList();
+        SpanAttribute[] spanAttributes = new SpanAttribute[streamAttributes.size()];
+        for (int i = 0; i < streamAttributes.size(); i++) {
+            String streamAttributeName = streamAttributes.get(i).getName();
+            for (SpanAttribute spanAttribute : values()) {
+                if (spanAttribute.attributeName.equals(streamAttributeName)) {
+                    spanAttributes[i] = spanAttribute;
+                    break;
+                }
+            }
+            if (spanAttributes[i] == null) {
+                throw new IllegalArgumentException("Unknown span attribute " + streamAttributeName
+                        + " in stream " + streamDefinition.getId());
+            }
+        }
+        return spanAttributes;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded dictionary used for canonicalizing low cardinality strings (eg:- service names) of the received spans.
+ * Equal strings decoded from different requests are replaced by a single shared instance, so that the spans held by
+ * the downstream processors do not keep duplicate copies of the same strings.
+ *
+ * The dictionary is split into segments locked independently to reduce contention among the threads handling the
+ * tracing data, and the least recently used strings of a segment are evicted when the segment is full.
+ */
+public class StringDictionary {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public StringDictionary(int maxSize) {
+        int segmentCapacity = Math.max(1, (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentCapacity, evictionCount);
+        }
+    }
+
+    /**
+     * Get the canonical instance of a string.
+     * The string itself is added to the dictionary and returned if an equal string is not already present.
+     *
+     * @param value The string to canonicalize
+     * @return The canonical instance equal to the string
+     */
+    public String canonicalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        Segment segment = segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+        synchronized (segment) {
+            String canonicalValue = segment.get(value);
+            if (canonicalValue != null) {
+                hitCount.increment();
+                return canonicalValue;
+            }
+            segment.put(value, value);
+        }
+        missCount.increment();
+        return value;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Get the ratio of the lookups which found an already canonicalized string.
+     *
+     * @return The hit rate between 0 and 1, or 0 if no lookups had been done
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long lookups = hits + missCount.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Get the number of strings currently in the dictionary.
+     *
+     * @return The size of the dictionary
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Segment of the dictionary, which evicts the least recently used string when the capacity is exceeded.
+     */
+    private static class Segment extends LinkedHashMap<String, String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final transient LongAdder evictionCount;
+
+        Segment(int capacity, LongAdder evictionCount) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictionCount = evictionCount;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            boolean evict = size() > capacity;
+            if (evict) {
+                evictionCount.increment();
+            }
+            return evict;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import java.util.Map;
+
+/**
+ * Encoder used for encoding the tags of the spans to be stored and emitted.
+ * The tags are encoded as a flat JSON object with string values (eg:- {"http.method":"GET"}), which is the format
+ * expected by the readers of the stored spans. This writes the JSON directly instead of using a generic serializer,
+ * avoiding the reflection and the intermediate objects per span.
+ */
+public class TagsEncoder {
+
+    private static final String EMPTY_TAGS = "{}";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Encode the tags of a span.
+     *
+     * @param tags The tags to encode
+     * @return The JSON encoded tags
+     */
+    public static String encode(Map<String, String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return EMPTY_TAGS;
+        }
+        int estimatedLength = 2;
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            estimatedLength += tag.getKey().length() + (tag.getValue() == null ? 0 : tag.getValue().length()) + 6;
+        }
+        StringBuilder stringBuilder = new StringBuilder(estimatedLength);
+        stringBuilder.append('{');
+        boolean isFirstTag = true;
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (tag.getValue() == null) {
+                continue;
+            }
+            if (!isFirstTag) {
+                stringBuilder.append(',');
+            }
+            appendString(stringBuilder, tag.getKey());
+            stringBuilder.append(':');
+            appendString(stringBuilder, tag.getValue());
+            isFirstTag = false;
+        }
+        return stringBuilder.append('}').toString();
+    }
+
+    /**
+     * Append a string as a quoted and escaped JSON string.
+     *
+     * @param stringBuilder The string builder to append to
+     * @param value         The string to append
+     */
+    private static void appendString(StringBuilder stringBuilder, String value) {
+        stringBuilder.append('"');
+        int unescapedStartIndex = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character >= 0x20 && character != '"' && character != '\\'
+                    && character != '\u2028' && character != '\u2029') {
+                continue;
+            }
+            stringBuilder.append(value, unescapedStartIndex, i);
+            switch (character) {
+                case '"':
+                    stringBuilder.append("\\\"");
+                    break;
+                case '\\':
+                    stringBuilder.append("\\\\");
+                    break;
+                case '\n':
+                    stringBuilder.append("\\n");
+                    break;
+                case '\r':
+                    stringBuilder.append("\\r");
+                    break;
+                case '\t':
+                    stringBuilder.append("\\t");
+                    break;
+                case '\b':
+                    stringBuilder.append("\\b");
+                    break;
+                case '\f':
+                    stringBuilder.append("\\f");
+                    break;
+                default:
+                    stringBuilder.append("\\u")
+                            .append(HEX_DIGITS[(character >> 12) & 0xF])
+                            .append(HEX_DIGITS[(character >> 8) & 0xF])
+                            .append(HEX_DIGITS[(character >> 4) & 0xF])
+                            .append(HEX_DIGITS[character & 0xF]);
+            }
+            unescapedStartIndex = i + 1;
+        }
+        stringBuilder.append(value, unescapedStartIndex, value.length()).append('"');
+    }
+
+    private TagsEncoder() {   // Prevent initialization
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import io.cellery.observability.metrics.Counter;
+import io.cellery.observability.metrics.Gauge;
+import io.cellery.observability.metrics.Histogram;
+import io.cellery.observability.metrics.MetricsRegistry;
+import io.cellery.observability.tracing.receiver.Constants;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.log4j.Logger;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler for the tracing data received by the tracing receiver servers.
+ * This decodes the received Zipkin spans and notifies the source event listener.
+ *
+ * If processing threads are configured, the received tracing data is handed off to a bounded queue and handled by
+ * a pool of processing threads instead of the server threads. Tracing data is rejected when the queue is full, so
+ * that the servers can ask the clients to back off.
+ *
+ * If output span attributes are provided, all the spans decoded from a request are emitted as a single batch of
+ * events with data ordered according to those attributes (to be used with a pass through mapper) instead of
+ * emitting an attribute map per span.
+ *
+ * If a string dictionary is provided, the low cardinality strings of the spans (service and operation names) are
+ * replaced with canonical instances to avoid keeping duplicate strings in the downstream processors.
+ *
+ * The ingestion metrics of the tracing receiver are recorded in the default metrics registry. The queue depth is
+ * reported as the total of the processing queues of all the running handlers, since only one gauge can be
+ * registered per name.
+ */
+public class TracingDataHandler {
+
+    private static final Logger logger = Logger.getLogger(TracingDataHandler.class.getName());
+
+    private static final Counter REQUESTS_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_tracing_receiver_requests_total", "Total number of tracing data requests received");
+    private static final Counter REJECTED_REQUESTS_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_tracing_receiver_rejected_requests_total",
+            "Total number of tracing data requests rejected since the processing queue was full");
+    private static final Counter SPANS_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_tracing_receiver_spans_total", "Total number of spans decoded");
+    private static final Counter DECODE_FAILURES_COUNTER = MetricsRegistry.getDefault().counter(
+            "cellery_tracing_receiver_decode_failures_total", "Total number of tracing data requests failed to decode");
+    private static final Histogram REQUEST_SIZE_HISTOGRAM = MetricsRegistry.getDefault().histogram(
+            "cellery_tracing_receiver_request_size_bytes", "Size of the tracing data requests received",
+            Histogram.exponentialBuckets(256, 4, 8));
+    private static final Histogram DECODE_DURATION_HISTOGRAM = MetricsRegistry.getDefault().histogram(
+            "cellery_tracing_receiver_decode_duration_seconds", "Time taken to decode the tracing data requests",
+            Histogram.exponentialBuckets(0.00001, 4, 10));
+    private static final Set<BlockingQueue<Runnable>> PROCESSING_QUEUES = ConcurrentHashMap.newKeySet();
+
+    static {
+        MetricsRegistry.getDefault().gauge("cellery_tracing_receiver_queue_depth",
+                "Number of tracing data requests waiting in the processing queue",
+                () -> PROCESSING_QUEUES.stream().mapToInt(BlockingQueue::size).sum());
+    }
+
+    private SourceEventListener sourceEventListener;
+    private SpanAttribute[] outputAttributes;
+    private StringDictionary stringDictionary;
+    private int processingThreads;
+    private int queueSize;
+    private volatile ExecutorService executorService;
+    private BlockingQueue<Runnable> processingQueue;
+    private Gauge stringDictionaryHitRateGauge;
+
+    public TracingDataHandler(SourceEventListener sourceEventListener, int processingThreads, int queueSize) {
+        this(sourceEventListener, null, null, processingThreads, queueSize);
+    }
+
+    public TracingDataHandler(SourceEventListener sourceEventListener, SpanAttribute[] outputAttributes,
+                              StringDictionary stringDictionary, int processingThreads, int queueSize) {
+        this.sourceEventListener = sourceEventListener;
+        this.outputAttributes = outputAttributes;
+        this.stringDictionary = stringDictionary;
+        this.processingThreads = processingThreads;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Start the processing threads.
+     * If no processing threads are configured the tracing data is handled in the calling thread itself.
+     */
+    public void start() {
+        if (processingThreads > 0) {
+            processingQueue = new ArrayBlockingQueue<>(queueSize);
+            executorService = new ThreadPoolExecutor(processingThreads, processingThreads, 0L, TimeUnit.MILLISECONDS,
+                    processingQueue, new DefaultThreadFactory("tracing-receiver-processor"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            PROCESSING_QUEUES.add(processingQueue);
+        }
+        if (stringDictionary != null) {
+            StringDictionary dictionary = stringDictionary;
+            stringDictionaryHitRateGauge = MetricsRegistry.getDefault().gauge(
+                    "cellery_tracing_receiver_string_dictionary_hit_ratio",
+                    "Ratio of the low cardinality span strings found in the string dictionary",
+                    dictionary::getHitRate);
+        }
+    }
+
+    /**
+     * Stop the processing threads.
+     * The tracing data already accepted is handled before the processing threads are stopped.
+     */
+    public void stop() {
+        if (executorService != null) {
+            executorService.shutdown();
+            try {
+                if (!executorService.awaitTermination(Constants.PROCESSING_THREADS_SHUTDOWN_TIMEOUT_SECONDS,
+                        TimeUnit.SECONDS)) {
+                    executorService.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executorService.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executorService = null;
+        }
+        if (processingQueue != null) {
+            PROCESSING_QUEUES.remove(processingQueue);
+            processingQueue = null;
+        }
+        if (stringDictionaryHitRateGauge != null) {
+            MetricsRegistry.getDefault().unregister(stringDictionaryHitRateGauge);
+            stringDictionaryHitRateGauge = null;
+        }
+        if (stringDictionary != null && logger.isDebugEnabled()) {
+            logger.debug("String dictionary of size " + stringDictionary.size() + " had a hit rate of "
+                    + stringDictionary.getHitRate() + " with " + stringDictionary.getEvictionCount() + " evictions");
+        }
+    }
+
+    /**
+     * Check if the submitted tracing data is handled asynchronously by the processing threads.
+     * The submitted byte arrays should then not be reused by the caller after submitting.
+     *
+     * @return True if the tracing data is handled by the processing threads
+     */
+    public boolean isAsynchronous() {
+        return executorService != null;
+    }
+
+    /**
+     * Submit received tracing data to be handled.
+     *
+     * @param byteArray   The byte array received
+     * @param contentType The content type of the message received
+     * @return True if the tracing data was accepted and false if it was rejected since the queue is full
+     */
+    public boolean submit(byte[] byteArray, String contentType) {
+        REQUESTS_COUNTER.increment();
+        REQUEST_SIZE_HISTOGRAM.observe(byteArray.length);
+        if (executorService == null) {
+            handle(byteArray, contentType);
+            return true;
+        }
+        try {
+            executorService.execute(() -> handle(byteArray, contentType));
+            return true;
+        } catch (RejectedExecutionException e) {
+            REJECTED_REQUESTS_COUNTER.increment();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rejected message of type " + contentType + " since the processing queue is full");
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Handle tracing data receive.
+     *
+     * @param byteArray   The byte array received
+     * @param contentType The content type of the message received
+     */
+    void handle(byte[] byteArray, String contentType) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Received message of type " + contentType);
+        }
+
+        if (outputAttributes == null) {
+            handleAsAttributeMaps(byteArray, contentType);
+        } else {
+            handleAsEventData(byteArray, contentType);
+        }
+    }
+
+    /**
+     * Decode the tracing data and emit each span as a map of attributes.
+     *
+     * @param byteArray   The byte array received
+     * @param contentType The content type of the message received
+     */
+    private void handleAsAttributeMaps(byte[] byteArray, String contentType) {
+        // Decoding Zipkin spans (encoding is selected based on the content type)
+        List<ZipkinSpan> spans = null;
+        long decodeStartTime = System.nanoTime();
+        try {
+            spans = Codec.decodeData(byteArray, contentType);
+            DECODE_DURATION_HISTOGRAM.observe((System.nanoTime() - decodeStartTime) / 1e9);
+            SPANS_COUNTER.increment(spans.size());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Decoded " + spans.size() + " Zipkin Spans");
+            }
+        } catch (Throwable t) {
+            DECODE_FAILURES_COUNTER.increment();
+            logger.error("Failed to parse received tracing data", t);
+        }
+
+        if (spans != null) {
+            // Sending the received Zipkin spans to the source event listener
+            for (ZipkinSpan span : spans) {
+                Map<String, Object> attributes = new HashMap<>();
+
+                attributes.put(Constants.ATTRIBUTE_TRACE_ID, span.getTraceId());
+                attributes.put(Constants.ATTRIBUTE_SPAN_ID, span.getId());
+                attributes.put(Constants.ATTRIBUTE_PARENT_ID, span.getParentId());
+                attributes.put(Constants.ATTRIBUTE_OPERATION_NAME, canonicalize(span.getName()));
+                attributes.put(Constants.ATTRIBUTE_SERVICE_NAME, canonicalize(span.getServiceName()));
+                attributes.put(Constants.ATTRIBUTE_SPAN_KIND, span.getKind());
+                attributes.put(Constants.ATTRIBUTE_TIMESTAMP, span.getTimestamp() / 1000);
+                attributes.put(Constants.ATTRIBUTE_DURATION, span.getDuration() / 1000);
+                attributes.put(Constants.ATTRIBUTE_TAGS, TagsEncoder.encode(span.getTags()));
+
+                sourceEventListener.onEvent(attributes, new String[0]);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Emitted event - span " + span.getTraceId() + "-" + span.getId()
+                            + " to event source listener");
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode the tracing data and emit the spans as a batch of events with data ordered according to the output
+     * attributes. The decoded Zipkin spans are converted directly without any intermediate objects.
+     *
+     * @param byteArray   The byte array received
+     * @param contentType The content type of the message received
+     */
+    private void handleAsEventData(byte[] byteArray, String contentType) {
+        List<zipkin2.Span> spans = null;
+        long decodeStartTime = System.nanoTime();
+        try {
+            spans = Codec.decodeSpans(byteArray, contentType);
+            DECODE_DURATION_HISTOGRAM.observe((System.nanoTime() - decodeStartTime) / 1e9);
+            SPANS_COUNTER.increment(spans.size());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Decoded " + spans.size() + " Zipkin Spans");
+            }
+        } catch (Throwable t) {
+            DECODE_FAILURES_COUNTER.increment();
+            logger.error("Failed to parse received tracing data", t);
+        }
+
+        if (spans != null && !spans.isEmpty()) {
+            // Sending all the spans received in the request to the source event listener as a single batch
+            Event[] events = new Event[spans.size()];
+            for (int i = 0; i < events.length; i++) {
+                zipkin2.Span span = spans.get(i);
+                Object[] data = new Object[outputAttributes.length];
+                for (int j = 0; j < outputAttributes.length; j++) {
+                    SpanAttribute outputAttribute = outputAttributes[j];
+                    Object value = outputAttribute.getValue(span);
+                    data[j] = outputAttribute.isLowCardinality() ? canonicalize((String) value) : value;
+                }
+                events[i] = new Event(-1, data);     // Timestamp is set by Siddhi
+            }
+
+            sourceEventListener.onEvent(events, new String[0]);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Emitted batch of " + events.length + " events to event source listener");
+            }
+        }
+    }
+
+    /**
+     * Get the canonical instance of a low cardinality string.
+     *
+     * @param value The string to canonicalize
+     * @return The canonical instance or the string itself if the string dictionary is not enabled
+     */
+    private String canonicalize(String value) {
+        return stringDictionary == null ? value : stringDictionary.canonicalize(value);
+    }
+}
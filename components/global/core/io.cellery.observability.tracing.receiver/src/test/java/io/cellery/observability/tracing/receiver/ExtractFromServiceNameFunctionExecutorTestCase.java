@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.SiddhiAppRuntime;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.exception.SiddhiAppCreationException;
+import org.wso2.siddhi.core.query.output.callback.QueryCallback;
+import org.wso2.siddhi.core.stream.input.InputHandler;
+import org.wso2.siddhi.query.api.exception.SiddhiAppValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test Cases for Extract From Service Name Function.
+ */
+public class ExtractFromServiceNameFunctionExecutorTestCase {
+
+    private SiddhiManager siddhiManager;
+    private SiddhiAppRuntime siddhiAppRuntime;
+
+    @BeforeMethod
+    public void init() {
+        siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("tracing:extractFromServiceName", ExtractFromServiceNameFunctionExecutor.class);
+    }
+
+    @AfterMethod
+    public void cleanUp() {
+        if (siddhiAppRuntime != null) {
+            siddhiAppRuntime.shutdown();
+            siddhiAppRuntime = null;
+        }
+        siddhiManager.shutdown();
+    }
+
+    @Test
+    public void testExtraction() throws Exception {
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (serviceName string);\n"
+                + "@info(name = \"query\")\n"
+                + "from inputStream\n"
+                + "select tracing:extractFromServiceName(serviceName, 1) as instance, "
+                + "tracing:extractFromServiceName(serviceName, 2) as serviceName, "
+                + "tracing:extractFromServiceName(serviceName, 3) as instanceKind, "
+                + "tracing:extractFromServiceName(serviceName, 4) as namespace\n"
+                + "insert into outputStream;");
+        List<Event> receivedEvents = new ArrayList<>();
+        siddhiAppRuntime.addCallback("query", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                for (Event event : inEvents) {
+                    receivedEvents.add(event);
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("inputStream");
+        inputHandler.send(new Object[]{"pet-be--controller--cell.default"});
+        inputHandler.send(new Object[]{"pet-fe--gateway.default"});
+        inputHandler.send(new Object[]{"istio_ingress"});
+        inputHandler.send(new Object[]{null});
+
+        Assert.assertEquals(receivedEvents.size(), 4);
+        Assert.assertEquals(receivedEvents.get(0).getData(),
+                new Object[]{"pet-be", "controller", "Cell", "default"});
+        Assert.assertEquals(receivedEvents.get(1).getData(),
+                new Object[]{"pet-fe", "gateway", "Cell", "default"});
+        Assert.assertEquals(receivedEvents.get(2).getData(),
+                new Object[]{"", "istio-ingress", "", ""});
+        Assert.assertEquals(receivedEvents.get(3).getData(),
+                new Object[]{"", null, "", ""});
+    }
+
+    @Test(expectedExceptions = {SiddhiAppValidationException.class, SiddhiAppCreationException.class})
+    public void testInvalidIndex() {
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (serviceName string);\n"
+                + "from inputStream\n"
+                + "select tracing:extractFromServiceName(serviceName, 5) as instance\n"
+                + "insert into outputStream;");
+    }
+
+    @Test(expectedExceptions = {SiddhiAppValidationException.class, SiddhiAppCreationException.class})
+    public void testNonConstantIndex() {
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (serviceName string, "
+                + "index int);\n"
+                + "from inputStream\n"
+                + "select tracing:extractFromServiceName(serviceName, index) as instance\n"
+                + "insert into outputStream;");
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.util.SiddhiTestHelper;
+import zipkin2.Endpoint;
+import zipkin2.codec.SpanBytesEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test Cases for Tracing Event Source using the Netty Server.
+ * All the test cases of the default server are run against the Netty Server as well.
+ */
+public class NettyTracingEventSourceTestCase extends TracingEventSourceTestCase {
+
+    @Override
+    protected String getServerType() {
+        return Constants.SERVER_TYPE_NETTY;
+    }
+
+    @Test
+    public void testMultipleRequestsOnKeptAliveConnection() throws Exception {
+        try (CloseableHttpClient httpClient = HttpClientBuilder.create().setMaxConnTotal(1).build()) {
+            for (int i = 0; i < 3; i++) {
+                HttpPost request = new HttpPost(TRACING_RECEIVER_ENDPOINT);
+                request.setHeader(Constants.HTTP_CONTENT_TYPE_HEADER, "application/json");
+                request.setEntity(new ByteArrayEntity(SpanBytesEncoder.JSON_V2.encodeList(
+                        generateSpans("test-span-" + i))));
+                HttpResponse response = httpClient.execute(request);
+                Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+                EntityUtils.consume(response.getEntity());
+            }
+        }
+
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 3, eventCount, TIMEOUT);
+        Assert.assertEquals(eventCount.get(), 3);
+    }
+
+    @Test
+    public void testPipelinedRequests() throws Exception {
+        byte[] body = SpanBytesEncoder.JSON_V2.encodeList(generateSpans("test-pipelined-span"));
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        for (int i = 0; i < 2; i++) {
+            String headers = "POST " + API_CONTEXT + " HTTP/1.1\r\n" +
+                    "Host: " + HOST + ":" + PORT + "\r\n" +
+                    "Content-Type: application/json\r\n" +
+                    "Content-Length: " + body.length + "\r\n" +
+                    "\r\n";
+            requests.write(headers.getBytes(StandardCharsets.UTF_8));
+            requests.write(body);
+        }
+
+        try (Socket socket = new Socket(HOST, PORT)) {
+            socket.setSoTimeout(TIMEOUT);
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(requests.toByteArray());
+            outputStream.flush();
+
+            InputStream inputStream = socket.getInputStream();
+            StringBuilder responses = new StringBuilder();
+            byte[] buffer = new byte[1024];
+            while (countOccurrences(responses.toString(), "HTTP/1.1 200 OK") < 2) {
+                int readCount = inputStream.read(buffer);
+                if (readCount == -1) {
+                    break;
+                }
+                responses.append(new String(buffer, 0, readCount, StandardCharsets.UTF_8));
+            }
+            Assert.assertEquals(countOccurrences(responses.toString(), "HTTP/1.1 200 OK"), 2);
+        }
+
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 2, eventCount, TIMEOUT);
+        Assert.assertEquals(eventCount.get(), 2);
+    }
+
+    @Test
+    public void testRequestToInvalidContext() throws Exception {
+        HttpPost request = new HttpPost("http://" + HOST + ":" + PORT + "/api/v2/invalid");
+        request.setHeader(Constants.HTTP_CONTENT_TYPE_HEADER, "application/json");
+        request.setEntity(new ByteArrayEntity(SpanBytesEncoder.JSON_V2.encodeList(
+                generateSpans("test-invalid-context-span"))));
+        HttpResponse response = HttpClientBuilder.create()
+                .build()
+                .execute(request);
+
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 1, eventCount, TIMEOUT);
+        Assert.assertEquals(response.getStatusLine().getStatusCode(), 404);
+        Assert.assertEquals(eventCount.get(), 0);
+        IOUtils.closeQuietly(response.getEntity().getContent());
+    }
+
+    /**
+     * Generate a spans list containing a single span for testing.
+     *
+     * @param name The name of the span
+     * @return The generated spans list
+     */
+    private List<zipkin2.Span> generateSpans(String name) {
+        return Collections.singletonList(zipkin2.Span.newBuilder()
+                .traceId("1234567890")
+                .id("1234567891")
+                .name(name)
+                .kind(zipkin2.Span.Kind.SERVER)
+                .duration(10001)
+                .timestamp(100000001)
+                .localEndpoint(Endpoint.newBuilder()
+                        .serviceName(SERVICE_NAME)
+                        .build())
+                .build());
+    }
+
+    /**
+     * Count the number of occurrences of a string within another string.
+     *
+     * @param string    The string to search in
+     * @param subString The string to search for
+     * @return The number of occurrences
+     */
+    private int countOccurrences(String string, String subString) {
+        int count = 0;
+        int index = string.indexOf(subString);
+        while (index != -1) {
+            count++;
+            index = string.indexOf(subString, index + subString.length());
+        }
+        return count;
+    }
+}
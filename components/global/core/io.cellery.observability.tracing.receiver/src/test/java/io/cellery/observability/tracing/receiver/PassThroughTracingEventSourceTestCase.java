@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver;
+
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.query.api.exception.SiddhiAppValidationException;
+
+/**
+ * Test Cases for Tracing Event Source emitting event data directly to a pass through mapper.
+ * All the test cases of the key-value output format are run against the pass through output format as well.
+ */
+public class PassThroughTracingEventSourceTestCase extends TracingEventSourceTestCase {
+
+    @Override
+    protected String getOutputFormat() {
+        return Constants.OUTPUT_FORMAT_PASS_THROUGH;
+    }
+
+    @Test(expectedExceptions = SiddhiAppValidationException.class)
+    public void testStreamWithUnknownAttribute() {
+        String inStreamDefinition = "@App:name(\"test-invalid-siddhi-app\")\n" +
+                "@source(type=\"tracing-receiver\", host=\"" + HOST + "\", port=\"" + (PORT + 1) + "\", " +
+                "output.format=\"" + Constants.OUTPUT_FORMAT_PASS_THROUGH + "\", @map(type=\"passThrough\"))\n" +
+                "define stream zipkinStream (traceId string, id string, unknownAttribute string);";
+        new SiddhiManager().createSiddhiAppRuntime(inStreamDefinition);
+    }
+}
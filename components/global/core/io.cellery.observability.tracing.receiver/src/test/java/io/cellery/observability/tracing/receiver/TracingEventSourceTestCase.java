@@ -25,9 +25,13 @@ import io.opentracing.Span;
 import io.opentracing.Tracer;
 import io.opentracing.propagation.Format;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -47,26 +51,30 @@ import zipkin2.reporter.Reporter;
 import zipkin2.reporter.Sender;
 import zipkin2.reporter.urlconnection.URLConnectionSender;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Test Cases for Tracing Event Source.
  */
 public class TracingEventSourceTestCase {
-    private static final String HOST = "localhost";
-    private static final int PORT = 20435;
-    private static final String API_CONTEXT = "/api/v1/spans";
-    private static final String TRACING_RECEIVER_ENDPOINT = "http://" + HOST + ":" + PORT + API_CONTEXT;
-    private static final String SERVICE_NAME = "test-service";
+    static final String HOST = "localhost";
+    static final int PORT = 20435;
+    static final String API_CONTEXT = "/api/v1/spans";
+    static final String TRACING_RECEIVER_ENDPOINT = "http://" + HOST + ":" + PORT + API_CONTEXT;
+    static final String SERVICE_NAME = "test-service";
 
-    private static final int WAIT_TIME = 50;
-    private static final int TIMEOUT = 5000;
+    static final int WAIT_TIME = 50;
+    static final int TIMEOUT = 5000;
 
-    private AtomicInteger eventCount = new AtomicInteger(0);
+    AtomicInteger eventCount = new AtomicInteger(0);
     private SiddhiAppRuntime siddhiAppRuntime;
-    private List<Event> receivedEvents;
+    List<Event> receivedEvents;
 
     @BeforeMethod
     public void init() {
@@ -74,7 +82,10 @@ public class TracingEventSourceTestCase {
         String inStreamDefinition = "@App:name(\"test-siddhi-app\")\n" +
                 "@source(type=\"tracing-receiver\", host=\"" + HOST + "\", " +
                 "port=\"" + PORT + "\", api.context=\"" + API_CONTEXT + "\", " +
-                "@map(type=\"keyvalue\", fail.on.missing.attribute=\"false\"))\n" +
+                "server.type=\"" + getServerType() + "\", output.format=\"" + getOutputFormat() + "\", " +
+                (Constants.OUTPUT_FORMAT_PASS_THROUGH.equals(getOutputFormat())
+                        ? "@map(type=\"passThrough\"))\n"
+                        : "@map(type=\"keyvalue\", fail.on.missing.attribute=\"false\"))\n") +
                 "define stream zipkinStream (traceId string, id string, parentId string, operationName string, " +
                 "serviceName string, spanKind string, timestamp long, duration long, tags string);";
         String query = "@info(name = \"query\")\n" +
@@ -105,6 +116,24 @@ public class TracingEventSourceTestCase {
         siddhiAppRuntime.shutdown();
     }
 
+    /**
+     * Get the type of the server used by the tracing receiver under test.
+     *
+     * @return The server type
+     */
+    protected String getServerType() {
+        return Constants.SERVER_TYPE_HTTP;
+    }
+
+    /**
+     * Get the output format of the tracing receiver under test.
+     *
+     * @return The output format
+     */
+    protected String getOutputFormat() {
+        return Constants.OUTPUT_FORMAT_KEY_VALUE;
+    }
+
     @Test
     public void testZipkinOverJsonV1() throws Exception {
         Tracer tracer = getJsonBasedTracer(SpanBytesEncoder.JSON_V1);
@@ -263,6 +292,134 @@ public class TracingEventSourceTestCase {
         Assert.assertEquals(eventCount.get(), 0);
     }
 
+    @Test
+    public void testZipkinOverProto3OnHttp() throws Exception {
+        byte[] bytes = SpanBytesEncoder.PROTO3.encodeList(Collections.singletonList(zipkin2.Span.newBuilder()
+                .traceId("1234567890")
+                .id("1234567891")
+                .name("test-proto3-span")
+                .kind(zipkin2.Span.Kind.CLIENT)
+                .duration(10001)
+                .timestamp(100000001)
+                .localEndpoint(Endpoint.newBuilder()
+                        .serviceName(SERVICE_NAME)
+                        .build())
+                .putTag("keyA1", "valueA1")
+                .build()));
+        HttpPost request = new HttpPost(TRACING_RECEIVER_ENDPOINT);
+        request.setHeader(Constants.HTTP_CONTENT_TYPE_HEADER, Constants.HTTP_APPLICATION_PROTOBUF_CONTENT_TYPE);
+        request.setEntity(new ByteArrayEntity(bytes));
+        HttpResponse response = HttpClientBuilder.create()
+                .build()
+                .execute(request);
+
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 1, eventCount, TIMEOUT);
+        Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+        Assert.assertEquals(eventCount.get(), 1);
+        Object[] data = receivedEvents.get(0).getData();
+        Assert.assertEquals(data[0], "0000001234567890");
+        Assert.assertEquals(data[3], "test-proto3-span");
+        Assert.assertEquals(data[4], SERVICE_NAME);
+        Assert.assertEquals(data[5], "CLIENT");
+        Assert.assertEquals(data[6], 100000L);
+        Assert.assertEquals(data[7], 10L);
+        Assert.assertEquals(data[8], "{\"keyA1\":\"valueA1\"}");
+    }
+
+    @Test
+    public void testZipkinOverChunkedHttpRequest() throws Exception {
+        byte[] bytes = SpanBytesEncoder.JSON_V2.encodeList(Collections.singletonList(zipkin2.Span.newBuilder()
+                .traceId("1234567890")
+                .id("1234567891")
+                .name("test-chunked-span")
+                .kind(zipkin2.Span.Kind.SERVER)
+                .duration(10001)
+                .timestamp(100000001)
+                .localEndpoint(Endpoint.newBuilder()
+                        .serviceName(SERVICE_NAME)
+                        .build())
+                .build()));
+        HttpPost request = new HttpPost(TRACING_RECEIVER_ENDPOINT);
+        request.setHeader(Constants.HTTP_CONTENT_TYPE_HEADER, "application/json");
+        InputStreamEntity entity = new InputStreamEntity(new ByteArrayInputStream(bytes), -1);
+        entity.setChunked(true);
+        request.setEntity(entity);
+        HttpResponse response = HttpClientBuilder.create()
+                .build()
+                .execute(request);
+
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 1, eventCount, TIMEOUT);
+        Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+        Assert.assertEquals(eventCount.get(), 1);
+        Assert.assertEquals(receivedEvents.get(0).getData()[3], "test-chunked-span");
+    }
+
+    @Test
+    public void testZipkinOverGzipCompressedHttpRequest() throws Exception {
+        ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressedBytes)) {
+            gzipOutputStream.write(SpanBytesEncoder.JSON_V2.encodeList(Collections.singletonList(
+                    zipkin2.Span.newBuilder()
+                            .traceId("1234567890")
+                            .id("1234567891")
+                            .name("test-gzip-span")
+                            .kind(zipkin2.Span.Kind.SERVER)
+                            .duration(10001)
+                            .timestamp(100000001)
+                            .localEndpoint(Endpoint.newBuilder()
+                                    .serviceName(SERVICE_NAME)
+                                    .build())
+                            .build())));
+        }
+        HttpPost request = new HttpPost(TRACING_RECEIVER_ENDPOINT);
+        request.setHeader(Constants.HTTP_CONTENT_TYPE_HEADER, "application/json");
+        request.setHeader(Constants.HTTP_CONTENT_ENCODING_HEADER, Constants.HTTP_GZIP_CONTENT_ENCODING);
+        request.setEntity(new ByteArrayEntity(compressedBytes.toByteArray()));
+        HttpResponse response = HttpClientBuilder.create()
+                .build()
+                .execute(request);
+
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 1, eventCount, TIMEOUT);
+        Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+        Assert.assertEquals(eventCount.get(), 1);
+        Assert.assertEquals(receivedEvents.get(0).getData()[3], "test-gzip-span");
+    }
+
+    @Test
+    public void testZipkinOverHttpWithUnsupportedContentEncoding() throws Exception {
+        HttpPost request = new HttpPost(TRACING_RECEIVER_ENDPOINT);
+        request.setHeader(Constants.HTTP_CONTENT_TYPE_HEADER, "application/json");
+        request.setHeader(Constants.HTTP_CONTENT_ENCODING_HEADER, "unknown");
+        request.setEntity(new StringEntity("random set of bytes"));
+        HttpResponse response = HttpClientBuilder.create()
+                .build()
+                .execute(request);
+
+        SiddhiTestHelper.waitForEvents(WAIT_TIME, 1, eventCount, TIMEOUT);
+        Assert.assertEquals(response.getStatusLine().getStatusCode(), 415);
+        Assert.assertEquals(eventCount.get(), 0);
+    }
+
+    @Test
+    public void testMetricsEndpoint() throws Exception {
+        HttpPost request = new HttpPost(TRACING_RECEIVER_ENDPOINT);
+        request.setHeader(Constants.HTTP_CONTENT_TYPE_HEADER, "application/json");
+        request.setEntity(new StringEntity("random set of bytes"));
+        HttpClientBuilder.create()
+                .build()
+                .execute(request);
+
+        HttpResponse response = HttpClientBuilder.create()
+                .build()
+                .execute(new HttpGet("http://" + HOST + ":" + PORT + "/metrics"));
+        String metrics = EntityUtils.toString(response.getEntity());
+        Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+        Assert.assertTrue(metrics.contains("# TYPE cellery_tracing_receiver_requests_total counter\n"));
+        Assert.assertTrue(metrics.contains("# TYPE cellery_tracing_receiver_decode_failures_total counter\n"));
+        Assert.assertTrue(metrics.contains("cellery_tracing_receiver_request_size_bytes_bucket{le=\"+Inf\"} "));
+        Assert.assertFalse(metrics.contains("cellery_tracing_receiver_decode_failures_total 0\n"));
+    }
+
     /**
      * Get a Tracer which can report JSON encoded tracing data.
      *
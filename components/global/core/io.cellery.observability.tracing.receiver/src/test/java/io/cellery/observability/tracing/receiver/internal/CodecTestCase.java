@@ -18,6 +18,7 @@
 
 package io.cellery.observability.tracing.receiver.internal;
 
+import io.cellery.observability.tracing.receiver.Constants;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 import zipkin2.Endpoint;
@@ -25,6 +26,7 @@ import zipkin2.Span;
 import zipkin2.codec.SpanBytesEncoder;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -49,6 +51,27 @@ public class CodecTestCase {
         }
     }
 
+    @Test
+    public void testDecodingEncodedSpansByContentType() {
+        List<Span> spansList = generateSpans();
+        Map<SpanBytesEncoder, String> contentTypes = new LinkedHashMap<>();
+        contentTypes.put(SpanBytesEncoder.JSON_V1, "application/json");
+        contentTypes.put(SpanBytesEncoder.JSON_V2, "application/json; charset=utf-8");
+        contentTypes.put(SpanBytesEncoder.PROTO3, Constants.HTTP_APPLICATION_PROTOBUF_CONTENT_TYPE);
+        contentTypes.put(SpanBytesEncoder.THRIFT, "Application/X-Thrift");
+        for (Map.Entry<SpanBytesEncoder, String> entry : contentTypes.entrySet()) {
+            byte[] bytes = entry.getKey().encodeList(spansList);
+            List<ZipkinSpan> decodedSpans = Codec.decodeData(bytes, entry.getValue());
+            assertEqual(decodedSpans, spansList);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDecodingWithMismatchingContentType() {
+        byte[] bytes = SpanBytesEncoder.JSON_V2.encodeList(generateSpans());
+        Codec.decodeData(bytes, Constants.HTTP_APPLICATION_PROTOBUF_CONTENT_TYPE);
+    }
+
     /**
      * Generate spans list for testing.
      *
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Test Cases for Service Name.
+ */
+public class ServiceNameTestCase {
+
+    @DataProvider(name = "serviceNameDataProvider")
+    public Object[][] getServiceNames() {
+        return new Object[][]{
+                {"pet-be--controller--cell.default", "pet-be", "controller", "Cell", "default"},
+                {"hr--employee-1--composite.cellery_ns", "hr", "employee-1", "Composite", "cellery-ns"},
+                {"pet-be--controller--unknown.default", "pet-be", "controller", "", "default"},
+                {"pet-fe--gateway.default.svc", "pet-fe", "gateway", "Cell", "default.svc"},
+                {"global-gateway", "", "global-gateway", "", ""},
+                {"istio_ingress", "", "istio-ingress", "", ""},
+                {"pet-be--controller.", "", "pet-be--controller.", "", ""},
+                {"pet-be---controller.default", "", "pet-be---controller.default", "", ""},
+                {"pet-be--controller-.default", "", "pet-be--controller-.default", "", ""},
+                {"Pet--controller.default", "", "Pet--controller.default", "", ""},
+                {"a--b--c--d.default", "", "a--b--c--d.default", "", ""},
+                {"--controller.default", "", "--controller.default", "", ""}
+        };
+    }
+
+    @Test(dataProvider = "serviceNameDataProvider")
+    public void testParse(String serviceName, String instance, String service, String instanceKind,
+                          String namespace) {
+        ServiceName parsedServiceName = ServiceName.parse(serviceName);
+        Assert.assertEquals(parsedServiceName.getInstance(), instance);
+        Assert.assertEquals(parsedServiceName.getService(), service);
+        Assert.assertEquals(parsedServiceName.getInstanceKind(), instanceKind);
+        Assert.assertEquals(parsedServiceName.getNamespace(), namespace);
+    }
+
+    @Test
+    public void testCaching() {
+        ServiceName parsedServiceName = ServiceName.of("pet-be--controller--cell.default");
+        Assert.assertSame(ServiceName.of(new String("pet-be--controller--cell.default")), parsedServiceName);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test Cases for String Dictionary.
+ */
+public class StringDictionaryTestCase {
+
+    @Test
+    public void testCanonicalization() {
+        StringDictionary stringDictionary = new StringDictionary(100);
+        String firstValue = new String("pet-be--controller");
+        String secondValue = new String("pet-be--controller");
+
+        Assert.assertSame(stringDictionary.canonicalize(firstValue), firstValue);
+        Assert.assertSame(stringDictionary.canonicalize(secondValue), firstValue);
+        Assert.assertNull(stringDictionary.canonicalize(null));
+        Assert.assertEquals(stringDictionary.getHitCount(), 1);
+        Assert.assertEquals(stringDictionary.getMissCount(), 1);
+        Assert.assertEquals(stringDictionary.getHitRate(), 0.5);
+        Assert.assertEquals(stringDictionary.size(), 1);
+    }
+
+    @Test
+    public void testEvictionOfLeastRecentlyUsedStrings() {
+        StringDictionary stringDictionary = new StringDictionary(1);   // A single string per segment
+        String firstValue = new String("a");
+        String secondValue = new String("q");  // Maps to the same segment as "a"
+
+        stringDictionary.canonicalize(firstValue);
+        stringDictionary.canonicalize(secondValue);
+        Assert.assertEquals(stringDictionary.getEvictionCount(), 1);
+
+        String newFirstValue = new String("a");
+        Assert.assertSame(stringDictionary.canonicalize(newFirstValue), newFirstValue);
+        Assert.assertEquals(stringDictionary.getHitCount(), 0);
+        Assert.assertEquals(stringDictionary.getEvictionCount(), 2);
+    }
+
+    @Test
+    public void testConcurrentCanonicalization() throws Exception {
+        StringDictionary stringDictionary = new StringDictionary(1000);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executorService.submit(() -> {
+                List<String> canonicalValues = new ArrayList<>();
+                for (int j = 0; j < 1000; j++) {
+                    canonicalValues.add(stringDictionary.canonicalize(new String("service-" + (j % 10))));
+                }
+                return canonicalValues;
+            }));
+        }
+        List<String> firstCanonicalValues = futures.get(0).get();
+        for (Future<List<String>> future : futures) {
+            List<String> canonicalValues = future.get();
+            for (int j = 0; j < canonicalValues.size(); j++) {
+                Assert.assertSame(canonicalValues.get(j), firstCanonicalValues.get(j));
+            }
+        }
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(stringDictionary.size(), 10);
+        Assert.assertEquals(stringDictionary.getMissCount(), 10);
+        Assert.assertEquals(stringDictionary.getHitCount(), 3990);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Test Cases for Tags Encoder.
+ */
+public class TagsEncoderTestCase {
+
+    @Test
+    public void testEncodingTags() {
+        Map<String, String> tags = new TreeMap<>();
+        tags.put("http.method", "GET");
+        tags.put("http.status_code", "200");
+        Assert.assertEquals(TagsEncoder.encode(tags), "{\"http.method\":\"GET\",\"http.status_code\":\"200\"}");
+    }
+
+    @Test
+    public void testEncodingEmptyTags() {
+        Assert.assertEquals(TagsEncoder.encode(Collections.emptyMap()), "{}");
+        Assert.assertEquals(TagsEncoder.encode(null), "{}");
+    }
+
+    @Test
+    public void testEncodingTagsWithSpecialCharacters() {
+        Map<String, String> tags = new HashMap<>();
+        tags.put("quoted \"key\"", "back\\slash");
+        tags.put("control", "new\nline\ttab\rreturn\bback\fform\u0001\u001f");
+        tags.put("html", "<a href='x'>&amp;</a>=");
+        tags.put("unicode", "\u00e9\u4e2d\u2028\u2029\ud83d\ude00");
+        tags.put("", "");
+
+        String encodedTags = TagsEncoder.encode(tags);
+        Map<String, String> decodedTags = new Gson().fromJson(encodedTags,
+                new TypeToken<Map<String, String>>() { }.getType());
+        Assert.assertEquals(decodedTags, tags);
+        Assert.assertFalse(encodedTags.contains("\n"));
+        Assert.assertFalse(encodedTags.contains("\u2028"));
+    }
+
+    @Test
+    public void testEncodingTagsWithNullValues() {
+        Map<String, String> tags = new TreeMap<>();
+        tags.put("keyA", null);
+        tags.put("keyB", "valueB");
+        tags.put("keyC", null);
+        Assert.assertEquals(TagsEncoder.encode(tags), "{\"keyB\":\"valueB\"}");
+    }
+}
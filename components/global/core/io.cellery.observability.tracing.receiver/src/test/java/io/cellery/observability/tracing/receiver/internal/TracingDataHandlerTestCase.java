@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.cellery.observability.tracing.receiver.internal;
+
+import io.cellery.observability.metrics.MetricsRegistry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.stream.input.source.SourceEventListener;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import zipkin2.Endpoint;
+import zipkin2.Span;
+import zipkin2.codec.SpanBytesEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test Cases for Tracing Data Handler.
+ */
+public class TracingDataHandlerTestCase {
+
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final String QUEUE_DEPTH_METRIC = "cellery_tracing_receiver_queue_depth";
+
+    @Test
+    public void testHandlingInCallingThread() {
+        AtomicInteger eventCount = new AtomicInteger(0);
+        TracingDataHandler tracingDataHandler = new TracingDataHandler(
+                new CountingSourceEventListener(eventCount, null), 0, 0);
+        tracingDataHandler.start();
+
+        Assert.assertTrue(tracingDataHandler.submit(generateSpansBytes(), "application/json"));
+        Assert.assertEquals(eventCount.get(), 1);
+        tracingDataHandler.stop();
+    }
+
+    @Test
+    public void testRejectionWhenQueueIsFull() throws Exception {
+        AtomicInteger eventCount = new AtomicInteger(0);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        TracingDataHandler tracingDataHandler = new TracingDataHandler(
+                new CountingSourceEventListener(eventCount, releaseLatch), 1, 1);
+        tracingDataHandler.start();
+
+        byte[] spansBytes = generateSpansBytes();
+        Assert.assertTrue(tracingDataHandler.submit(spansBytes, "application/json"));   // Blocks the only thread
+        Assert.assertTrue(tracingDataHandler.submit(spansBytes, "application/json"));   // Fills the queue
+        Assert.assertFalse(tracingDataHandler.submit(spansBytes, "application/json"));
+
+        releaseLatch.countDown();
+        tracingDataHandler.stop();
+        Assert.assertEquals(eventCount.get(), 2);
+    }
+
+    @Test
+    public void testQueueDepthOfMultipleHandlers() {
+        CountDownLatch firstReleaseLatch = new CountDownLatch(1);
+        CountDownLatch secondReleaseLatch = new CountDownLatch(1);
+        TracingDataHandler firstTracingDataHandler = new TracingDataHandler(
+                new CountingSourceEventListener(new AtomicInteger(0), firstReleaseLatch), 1, 1);
+        TracingDataHandler secondTracingDataHandler = new TracingDataHandler(
+                new CountingSourceEventListener(new AtomicInteger(0), secondReleaseLatch), 1, 1);
+        firstTracingDataHandler.start();
+        secondTracingDataHandler.start();
+
+        byte[] spansBytes = generateSpansBytes();
+        for (TracingDataHandler tracingDataHandler : new TracingDataHandler[]{firstTracingDataHandler,
+                secondTracingDataHandler}) {
+            Assert.assertTrue(tracingDataHandler.submit(spansBytes, "application/json"));   // Blocks the only thread
+            Assert.assertTrue(tracingDataHandler.submit(spansBytes, "application/json"));   // Fills the queue
+        }
+        Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText().contains(QUEUE_DEPTH_METRIC + " 2\n"));
+
+        firstReleaseLatch.countDown();
+        firstTracingDataHandler.stop();
+        Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText().contains(QUEUE_DEPTH_METRIC + " 1\n"));
+
+        secondReleaseLatch.countDown();
+        secondTracingDataHandler.stop();
+        Assert.assertTrue(MetricsRegistry.getDefault().toPrometheusText().contains(QUEUE_DEPTH_METRIC + " 0\n"));
+    }
+
+    @Test
+    public void testEmittingEventDataInOutputAttributesOrder() {
+        List<Object> receivedEvents = new ArrayList<>();
+        SourceEventListener sourceEventListener = new CountingSourceEventListener(new AtomicInteger(0), null) {
+            @Override
+            public void onEvent(Object eventObject, String[] transportProperties) {
+                receivedEvents.add(eventObject);
+            }
+        };
+        TracingDataHandler tracingDataHandler = new TracingDataHandler(sourceEventListener,
+                new SpanAttribute[]{SpanAttribute.SERVICE_NAME, SpanAttribute.TAGS, SpanAttribute.DURATION,
+                        SpanAttribute.PARENT_ID}, null, 0, 0);
+        tracingDataHandler.start();
+
+        Assert.assertTrue(tracingDataHandler.submit(generateSpansBytes(), "application/json"));
+        Assert.assertEquals(receivedEvents.size(), 1);
+        Assert.assertTrue(receivedEvents.get(0) instanceof Event[]);
+        Event[] events = (Event[]) receivedEvents.get(0);
+        Assert.assertEquals(events.length, 1);
+        Object[] data = events[0].getData();
+        Assert.assertEquals(data.length, 4);
+        Assert.assertEquals(data[0], "test-service");
+        Assert.assertEquals(data[1], "{\"keyA1\":\"valueA1\"}");
+        Assert.assertEquals(data[2], 10L);
+        Assert.assertNull(data[3]);
+        tracingDataHandler.stop();
+    }
+
+    @Test
+    public void testEmittingAllSpansOfRequestAsSingleBatch() {
+        List<Object> receivedEvents = new ArrayList<>();
+        SourceEventListener sourceEventListener = new CountingSourceEventListener(new AtomicInteger(0), null) {
+            @Override
+            public void onEvent(Object eventObject, String[] transportProperties) {
+                receivedEvents.add(eventObject);
+            }
+        };
+        TracingDataHandler tracingDataHandler = new TracingDataHandler(sourceEventListener,
+                new SpanAttribute[]{SpanAttribute.TRACE_ID, SpanAttribute.SPAN_ID}, null, 0, 0);
+        tracingDataHandler.start();
+
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            spans.add(Span.newBuilder()
+                    .traceId("1234567890")
+                    .id("123456789" + i)
+                    .name("test-span-" + i)
+                    .build());
+        }
+        Assert.assertTrue(tracingDataHandler.submit(SpanBytesEncoder.JSON_V2.encodeList(spans), "application/json"));
+        Assert.assertEquals(receivedEvents.size(), 1);
+        Event[] events = (Event[]) receivedEvents.get(0);
+        Assert.assertEquals(events.length, 3);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(events[i].getData(), new Object[]{"0000001234567890", "000000123456789" + i});
+            Assert.assertEquals(events[i].getTimestamp(), -1);
+        }
+        tracingDataHandler.stop();
+    }
+
+    @Test
+    public void testCanonicalizingLowCardinalityStrings() {
+        List<Object> receivedEvents = new ArrayList<>();
+        SourceEventListener sourceEventListener = new CountingSourceEventListener(new AtomicInteger(0), null) {
+            @Override
+            public void onEvent(Object eventObject, String[] transportProperties) {
+                receivedEvents.add(eventObject);
+            }
+        };
+        TracingDataHandler tracingDataHandler = new TracingDataHandler(sourceEventListener,
+                new SpanAttribute[]{SpanAttribute.SERVICE_NAME, SpanAttribute.OPERATION_NAME, SpanAttribute.TAGS},
+                new StringDictionary(100), 0, 0);
+        tracingDataHandler.start();
+
+        Assert.assertTrue(tracingDataHandler.submit(generateSpansBytes(), "application/json"));
+        Assert.assertTrue(tracingDataHandler.submit(generateSpansBytes(), "application/json"));
+        Assert.assertEquals(receivedEvents.size(), 2);
+        Object[] firstData = ((Event[]) receivedEvents.get(0))[0].getData();
+        Object[] secondData = ((Event[]) receivedEvents.get(1))[0].getData();
+        Assert.assertSame(secondData[0], firstData[0]);
+        Assert.assertSame(secondData[1], firstData[1]);
+        Assert.assertNotSame(secondData[2], firstData[2]);
+        tracingDataHandler.stop();
+    }
+
+    /**
+     * Generate the encoded bytes of a spans list containing a single span.
+     *
+     * @return The encoded spans
+     */
+    private byte[] generateSpansBytes() {
+        return SpanBytesEncoder.JSON_V2.encodeList(Collections.singletonList(Span.newBuilder()
+                .traceId("1234567890")
+                .id("1234567891")
+                .name("test-span")
+                .kind(Span.Kind.SERVER)
+                .duration(10001)
+                .timestamp(100000001)
+                .localEndpoint(Endpoint.newBuilder()
+                        .serviceName("test-service")
+                        .build())
+                .putTag("keyA1", "valueA1")
+                .build()));
+    }
+
+    /**
+     * Source Event Listener which counts the received events, and optionally blocks until released.
+     */
+    private static class CountingSourceEventListener implements SourceEventListener {
+
+        private AtomicInteger eventCount;
+        private CountDownLatch releaseLatch;
+
+        CountingSourceEventListener(AtomicInteger eventCount, CountDownLatch releaseLatch) {
+            this.eventCount = eventCount;
+            this.releaseLatch = releaseLatch;
+        }
+
+        @Override
+        public StreamDefinition getStreamDefinition() {
+            return null;
+        }
+
+        @Override
+        public void onEvent(Object eventObject, String[] transportProperties) {
+            if (releaseLatch != null) {
+                try {
+                    releaseLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            eventCount.incrementAndGet();
+        }
+    }
+}
@@ -31,7 +31,7 @@ public class Constants {
 
     public static final String TRACING_CORRELATION_ID = "TRACING_CORRELATION_ID";
     public static final String GLOBAL_GATEWAY_SERVICE_NAME = "global-gateway";
-    public static final boolean TRACING_SENDER_COMPRESSION_ENABLED = false;
+    public static final boolean TRACING_SENDER_COMPRESSION_ENABLED = true;
     public static final String B3_GLOBAL_GATEWAY_CORRELATION_ID_HEADER = "X-B3-GlobalGatewayCorrelationId";
 
     // Tag keys